@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.utils.Pagination;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service call behind {@code GET /films?limit=1000}: query, row mapping and DTO mapping.
+ * Meant to be run with the GC profiler, where {@code gc.alloc.rate.norm} is bytes per request:
+ * {@code -Djmh.args="FilmListAllocationBenchmark -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmListAllocationBenchmark {
+
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp(FilmorateState state) {
+        filmService = state.bean(FilmService.class);
+    }
+
+    @Benchmark
+    public List<FilmDto> filmsPage() {
+        return filmService.findFilmsPage(0, Pagination.MAX_PAGE_SIZE);
+    }
+}
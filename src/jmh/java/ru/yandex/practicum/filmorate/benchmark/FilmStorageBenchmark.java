@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@code FilmDbStorage} behind the film and recommendation endpoints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    private FilmStorage filmStorage;
+    private FilmorateState state;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(FilmorateState state) {
+        this.state = state;
+        filmStorage = state.bean("filmDbStorage", FilmStorage.class);
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmStorage.getPopularFilms(10, null, null);
+    }
+
+    @Benchmark
+    public List<Film> popularFilmsByGenreAndYear() {
+        return filmStorage.getPopularFilms(10, 2, 2000);
+    }
+
+    @Benchmark
+    public List<Film> searchByTitle() {
+        return filmStorage.search("lm 12", "title");
+    }
+
+    @Benchmark
+    public List<Film> searchByTitleAndDirector() {
+        return filmStorage.search("r 12", "title,director");
+    }
+
+    @Benchmark
+    public List<Film> commonFilms() {
+        long userId = state.userId(next++);
+        return filmStorage.getCommonFilms(userId, state.userId(next++));
+    }
+
+    @Benchmark
+    public List<Film> recommendations() {
+        return filmStorage.findRecommendationsByUserId(state.userId(next++));
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.testdata.DatasetGenerator;
+
+import java.util.Random;
+
+/**
+ * Application context on an in-memory H2 database filled by {@link DatasetGenerator}.
+ * Dataset size is set with the scale parameter, e.g. {@code -p scale=10}.
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param("1")
+    public double scale;
+
+    public ConfigurableApplicationContext context;
+
+    private final long[] sampleUserIds = new long[SAMPLE_SIZE];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start("filmorate");
+        DatasetGenerator generator = new DatasetGenerator(42, scale);
+        generator.load(context.getBean(JdbcTemplate.class));
+
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            sampleUserIds[i] = 1 + random.nextInt(generator.users());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Pseudo-random user id that repeats with period {@value #SAMPLE_SIZE}, so every run
+     * queries the same users.
+     */
+    public long userId(int i) {
+        return sampleUserIds[i & (SAMPLE_SIZE - 1)];
+    }
+
+    static ConfigurableApplicationContext start(String database) {
+        // Аргументы командной строки перекрывают application.properties, в отличие от properties()
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate.service=WARN",
+                        "--filmorate.likes.reconciliation.initial-delay=PT24H",
+                        "--filmorate.reviews.reconciliation.initial-delay=PT24H");
+    }
+}
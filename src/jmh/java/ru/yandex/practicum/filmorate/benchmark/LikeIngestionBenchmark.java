@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dto.film.FilmLikeDto;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularityLeaderboard;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Like ingestion through {@code FilmService}: POST /films/likes:batch with {@value #LIKES} likes
+ * against the same number of single PUT /films/{id}/like/{userId} calls. Every like is new,
+ * so both paths insert the like, bump likes_count and write a feed event. Scores are likes per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LikeIngestionBenchmark {
+
+    private static final int LIKES = 1000;
+    private static final int FILMS = 1000;
+    private static final int USERS = 100_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private FilmService filmService;
+    // Номер очередной пары (фильм, пользователь), чтобы каждый лайк был новым
+    private long nextPair;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = FilmorateState.start("likes");
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= USERS; id++) {
+            rows.add(new Object[]{id, "user" + id, "user" + id + "@mail.ru", Date.valueOf(LocalDate.of(1990, 1, 1))});
+            if (rows.size() == BATCH_SIZE || id == USERS) {
+                jdbc.batchUpdate("INSERT INTO users (id, login, email, birthday) VALUES (?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        for (long id = 1; id <= FILMS; id++) {
+            rows.add(new Object[]{id, "Film " + id, Date.valueOf(LocalDate.of(2000, 1, 1))});
+        }
+        jdbc.batchUpdate("INSERT INTO films (id, name, release_date, duration, mpa_rating_id) VALUES (?, ?, ?, 120, 1)",
+                rows);
+
+        // Данные загружены после старта контекста, модели в памяти надо перечитать
+        context.getBean(PopularityLeaderboard.class).reload();
+        context.getBean(FilmSearchIndex.class).reload();
+        filmService = context.getBean(FilmService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LIKES)
+    public void batch() {
+        List<FilmLikeDto> likes = new ArrayList<>(LIKES);
+        for (int i = 0; i < LIKES; i++) {
+            long pair = nextPair++;
+            FilmLikeDto like = new FilmLikeDto();
+            like.setFilmId(pair % FILMS + 1);
+            like.setUserId(pair / FILMS % USERS + 1);
+            likes.add(like);
+        }
+        filmService.addFilmLikes(likes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LIKES)
+    public void single() {
+        for (int i = 0; i < LIKES; i++) {
+            long pair = nextPair++;
+            filmService.addFilmLike(pair % FILMS + 1, pair / FILMS % USERS + 1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dto.director.DirectorDto;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.storage.mappers.EventRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mappers and DTO mapping for a page of {@value #PAGE_SIZE} rows, with the rows
+ * already in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private FilmRowMapper filmRowMapper;
+    private UserRowMapper userRowMapper;
+    private EventRowMapper eventRowMapper;
+
+    private ResultSetSnapshot filmRows;
+    private ResultSetSnapshot userRows;
+    private ResultSetSnapshot eventRows;
+    private List<Film> films;
+
+    @Setup(Level.Trial)
+    public void setUp(FilmorateState state) throws SQLException {
+        filmRowMapper = state.bean(FilmRowMapper.class);
+        userRowMapper = state.bean(UserRowMapper.class);
+        eventRowMapper = state.bean(EventRowMapper.class);
+
+        Director director = state.bean(DirectorService.class)
+                .create(DirectorDto.builder().name("Director 1").build());
+        JdbcTemplate jdbc = state.bean(JdbcTemplate.class);
+        filmRows = new ResultSetSnapshot(jdbc, """
+                SELECT f.*,
+                    '1,2' AS genre_ids,
+                    '%d' AS director_ids
+                FROM films f
+                ORDER BY f.id
+                LIMIT %d
+                """.formatted(director.getId(), PAGE_SIZE));
+        userRows = new ResultSetSnapshot(jdbc, "SELECT * FROM users ORDER BY id LIMIT " + PAGE_SIZE);
+        eventRows = new ResultSetSnapshot(jdbc, "SELECT * FROM events ORDER BY event_id LIMIT " + PAGE_SIZE);
+        films = filmRows.map(filmRowMapper);
+    }
+
+    @Benchmark
+    public List<Film> filmRowMapper() throws SQLException {
+        return filmRows.map(filmRowMapper);
+    }
+
+    @Benchmark
+    public List<User> userRowMapper() throws SQLException {
+        return userRows.map(userRowMapper);
+    }
+
+    @Benchmark
+    public List<Event> eventRowMapper() throws SQLException {
+        return eventRows.map(eventRowMapper);
+    }
+
+    @Benchmark
+    public List<FilmDto> filmDtoMapper() {
+        return films.stream().map(FilmMapper::toDto).toList();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.service.BitsetRecommendationEngine;
+import ru.yandex.practicum.filmorate.service.RecommendationModel;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.testdata.DatasetGenerator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Compares GET /users/{id}/recommendations engines on 100k users and 1M likes:
+ * the SQL query in {@code FilmDbStorage}, the CSR model and the bitset engine.
+ * The in-memory engines return film ids only, the SQL path also loads the films.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class RecommendationBenchmark {
+
+    // 100k пользователей и около 1M лайков
+    private static final double SCALE = 10;
+
+    @Param({"sql", "csr", "bitset"})
+    private String engine;
+
+    private ConfigurableApplicationContext context;
+    private LongFunction<List<?>> recommendations;
+    private long[] userIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = FilmorateState.start("recommendations");
+        DatasetGenerator generator = new DatasetGenerator(42, SCALE);
+        generator.load(context.getBean(JdbcTemplate.class));
+
+        FilmStorage filmStorage = context.getBean("filmDbStorage", FilmStorage.class);
+        switch (engine) {
+            case "sql" -> recommendations = filmStorage::findRecommendationsByUserId;
+            case "csr" -> {
+                RecommendationModel model = new RecommendationModel(filmStorage);
+                model.reload();
+                recommendations = userId -> model.findRecommendedFilmIds(userId).orElseThrow();
+            }
+            case "bitset" -> {
+                BitsetRecommendationEngine bitset = new BitsetRecommendationEngine(filmStorage);
+                bitset.reload();
+                recommendations = userId -> bitset.findRecommendedFilmIds(userId).orElseThrow();
+            }
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+
+        Random random = new Random(7);
+        userIds = new long[1024];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = 1 + random.nextInt(generator.users());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<?> findRecommendations() {
+        long userId = userIds[next++ & (userIds.length - 1)];
+        return recommendations.apply(userId);
+    }
+}
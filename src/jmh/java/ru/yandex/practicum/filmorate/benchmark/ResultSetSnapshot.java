@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rows of a query copied into memory, replayed through a read-only {@link ResultSet} so
+ * row mappers can be measured without the database in the loop.
+ */
+public class ResultSetSnapshot {
+
+    private final Map<String, Integer> columns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<Object[]> rows = new ArrayList<>();
+
+    public ResultSetSnapshot(JdbcTemplate jdbc, String sql) {
+        jdbc.query(sql, rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            if (columns.isEmpty()) {
+                for (int i = metaData.getColumnCount(); i >= 1; i--) {
+                    // Как и JDBC, при совпадении имён отдаём первый столбец
+                    columns.put(metaData.getColumnLabel(i), i - 1);
+                }
+            }
+            Object[] row = new Object[metaData.getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            rows.add(row);
+        });
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public <T> List<T> map(RowMapper<T> rowMapper) throws SQLException {
+        int[] current = {-1};
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    Object value = rows.get(current[0])[columns.get((String) args[0])];
+                    return switch (method.getName()) {
+                        case "getString" -> value == null ? null : value.toString();
+                        case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                        case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                        case "getBoolean" -> value != null && (Boolean) value;
+                        case "getDate", "getTimestamp", "getObject" -> value;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+        List<T> result = new ArrayList<>(rows.size());
+        for (current[0] = 0; current[0] < rows.size(); current[0]++) {
+            result.add(rowMapper.mapRow(rs, current[0]));
+        }
+        return result;
+    }
+}
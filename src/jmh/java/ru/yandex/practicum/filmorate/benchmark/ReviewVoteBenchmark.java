@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PUT /reviews/{id}/like|dislike/{userId} on a review that already has {@code votes} votes:
+ * one voter flips their vote back and forth, so every call changes the useful rating.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewVoteBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final long REVIEW_ID = 1;
+    private static final long VOTER_ID = 2;
+
+    @Param({"1000", "100000"})
+    private int votes;
+
+    private ConfigurableApplicationContext context;
+    private ReviewService reviewService;
+    private boolean liked = true;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = FilmorateState.start("reviews" + votes);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+        // Автор отзыва и голосующие: пользователи 1..votes+1
+        List<Object[]> users = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= votes + 1; id++) {
+            users.add(new Object[]{id, "user" + id, "user" + id + "@mail.ru", Date.valueOf(LocalDate.of(1990, 1, 1))});
+            if (users.size() == BATCH_SIZE || id == votes + 1) {
+                jdbc.batchUpdate("INSERT INTO users (id, login, email, birthday) VALUES (?, ?, ?, ?)", users);
+                users.clear();
+            }
+        }
+        jdbc.update("INSERT INTO films (id, name, release_date, duration, mpa_rating_id) VALUES (1, 'Film', ?, 120, 1)",
+                Date.valueOf(LocalDate.of(2000, 1, 1)));
+        jdbc.update("INSERT INTO reviews (review_id, content, is_positive, user_id, film_id, useful) "
+                + "VALUES (?, 'Review', TRUE, 1, 1, ?)", REVIEW_ID, votes);
+
+        List<Object[]> reviewVotes = new ArrayList<>(BATCH_SIZE);
+        for (long userId = 2; userId <= votes + 1; userId++) {
+            reviewVotes.add(new Object[]{REVIEW_ID, userId});
+            if (reviewVotes.size() == BATCH_SIZE || userId == votes + 1) {
+                jdbc.batchUpdate("INSERT INTO review_votes (review_id, user_id, vote_type) VALUES (?, ?, 'LIKE')",
+                        reviewVotes);
+                reviewVotes.clear();
+            }
+        }
+        reviewService = context.getBean(ReviewService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void flipVote() {
+        if (liked) {
+            reviewService.addDislike(REVIEW_ID, VOTER_ID);
+        } else {
+            reviewService.addLike(REVIEW_ID, VOTER_ID);
+        }
+        liked = !liked;
+    }
+}
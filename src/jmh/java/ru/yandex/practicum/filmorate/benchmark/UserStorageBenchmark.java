@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggester;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.utils.Pagination;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@code UserDbStorage} and {@code EventDbStorage}: common friends and the feed,
+ * plus friend suggestions built on top of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+
+    private UserStorage userStorage;
+    private EventStorage eventStorage;
+    private FriendSuggester friendSuggester;
+    private FilmorateState state;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(FilmorateState state) {
+        this.state = state;
+        userStorage = state.bean("userDbStorage", UserStorage.class);
+        // Данные загружены после старта контекста, граф друзей надо перечитать
+        state.bean(UserDbStorage.class).loadFriendGraph();
+        eventStorage = state.bean(EventStorage.class);
+        friendSuggester = state.bean(FriendSuggester.class);
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        long userId = state.userId(next++);
+        return userStorage.getUsersCommonFriends(userId, state.userId(next++));
+    }
+
+    @Benchmark
+    public boolean isFriend() {
+        return userStorage.isFriend(state.userId(next++), state.userId(next++));
+    }
+
+    @Benchmark
+    public List<Long> friendSuggestions() {
+        return friendSuggester.suggest(state.userId(next++), 10);
+    }
+
+    @Benchmark
+    public int feed() {
+        int[] events = {0};
+        eventStorage.streamFeedByUserId(state.userId(next++), event -> events[0]++);
+        return events[0];
+    }
+
+    @Benchmark
+    public List<Event> feedPage() {
+        return eventStorage.findFeedPage(state.userId(next++), null, Pagination.DEFAULT_PAGE_SIZE);
+    }
+}
@@ -1,32 +1,77 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.dto.event.EventDto;
 import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.utils.JsonArrayWriter;
+import ru.yandex.practicum.filmorate.utils.Pagination;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 @Slf4j
+@Validated
 public class FeedController {
 
     private final FeedService feedService;
+    private final JsonArrayWriter jsonArrayWriter;
 
-    @GetMapping("/{id}/feed")
-    public ResponseEntity<List<EventDto>> getUserFeed(
+    @GetMapping(value = "/{id}/feed", params = {"!before", "!limit"})
+    public ResponseEntity<StreamingResponseBody> getUserFeed(
             @PathVariable Long id) {
 
-        log.debug("Request received: GET /users/{}/feed", id);
+        log.debug("Request received: GET /users/{}/feed - streaming full feed", id);
+
+        Consumer<Consumer<EventDto>> feed = feedService.streamUserFeed(id);
+        StreamingResponseBody body = out -> jsonArrayWriter.write(out, feed);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping("/{id}/feed")
+    public ResponseEntity<List<EventDto>> getUserFeedPage(
+            @PathVariable Long id,
+            @RequestParam(required = false) @Positive Long before,
+            @RequestParam(required = false) @Positive @Max(Pagination.MAX_PAGE_SIZE) Integer limit) {
+
+        log.debug("Request received: GET /users/{}/feed - events before {} (limit={})", id, before, limit);
 
-        List<EventDto> feed = feedService.getUserFeed(id);
+        int pageSize = limit == null ? Pagination.DEFAULT_PAGE_SIZE : limit;
+        List<EventDto> feed = feedService.getUserFeedPage(id, before, pageSize);
+        String nextCursor = Pagination.nextCursor(feed, pageSize, EventDto::getEventId);
 
         log.info("Retrieved {} events for user {}", feed.size(), id);
-        return ResponseEntity.ok(feed);
+        return ResponseEntity.ok()
+                .headers(headers -> {
+                    if (nextCursor != null) {
+                        headers.set(Pagination.NEXT_CURSOR_HEADER, nextCursor);
+                    }
+                })
+                .body(feed);
     }
-}
 
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<EventDto>> getFriendsTimeline(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "50") @Positive @Max(Pagination.MAX_PAGE_SIZE) int limit) {
+
+        log.debug("Request received: GET /users/{}/timeline - latest {} events of friends", id, limit);
+
+        List<EventDto> timeline = feedService.getFriendsTimeline(id, limit);
+
+        log.info("Retrieved {} timeline events for user {}", timeline.size(), id);
+        return ResponseEntity.ok(timeline);
+    }
+}
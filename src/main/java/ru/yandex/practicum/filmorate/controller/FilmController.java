@@ -1,18 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.dto.film.CreateFilmDto;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dto.film.FilmLikeDto;
+import ru.yandex.practicum.filmorate.dto.film.SuggestionDto;
 import ru.yandex.practicum.filmorate.dto.film.UpdateFilmDto;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
+import ru.yandex.practicum.filmorate.utils.NdjsonWriter;
+import ru.yandex.practicum.filmorate.utils.Pagination;
 
 import java.util.List;
 
@@ -24,11 +37,37 @@ import java.util.List;
 public class FilmController {
 
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public List<FilmDto> handleFindAll() {
-        log.debug("Request received: GET /films - retrieving all films");
-        return filmService.findAllFilms();
+    public ResponseEntity<List<FilmDto>> handleFindAll(
+            @RequestParam(required = false) @PositiveOrZero Long after,
+            @RequestParam(required = false) @Positive @Max(Pagination.MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Request received: GET /films - retrieving all films");
+            return ResponseEntity.ok(filmService.findAllFilms());
+        }
+
+        log.debug("Request received: GET /films - retrieving films after {} (limit={})", after, limit);
+        int pageSize = limit == null ? Pagination.DEFAULT_PAGE_SIZE : limit;
+        List<FilmDto> films = filmService.findFilmsPage(after == null ? 0 : after, pageSize);
+        String nextCursor = Pagination.nextCursor(films, pageSize, FilmDto::getId);
+        return ResponseEntity.ok()
+                .headers(headers -> {
+                    if (nextCursor != null) {
+                        headers.set(Pagination.NEXT_CURSOR_HEADER, nextCursor);
+                    }
+                })
+                .body(films);
+    }
+
+    @GetMapping(params = "stream=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> handleStreamAll() {
+        log.debug("Request received: GET /films?stream=true - streaming all films");
+        StreamingResponseBody body = out -> filmService.streamAllFilms(ndjsonWriter.lines(out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @PostMapping
@@ -69,6 +108,17 @@ public class FilmController {
         log.info("Like added successfully. Film: {}, User: {}", filmId, userId);
     }
 
+    @PostMapping("/likes:batch")
+    @ResponseStatus(HttpStatus.OK)
+    public void handleAddFilmLikes(
+            @RequestBody @NotEmpty @Size(max = Pagination.MAX_BATCH_SIZE) List<@Valid FilmLikeDto> likes) {
+        log.debug("Request received: POST /films/likes:batch - adding {} likes", likes.size());
+
+        filmService.addFilmLikes(likes);
+
+        log.info("Batch of {} likes processed successfully", likes.size());
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     @ResponseStatus(HttpStatus.OK)
     public void handleRemoveFilmLike(@PathVariable(value = "id") long filmId, @PathVariable long userId) {
@@ -108,11 +158,41 @@ public class FilmController {
     }
 
     @GetMapping("/search")
-    public List<FilmDto> search(@RequestParam String query, @RequestParam String by) {
-        log.info("Received search request: query='{}', by='{}'", query, by);
+    public ResponseEntity<List<FilmDto>> search(
+            @RequestParam String query,
+            @RequestParam String by,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive @Max(Pagination.MAX_PAGE_SIZE) Integer limit) {
+        log.info("Received search request: query='{}', by='{}', fuzzy={}, cursor={}, limit={}",
+                query, by, fuzzy, cursor, limit);
         if (query == null || query.isBlank()) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(filmService.searchFilms(query, by, fuzzy));
+        }
+
+        int pageSize = limit == null ? Pagination.DEFAULT_PAGE_SIZE : limit;
+        LikesCursor after = cursor == null ? null : LikesCursor.parse(cursor);
+        Pagination.Page<FilmDto> page = filmService.searchFilmsPage(query, by, fuzzy, after, pageSize);
+        return ResponseEntity.ok()
+                .headers(headers -> {
+                    if (page.nextCursor() != null) {
+                        headers.set(Pagination.NEXT_CURSOR_HEADER, page.nextCursor());
+                    }
+                })
+                .body(page.items());
+    }
+
+    @GetMapping("/search/suggest")
+    public List<SuggestionDto> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(FilmSearchIndex.MAX_SUGGESTIONS) int limit) {
+        log.debug("Request received: GET /films/search/suggest?prefix={}&limit={}", prefix, limit);
+        if (prefix.isBlank()) {
             return List.of();
         }
-        return filmService.searchFilms(query, by);
+        return filmService.suggest(prefix, limit);
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.dto.user.CreateUserDto;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserDto;
 import ru.yandex.practicum.filmorate.dto.user.UserDto;
 import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.utils.NdjsonWriter;
+import ru.yandex.practicum.filmorate.utils.Pagination;
 
 import java.util.List;
 
@@ -22,18 +28,46 @@ import java.util.List;
 @Slf4j
 public class UserController {
 
+    private static final int MAX_SUGGESTIONS = 100;
+
     private final UserService userService;
     private final RecommendationService recommendationService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public ResponseEntity<List<UserDto>> handleFindAll() {
-        log.debug("Request received: GET /users - retrieving all users");
-
-        List<UserDto> users = userService.findAllUsers();
-
-        log.info("Retrieved {} users successfully", users.size());
+    public ResponseEntity<List<UserDto>> handleFindAll(
+            @RequestParam(required = false) @PositiveOrZero Long after,
+            @RequestParam(required = false) @Positive @Max(Pagination.MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Request received: GET /users - retrieving all users");
+
+            List<UserDto> users = userService.findAllUsers();
+
+            log.info("Retrieved {} users successfully", users.size());
+
+            return new ResponseEntity<>(users, HttpStatus.OK);
+        }
+
+        log.debug("Request received: GET /users - retrieving users after {} (limit={})", after, limit);
+        int pageSize = limit == null ? Pagination.DEFAULT_PAGE_SIZE : limit;
+        List<UserDto> users = userService.findUsersPage(after == null ? 0 : after, pageSize);
+        String nextCursor = Pagination.nextCursor(users, pageSize, UserDto::getId);
+        return ResponseEntity.ok()
+                .headers(headers -> {
+                    if (nextCursor != null) {
+                        headers.set(Pagination.NEXT_CURSOR_HEADER, nextCursor);
+                    }
+                })
+                .body(users);
+    }
 
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    @GetMapping(params = "stream=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> handleStreamAll() {
+        log.debug("Request received: GET /users?stream=true - streaming all users");
+        StreamingResponseBody body = out -> userService.streamAllUsers(ndjsonWriter.lines(out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @PostMapping
@@ -117,6 +151,18 @@ public class UserController {
         return ResponseEntity.ok(commonFriends);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public ResponseEntity<List<UserDto>> handleFriendSuggestions(
+            @PathVariable long id,
+            @RequestParam(defaultValue = "10") @Positive @Max(MAX_SUGGESTIONS) int limit) {
+        log.debug("Request received: GET /users/{}/friends/suggestions - up to {} suggestions", id, limit);
+
+        List<UserDto> suggestions = userService.getFriendSuggestions(id, limit);
+
+        log.info("Found {} friend suggestions for user ID: {}", suggestions.size(), id);
+        return ResponseEntity.ok(suggestions);
+    }
+
     @GetMapping("/{id}/recommendations")
     public ResponseEntity<List<FilmDto>> getFilmRecommendations(@PathVariable long id) {
         log.debug("Request received: GET /{}/recommendations/ - finding recommendation films for user ID", id);
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto.film;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class FilmLikeDto {
+    @NotNull
+    @Positive
+    private Long filmId;
+
+    @NotNull
+    @Positive
+    private Long userId;
+}
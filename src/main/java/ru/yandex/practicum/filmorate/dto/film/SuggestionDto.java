@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dto.film;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDto {
+
+    private Long id;
+
+    private String name;
+
+    private Type type;
+
+    public enum Type {
+        FILM,
+        DIRECTOR
+    }
+}
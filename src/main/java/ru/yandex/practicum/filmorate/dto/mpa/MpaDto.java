@@ -1,9 +1,9 @@
 package ru.yandex.practicum.filmorate.dto.mpa;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
-@Data
+@Value
 @Builder
 public class MpaDto {
     private Long id;
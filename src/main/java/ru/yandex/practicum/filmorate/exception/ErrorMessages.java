@@ -53,4 +53,8 @@ public final class ErrorMessages {
     public static String releaseDateInvalid(LocalDate minDate) {
         return String.format(RELEASE_DATE_INVALID, minDate);
     }
+
+    public static String invalidCursor(String cursor) {
+        return String.format("Cursor '%s' must look like <likes>:<id>", cursor);
+    }
 }
\ No newline at end of file
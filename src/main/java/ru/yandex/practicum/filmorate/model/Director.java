@@ -1,13 +1,13 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@Builder
+@Value
+@Builder(toBuilder = true)
 public class Director {
 
-    private Integer id;
+    Integer id;
 
-    private String name;
-}
\ No newline at end of file
+    String name;
+}
@@ -24,4 +24,5 @@ public class Film {
     private List<Genre> genres;
     private Set<Long> likedUsersFilms;
     private List<Director> directors;
+    private int likesCount;
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.Builder;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Value;
 
-@Data
+@Value
 @EqualsAndHashCode(of = { "id" })
-@Builder
+@Builder(toBuilder = true)
 public class Genre {
-    private Long id;
-    private String name;
+    Long id;
+    String name;
 }
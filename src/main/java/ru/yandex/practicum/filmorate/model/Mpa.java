@@ -1,14 +1,14 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.Builder;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Value;
 
-@Data
-@Builder
+@Value
+@Builder(toBuilder = true)
 @EqualsAndHashCode(of = {"id"})
 public class Mpa {
-    private Long id;
-    private String name;
-    private String description;
+    Long id;
+    String name;
+    String description;
 }
\ No newline at end of file
@@ -1,6 +1,16 @@
 package ru.yandex.practicum.filmorate.model;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Vote for a review; the weight is its contribution to the review's useful rating.
+ */
+@Getter
+@AllArgsConstructor
 public enum VoteType {
-    LIKE,
-    DISLIKE
+    LIKE(1),
+    DISLIKE(-1);
+
+    private final int weight;
 }
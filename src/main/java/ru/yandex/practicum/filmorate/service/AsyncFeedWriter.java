@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best-effort write-behind for feed events.
+ * <p>
+ * Events are queued once the caller's transaction commits, and a dedicated thread writes
+ * them in JDBC batches, one new transaction per batch. When the queue stays full for the
+ * enqueue timeout, the caller writes the rest of its events itself without waiting again,
+ * so a slow database slows callers down instead of losing events. On shutdown the queue is
+ * drained before the context closes.
+ * Events still queued when the process dies are lost, and the feed may lag behind the
+ * operations it describes by up to one batch.
+ */
+@Component
+@ConditionalOnProperty(name = FeedWriter.PROPERTY, havingValue = "async")
+@Slf4j
+public class AsyncFeedWriter implements FeedWriter {
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final EventStorage eventStorage;
+    private final FeedPublisher feedPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Event> queue;
+    private final int batchSize;
+    private final long enqueueTimeoutNanos;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public AsyncFeedWriter(EventStorage eventStorage,
+                           FeedPublisher feedPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${filmorate.feed.queue-capacity}") int queueCapacity,
+                           @Value("${filmorate.feed.batch-size}") int batchSize,
+                           @Value("${filmorate.feed.enqueue-timeout}") Duration enqueueTimeout) {
+        this.eventStorage = eventStorage;
+        this.feedPublisher = feedPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Вызывающий поток пишет из afterCommit уже завершённой транзакции: к ней присоединяться нельзя
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "feed-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(List<Event> events) {
+        TransactionCallbacks.afterCommit(() -> enqueue(events));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(SHUTDOWN_TIMEOUT_MS);
+        // Если поток не успел, дописываем остаток сами
+        List<Event> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Feed writer stopped");
+    }
+
+    private void enqueue(List<Event> events) {
+        int queued = 0;
+        // После первого таймаута очередь ждать больше не будем: остаток пишем сами
+        while (queued < events.size() && running && offer(events.get(queued))) {
+            queued++;
+        }
+        if (queued < events.size()) {
+            List<Event> rejected = events.subList(queued, events.size());
+            log.debug("Feed queue is full, writing {} events synchronously", rejected.size());
+            flush(rejected);
+        }
+    }
+
+    private boolean offer(Event event) {
+        try {
+            return queue.offer(event, enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Event> batch) {
+        try {
+            save(batch);
+        } catch (DataAccessException e) {
+            // Одно плохое событие (например, пользователь уже удалён) не должно терять всю пачку
+            log.warn("Feed batch of {} events failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Event event : batch) {
+                try {
+                    save(List.of(event));
+                } catch (DataAccessException single) {
+                    log.warn("Dropping feed event {}: {}", event, single.getMessage());
+                }
+            }
+        }
+    }
+
+    private void save(List<Event> events) {
+        // Публикуем внутри своей транзакции, чтобы слушатели получили события после её коммита
+        transactionTemplate.executeWithoutResult(status -> {
+            eventStorage.saveAll(events);
+            feedPublisher.publish(List.copyOf(events));
+        });
+    }
+}
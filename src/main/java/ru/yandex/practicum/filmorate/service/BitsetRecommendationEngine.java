@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeListener;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.collection.CompressedBitmap;
+import ru.yandex.practicum.filmorate.utils.collection.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Recommendation engine that keeps every user's likes as a {@link CompressedBitmap} over
+ * dense film indexes and compares the user with all others by intersection cardinality,
+ * splitting the scan across the common fork-join pool.
+ * <p>
+ * Gives the same answers as {@link RecommendationModel} and the SQL fallback: films liked
+ * by the users with the largest like overlap that the user has not liked yet.
+ */
+@Component
+@ConditionalOnProperty(name = RecommendationEngine.PROPERTY, havingValue = "bitset")
+@Slf4j
+public class BitsetRecommendationEngine implements RecommendationEngine, FilmLikeListener {
+
+    private static final int SEQUENTIAL_THRESHOLD = 2048;
+    private static final int NO_INDEX = -1;
+
+    private final FilmStorage filmStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap filmIndexes = new LongIntHashMap();
+    private long[] filmIds = new long[16];
+    private int filmCount;
+
+    private final LongIntHashMap userSlots = new LongIntHashMap();
+    private long[] userIds = new long[16];
+    private CompressedBitmap[] bitmaps = new CompressedBitmap[16];
+    private int userCount;
+
+    private volatile boolean ready;
+
+    @Autowired
+    public BitsetRecommendationEngine(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            Map<Long, List<Long>> likedFilmIds = filmStorage.findAllUsersLikedFilmIds();
+            filmIndexes.clear();
+            filmCount = 0;
+            userSlots.clear();
+            Arrays.fill(bitmaps, null);
+            userCount = 0;
+            likedFilmIds.forEach((userId, filmIdsOfUser) -> {
+                CompressedBitmap bitmap = bitmapOf(userId);
+                filmIdsOfUser.forEach(filmId -> bitmap.add(filmIndexOf(filmId)));
+            });
+            ready = true;
+            log.info("Bitset recommendation engine loaded: {} users, {} films", userCount, filmCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<List<Long>> findRecommendedFilmIds(long userId) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            int slot = userSlots.get(userId, NO_INDEX);
+            if (slot == NO_INDEX || bitmaps[slot].isEmpty()) {
+                return Optional.of(List.of());
+            }
+
+            CompressedBitmap liked = bitmaps[slot];
+            Overlap overlap = ForkJoinPool.commonPool().invoke(new OverlapTask(liked, slot, 0, userCount));
+            if (overlap.max == 0) {
+                return Optional.of(List.of());
+            }
+
+            LongIntHashMap candidates = new LongIntHashMap();
+            for (int i = 0; i < overlap.size; i++) {
+                bitmaps[overlap.slots[i]].forEach(filmIndex -> {
+                    if (!liked.contains(filmIndex)) {
+                        candidates.put(filmIds[filmIndex], 1);
+                    }
+                });
+            }
+            return Optional.of(Arrays.stream(candidates.keys()).sorted().boxed().toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        lock.writeLock().lock();
+        try {
+            bitmapOf(userId).add(filmIndexOf(filmId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        lock.writeLock().lock();
+        try {
+            int slot = userSlots.get(userId, NO_INDEX);
+            int filmIndex = filmIndexes.get(filmId, NO_INDEX);
+            if (slot != NO_INDEX && filmIndex != NO_INDEX) {
+                bitmaps[slot].remove(filmIndex);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        lock.writeLock().lock();
+        try {
+            // The dense index stays reserved: ids are never reused, so it simply stays unset
+            int filmIndex = filmIndexes.get(filmId, NO_INDEX);
+            if (filmIndex != NO_INDEX) {
+                for (int i = 0; i < userCount; i++) {
+                    bitmaps[i].remove(filmIndex);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onUserDeleted(long userId) {
+        lock.writeLock().lock();
+        try {
+            int slot = userSlots.get(userId, NO_INDEX);
+            if (slot == NO_INDEX) {
+                return;
+            }
+            int last = --userCount;
+            userSlots.remove(userId);
+            if (slot != last) {
+                userIds[slot] = userIds[last];
+                bitmaps[slot] = bitmaps[last];
+                userSlots.put(userIds[slot], slot);
+            }
+            bitmaps[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private CompressedBitmap bitmapOf(long userId) {
+        int slot = userSlots.get(userId, NO_INDEX);
+        if (slot != NO_INDEX) {
+            return bitmaps[slot];
+        }
+        if (userCount == userIds.length) {
+            userIds = Arrays.copyOf(userIds, userCount * 2);
+            bitmaps = Arrays.copyOf(bitmaps, userCount * 2);
+        }
+        slot = userCount++;
+        userIds[slot] = userId;
+        bitmaps[slot] = new CompressedBitmap();
+        userSlots.put(userId, slot);
+        return bitmaps[slot];
+    }
+
+    private int filmIndexOf(long filmId) {
+        int index = filmIndexes.get(filmId, NO_INDEX);
+        if (index != NO_INDEX) {
+            return index;
+        }
+        if (filmCount == filmIds.length) {
+            filmIds = Arrays.copyOf(filmIds, filmCount * 2);
+        }
+        index = filmCount++;
+        filmIds[index] = filmId;
+        filmIndexes.put(filmId, index);
+        return index;
+    }
+
+    /**
+     * Users with the largest overlap found in a range of slots.
+     */
+    private static final class Overlap {
+        private int max;
+        private int[] slots = new int[4];
+        private int size;
+
+        private void offer(int slot, int common) {
+            if (common < max || common == 0) {
+                return;
+            }
+            if (common > max) {
+                max = common;
+                size = 0;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        private Overlap merge(Overlap other) {
+            if (other.max > max) {
+                return other;
+            }
+            for (int i = 0; other.max == max && i < other.size; i++) {
+                offer(other.slots[i], other.max);
+            }
+            return this;
+        }
+    }
+
+    private final class OverlapTask extends RecursiveTask<Overlap> {
+        private final CompressedBitmap liked;
+        private final int excludedSlot;
+        private final int from;
+        private final int to;
+
+        private OverlapTask(CompressedBitmap liked, int excludedSlot, int from, int to) {
+            this.liked = liked;
+            this.excludedSlot = excludedSlot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Overlap compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                Overlap overlap = new Overlap();
+                for (int slot = from; slot < to; slot++) {
+                    if (slot != excludedSlot) {
+                        overlap.offer(slot, liked.andCardinality(bitmaps[slot]));
+                    }
+                }
+                return overlap;
+            }
+            int middle = (from + to) >>> 1;
+            OverlapTask left = new OverlapTask(liked, excludedSlot, from, middle);
+            left.fork();
+            Overlap right = new OverlapTask(liked, excludedSlot, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
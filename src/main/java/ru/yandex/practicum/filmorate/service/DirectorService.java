@@ -8,7 +8,9 @@ import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.DirectorMapper;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
 
 import java.util.List;
 
@@ -18,29 +20,39 @@ import java.util.List;
 public class DirectorService {
 
     private final DirectorStorage directorStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final ReferenceDataCache referenceData;
 
     public List<Director> findAll() {
-        return directorStorage.findAll();
+        return referenceData.findAllDirectors();
     }
 
     public Director findById(Integer id) {
-        return directorStorage.findById(id)
+        return referenceData.findDirectorById(id)
                 .orElseThrow(() -> new NotFoundException(ErrorMessages.directorNotFound(id)));
     }
 
     public Director create(DirectorDto directorDto) {
         Director director = DirectorMapper.toEntity(directorDto);
 
-        return directorStorage.create(director);
+        Director savedDirector = directorStorage.create(director);
+        referenceData.putDirector(savedDirector);
+        TransactionCallbacks.afterCommit(() -> filmSearchIndex.putDirector(savedDirector));
+        return savedDirector;
     }
 
     public Director update(DirectorDto directorDto) {
         Director director = DirectorMapper.toEntity(directorDto);
 
-        return directorStorage.update(director);
+        Director savedDirector = directorStorage.update(director);
+        referenceData.putDirector(savedDirector);
+        TransactionCallbacks.afterCommit(() -> filmSearchIndex.putDirector(savedDirector));
+        return savedDirector;
     }
 
     public void delete(Integer id) {
         directorStorage.delete(id);
+        referenceData.removeDirector(id);
+        TransactionCallbacks.afterCommit(() -> filmSearchIndex.removeDirector(id));
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+/**
+ * Receives feed events once they are stored and committed, with their ids set.
+ */
+public interface FeedListener {
+
+    void onEvents(List<Event> events);
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+
+import java.util.List;
+
+/**
+ * Delivers stored feed events to every {@link FeedListener}: after commit when called inside
+ * a transaction, immediately otherwise.
+ */
+@Component
+@RequiredArgsConstructor
+public class FeedPublisher {
+
+    private final ObjectProvider<FeedListener> listeners;
+
+    public void publish(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> listeners.orderedStream().forEach(listener -> listener.onEvents(events)));
+    }
+}
@@ -7,33 +7,62 @@ import ru.yandex.practicum.filmorate.dto.event.EventDto;
 import ru.yandex.practicum.filmorate.mapper.EventMapper;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.storage.event.EventStorage;
 import ru.yandex.practicum.filmorate.utils.ValidationEntityUtils;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class FeedService {
 
     private final EventStorage eventStorage;
+    private final FeedWriter feedWriter;
+    private final FriendsTimeline friendsTimeline;
     private final ValidationEntityUtils validationEntityUtils;
 
     @Autowired
     public FeedService(EventStorage eventStorage,
+                       FeedWriter feedWriter,
+                       FriendsTimeline friendsTimeline,
                        ValidationEntityUtils validationEntityUtils) {
         this.eventStorage = eventStorage;
+        this.feedWriter = feedWriter;
+        this.friendsTimeline = friendsTimeline;
         this.validationEntityUtils = validationEntityUtils;
     }
 
-    public List<EventDto> getUserFeed(Long userId) {
+    /**
+     * Checks the user right away and returns the full feed, oldest event first, as a source
+     * that streams events from the database to the consumer it is given.
+     */
+    public Consumer<Consumer<EventDto>> streamUserFeed(Long userId) {
         validationEntityUtils.validateUserExists(userId);
 
-        log.debug("Getting feed for user {}", userId);
-        List<Event> events = eventStorage.findFeedByUserId(userId);
+        return consumer -> {
+            log.debug("Streaming feed for user {}", userId);
+            eventStorage.streamFeedByUserId(userId, event -> consumer.accept(EventMapper.toDto(event)));
+        };
+    }
+
+    public List<EventDto> getUserFeedPage(Long userId, Long beforeEventId, int limit) {
+        validationEntityUtils.validateUserExists(userId);
+
+        log.debug("Getting feed page for user {} before event {} (limit={})", userId, beforeEventId, limit);
+        return eventStorage.findFeedPage(userId, beforeEventId, limit).stream()
+                .map(EventMapper::toDto)
+                .toList();
+    }
+
+    public List<EventDto> getFriendsTimeline(Long userId, int limit) {
+        validationEntityUtils.validateUserExists(userId);
 
-        return events.stream()
+        log.debug("Getting friends timeline for user {} (limit={})", userId, limit);
+        return friendsTimeline.getTimeline(userId, limit).stream()
                 .map(EventMapper::toDto)
                 .toList();
     }
@@ -48,9 +77,27 @@ public class FeedService {
                 .operation(op)
                 .entityId(entityId)
                 .build();
-        eventStorage.save(event);
+        feedWriter.write(List.of(event));
         log.debug("Event logged: userId={}, type={}, op={}, entityId={}", userId, type, op, entityId);
     }
+
+    /**
+     * Logs like events for users that were already validated by the caller.
+     */
+    public void saveLikeEvents(Collection<FilmLike> likes, Operation op) {
+        long timestamp = System.currentTimeMillis();
+        List<Event> events = likes.stream()
+                .map(like -> Event.builder()
+                        .timestamp(timestamp)
+                        .userId(like.getUserId())
+                        .eventType(EventType.LIKE)
+                        .operation(op)
+                        .entityId(like.getFilmId())
+                        .build())
+                .toList();
+        feedWriter.write(events);
+        log.debug("Logged {} like events, op={}", events.size(), op);
+    }
 }
 
 
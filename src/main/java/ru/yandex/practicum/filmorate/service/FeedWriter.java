@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+/**
+ * Writes feed events, selected by the {@code filmorate.feed.delivery} property:
+ * {@code transactional} (default) inserts them in the caller's transaction, {@code async}
+ * hands them to a background writer once the caller has committed.
+ */
+public interface FeedWriter {
+
+    String PROPERTY = "filmorate.feed.delivery";
+
+    void write(List<Event> events);
+}
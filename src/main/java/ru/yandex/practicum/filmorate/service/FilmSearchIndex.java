@@ -0,0 +1,538 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.film.SuggestionDto;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.EditDistance;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.utils.collection.LongIntHashMap;
+import ru.yandex.practicum.filmorate.utils.collection.LongObjectHashMap;
+import ru.yandex.practicum.filmorate.utils.collection.PostingList;
+import ru.yandex.practicum.filmorate.utils.collection.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory n-gram index over film titles and director names used to answer GET /films/search.
+ * <p>
+ * Every lower-cased title and director name is split into all of its 1-, 2- and 3-grams, and
+ * each gram points to a sorted posting list of film or director ids. A query of up to three
+ * characters is answered by a single posting list; a longer one intersects the lists of its
+ * trigrams and checks the survivors with {@link String#contains}, which keeps the semantics of
+ * the SQL fallback ({@code LIKE '%query%'}). Matches are ranked by a cached like count, ties
+ * broken by film id.
+ * <p>
+ * Fuzzy search tolerates one typo in queries of 6+ characters and two in queries of 9+. An
+ * edit breaks at most three trigrams of the query, so only texts sharing enough trigrams
+ * with it are candidates; they are then verified with {@link EditDistance#containsWithin}.
+ * The bounds keep that threshold positive, so fuzzy search never scans every title.
+ * <p>
+ * Autocomplete for GET /films/search/suggest is served by an immutable {@link PrefixTrie} over
+ * every word suffix of the titles and director names, keeping the {@value #MAX_SUGGESTIONS}
+ * most liked entries per node. Changes mark it stale and it is rebuilt in the background,
+ * so suggestions may lag behind by one rebuild interval.
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final int MAX_GRAM = 3;
+    private static final int ONE_EDIT_MIN_LENGTH = 6;
+    private static final int TWO_EDITS_MIN_LENGTH = 9;
+    private static final Comparator<Candidate> SUGGESTION_RANKING = Comparator
+            .comparingLong((Candidate candidate) -> -candidate.likes)
+            .thenComparing(Candidate::text)
+            .thenComparing(candidate -> candidate.suggestion.getType())
+            .thenComparingLong(candidate -> candidate.suggestion.getId());
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> titleGrams = new HashMap<>();
+    private final Map<String, PostingList> directorGrams = new HashMap<>();
+    private final LongObjectHashMap<FilmEntry> films = new LongObjectHashMap<>();
+    private final LongObjectHashMap<DirectorEntry> directors = new LongObjectHashMap<>();
+    private final Comparator<Long> ranking = Comparator.<Long>comparingInt(id -> -films.get(id).likes)
+            .thenComparingLong(id -> id);
+    private volatile boolean ready;
+
+    private volatile Suggestions suggestions = new Suggestions(
+            PrefixTrie.build(new String[0], new int[0], MAX_SUGGESTIONS), List.of());
+    private volatile boolean suggestionsStale;
+
+    @Autowired
+    public FilmSearchIndex(FilmStorage filmStorage,
+                           DirectorStorage directorStorage) {
+        this.filmStorage = filmStorage;
+        this.directorStorage = directorStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            List<Director> allDirectors = directorStorage.findAll();
+            List<Film> allFilms = filmStorage.findAll();
+            titleGrams.clear();
+            directorGrams.clear();
+            films.clear();
+            directors.clear();
+            allDirectors.forEach(this::putDirector);
+            allFilms.forEach(film -> putFilm(film, film.getLikesCount()));
+            ready = true;
+            log.info("Film search index loaded: {} films, {} directors, {} grams",
+                    films.size(), directors.size(), titleGrams.size() + directorGrams.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuildSuggestions();
+    }
+
+    /**
+     * Returns ids of the films whose title or director name contains the query, most liked
+     * first, or an empty optional when the index is not loaded yet. With {@code fuzzy} the
+     * query may also be a few typos away from the text.
+     */
+    public Optional<List<Long>> search(String query, boolean byTitle, boolean byDirector, boolean fuzzy) {
+        return search(query, byTitle, byDirector, fuzzy, null, Integer.MAX_VALUE)
+                .map(page -> page.stream().map(LikesCursor::filmId).toList());
+    }
+
+    /**
+     * Same as {@link #search(String, boolean, boolean, boolean)}, limited to the {@code limit}
+     * best films ranked after the cursor. Only those are ordered: the rest of the matches
+     * pass through a bounded heap. Every film comes with the like count it was ranked by,
+     * so the cursor of the next page follows the index even if the database count differs.
+     */
+    public Optional<List<LikesCursor>> search(String query, boolean byTitle, boolean byDirector, boolean fuzzy,
+                                              LikesCursor after, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        String needle = normalize(query);
+        int maxEdits = fuzzy ? maxEdits(needle) : 0;
+        lock.readLock().lock();
+        try {
+            LongIntHashMap matches = new LongIntHashMap();
+            if (byTitle) {
+                forEachMatch(titleGrams, films, needle, maxEdits, film -> matches.put(film.id, 1));
+            }
+            if (byDirector) {
+                forEachMatch(directorGrams, directors, needle, maxEdits,
+                        director -> director.films.forEach(filmId -> matches.put(filmId, 1)));
+            }
+            return Optional.of(select(matches.keys(), after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} films and directors having a word that starts with the
+     * prefix, most liked first.
+     */
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        Suggestions current = suggestions;
+        return Arrays.stream(current.trie.top(normalize(prefix)))
+                .limit(limit)
+                .mapToObj(current.entries::get)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.search.suggestions.rebuild-interval}")
+    public void rebuildSuggestions() {
+        if (!suggestionsStale) {
+            return;
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            // Изменения во время перестройки снова пометят подсказки устаревшими
+            suggestionsStale = false;
+            films.forEachValue(film -> candidates.add(
+                    new Candidate(film.text, film.likes, suggestion(film, SuggestionDto.Type.FILM))));
+            directors.forEachValue(director -> {
+                long likes = 0;
+                for (int i = 0; i < director.films.size(); i++) {
+                    likes += films.get(director.films.get(i)).likes;
+                }
+                candidates.add(new Candidate(director.text, likes,
+                        suggestion(director, SuggestionDto.Type.DIRECTOR)));
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        candidates.removeIf(candidate -> candidate.text.isEmpty());
+        candidates.sort(SUGGESTION_RANKING);
+        List<String> keys = new ArrayList<>();
+        List<Integer> ranks = new ArrayList<>();
+        for (int rank = 0; rank < candidates.size(); rank++) {
+            String text = candidates.get(rank).text;
+            for (int i = 0; i < text.length(); i++) {
+                if (isWordStart(text, i)) {
+                    keys.add(text.substring(i));
+                    ranks.add(rank);
+                }
+            }
+        }
+        PrefixTrie trie = PrefixTrie.build(keys.toArray(String[]::new),
+                ranks.stream().mapToInt(Integer::intValue).toArray(), MAX_SUGGESTIONS);
+        suggestions = new Suggestions(trie, candidates.stream().map(Candidate::suggestion).toList());
+        log.debug("Search suggestions rebuilt: {} entries, {} keys", candidates.size(), keys.size());
+    }
+
+    public void addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            if (!films.containsKey(film.getId())) {
+                putFilm(film, film.getLikesCount());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry previous = films.get(film.getId());
+            int likes = previous == null ? film.getLikesCount() : previous.likes;
+            if (previous != null) {
+                dropFilm(previous);
+            }
+            putFilm(film, likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry entry = films.get(filmId);
+            if (entry != null) {
+                dropFilm(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void incrementLikes(long filmId) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry entry = films.get(filmId);
+            if (entry != null) {
+                entry.likes++;
+                suggestionsStale = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void decrementLikes(long filmId) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry entry = films.get(filmId);
+            if (entry != null && entry.likes > 0) {
+                entry.likes--;
+                suggestionsStale = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes back the likes of a user that is about to be deleted once the deletion commits,
+     * see {@link PopularityLeaderboard#removeLikesOfUser(long)}.
+     */
+    public void removeLikesOfUser(long userId) {
+        List<Long> filmIds = filmStorage.findUserLikedFilmIds(userId);
+        TransactionCallbacks.afterCommit(() -> filmIds.forEach(this::decrementLikes));
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            DirectorEntry entry = directorOf(director.getId());
+            unindex(directorGrams, entry);
+            entry.name = director.getName();
+            entry.text = normalize(director.getName());
+            index(directorGrams, entry);
+            suggestionsStale = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(long directorId) {
+        lock.writeLock().lock();
+        try {
+            DirectorEntry entry = directors.remove(directorId);
+            if (entry == null) {
+                return;
+            }
+            unindex(directorGrams, entry);
+            suggestionsStale = true;
+            // Связи фильмов с режиссёром удаляются в базе каскадно
+            entry.films.forEach(filmId -> {
+                FilmEntry film = films.get(filmId);
+                film.directorIds = Arrays.stream(film.directorIds)
+                        .filter(id -> id != directorId)
+                        .toArray();
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<LikesCursor> select(long[] ids, LikesCursor after, int limit) {
+        PriorityQueue<Long> worstFirst = new PriorityQueue<>(Math.min(ids.length, limit) + 1, ranking.reversed());
+        for (long id : ids) {
+            if (after != null && !after.precedes(films.get(id).likes, id)) {
+                continue;
+            }
+            if (worstFirst.size() < limit) {
+                worstFirst.add(id);
+            } else if (ranking.compare(id, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(id);
+            }
+        }
+        List<Long> ranked = new ArrayList<>(worstFirst);
+        ranked.sort(ranking);
+        return ranked.stream()
+                .map(id -> new LikesCursor(films.get(id).likes, id))
+                .toList();
+    }
+
+    private void putFilm(Film film, int likes) {
+        long[] directorIds = film.getDirectors() == null ? new long[0] : film.getDirectors().stream()
+                .mapToLong(Director::getId)
+                .distinct()
+                .toArray();
+        FilmEntry entry = new FilmEntry(film.getId(), film.getName(), likes, directorIds);
+        films.put(entry.id, entry);
+        index(titleGrams, entry);
+        for (long directorId : directorIds) {
+            directorOf(directorId).films.add(entry.id);
+        }
+        suggestionsStale = true;
+    }
+
+    private void dropFilm(FilmEntry entry) {
+        films.remove(entry.id);
+        unindex(titleGrams, entry);
+        for (long directorId : entry.directorIds) {
+            DirectorEntry director = directors.get(directorId);
+            if (director != null) {
+                director.films.remove(entry.id);
+            }
+        }
+        suggestionsStale = true;
+    }
+
+    // Фильм может сослаться на режиссёра раньше, чем тот попадёт в индекс: имя появится позже
+    private DirectorEntry directorOf(long directorId) {
+        DirectorEntry entry = directors.get(directorId);
+        if (entry == null) {
+            entry = new DirectorEntry(directorId);
+            directors.put(directorId, entry);
+        }
+        return entry;
+    }
+
+    private static <D extends Document> void forEachMatch(Map<String, PostingList> grams,
+                                                          LongObjectHashMap<D> documents,
+                                                          String needle,
+                                                          int maxEdits,
+                                                          Consumer<D> action) {
+        if (maxEdits > 0) {
+            forEachFuzzyMatch(grams, documents, needle, maxEdits, action);
+            return;
+        }
+        if (needle.isEmpty()) {
+            documents.forEachValue(action);
+            return;
+        }
+        if (needle.length() <= MAX_GRAM) {
+            PostingList postings = grams.get(needle);
+            if (postings != null) {
+                postings.forEach(id -> action.accept(documents.get(id)));
+            }
+            return;
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : grams(needle, MAX_GRAM)) {
+            PostingList postings = grams.get(gram);
+            if (postings == null) {
+                return;
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList shortest = lists.getFirst();
+        for (int i = 0; i < shortest.size(); i++) {
+            long id = shortest.get(i);
+            if (containsInAll(lists, id)) {
+                D document = documents.get(id);
+                // Все триграммы совпали, но не обязательно подряд
+                if (document.text.contains(needle)) {
+                    action.accept(document);
+                }
+            }
+        }
+    }
+
+    private static <D extends Document> void forEachFuzzyMatch(Map<String, PostingList> grams,
+                                                               LongObjectHashMap<D> documents,
+                                                               String needle,
+                                                               int maxEdits,
+                                                               Consumer<D> action) {
+        // Считаем позиции триграмм запроса, а не различные триграммы: так требует оценка
+        int positions = needle.length() - MAX_GRAM + 1;
+        int threshold = positions - MAX_GRAM * maxEdits;
+        LongIntHashMap shared = new LongIntHashMap();
+        for (int i = 0; i < positions; i++) {
+            PostingList postings = grams.get(needle.substring(i, i + MAX_GRAM));
+            if (postings != null) {
+                postings.forEach(id -> shared.addTo(id, 1));
+            }
+        }
+        shared.forEach((id, count) -> {
+            D document = documents.get(id);
+            if (count >= threshold && EditDistance.containsWithin(document.text, needle, maxEdits)) {
+                action.accept(document);
+            }
+        });
+    }
+
+    private static int maxEdits(String needle) {
+        if (needle.length() >= TWO_EDITS_MIN_LENGTH) {
+            return 2;
+        }
+        return needle.length() >= ONE_EDIT_MIN_LENGTH ? 1 : 0;
+    }
+
+    private static boolean containsInAll(List<PostingList> lists, long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void index(Map<String, PostingList> grams, Document document) {
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (String gram : grams(document.text, length)) {
+                grams.computeIfAbsent(gram, key -> new PostingList()).add(document.id);
+            }
+        }
+    }
+
+    private static void unindex(Map<String, PostingList> grams, Document document) {
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (String gram : grams(document.text, length)) {
+                PostingList postings = grams.get(gram);
+                if (postings != null && postings.remove(document.id) && postings.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text, int length) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + length <= text.length(); i++) {
+            grams.add(text.substring(i, i + length));
+        }
+        return grams;
+    }
+
+    private static boolean isWordStart(String text, int index) {
+        return Character.isLetterOrDigit(text.charAt(index))
+                && (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1)));
+    }
+
+    private static SuggestionDto suggestion(Document document, SuggestionDto.Type type) {
+        return SuggestionDto.builder()
+                .id(document.id)
+                .name(document.name)
+                .type(type)
+                .build();
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private abstract static class Document {
+        final long id;
+        String name;
+        String text;
+
+        private Document(long id, String name) {
+            this.id = id;
+            this.name = name;
+            this.text = normalize(name);
+        }
+    }
+
+    private static final class FilmEntry extends Document {
+        private int likes;
+        private long[] directorIds;
+
+        private FilmEntry(long id, String title, int likes, long[] directorIds) {
+            super(id, title);
+            this.likes = likes;
+            this.directorIds = directorIds;
+        }
+    }
+
+    private static final class DirectorEntry extends Document {
+        private final PostingList films = new PostingList();
+
+        private DirectorEntry(long id) {
+            super(id, null);
+        }
+    }
+
+    private record Candidate(String text, long likes, SuggestionDto suggestion) {
+    }
+
+    private record Suggestions(PrefixTrie trie, List<SuggestionDto> entries) {
+    }
+}
@@ -2,22 +2,29 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dto.film.CreateFilmDto;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dto.film.FilmLikeDto;
+import ru.yandex.practicum.filmorate.dto.film.SuggestionDto;
 import ru.yandex.practicum.filmorate.dto.film.UpdateFilmDto;
 import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
+import ru.yandex.practicum.filmorate.utils.Pagination;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
 import ru.yandex.practicum.filmorate.utils.ValidationEntityUtils;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -26,14 +33,20 @@ public class FilmService {
     private final FilmStorage filmStorage;
     private final FeedService feedService;
     private final ValidationEntityUtils validationEntityUtils;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FilmSearchIndex filmSearchIndex;
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+    public FilmService(FilmStorage filmStorage,
                        ValidationEntityUtils validationEntityUtils,
-                       FeedService feedService) {
+                       FeedService feedService,
+                       PopularityLeaderboard popularityLeaderboard,
+                       FilmSearchIndex filmSearchIndex) {
         this.filmStorage = filmStorage;
         this.validationEntityUtils = validationEntityUtils;
         this.feedService = feedService;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.filmSearchIndex = filmSearchIndex;
     }
 
     public List<FilmDto> findAllFilms() {
@@ -44,6 +57,18 @@ public class FilmService {
                 .toList();
     }
 
+    public List<FilmDto> findFilmsPage(long afterId, int limit) {
+        log.debug("Retrieving films page after id {} (limit={})", afterId, limit);
+        return filmStorage.findPage(afterId, limit).stream()
+                .map(FilmMapper::toDto)
+                .toList();
+    }
+
+    public void streamAllFilms(Consumer<FilmDto> consumer) {
+        log.debug("Streaming all films from storage");
+        filmStorage.streamAll(film -> consumer.accept(FilmMapper.toDto(film)));
+    }
+
     @Transactional
     public FilmDto createFilm(CreateFilmDto createFilmDto) {
         log.debug("Starting add film: {}", createFilmDto);
@@ -54,8 +79,13 @@ public class FilmService {
         Film film = FilmMapper.toEntity(createFilmDto);
         validationEntityUtils.validateMinFilmDate(film);
 
-        film = filmStorage.save(film);
-        return FilmMapper.toDto(film);
+        Film savedFilm = filmStorage.save(film);
+        // Рейтинг и поиск в памяти меняем только после коммита, иначе откат оставит в них фантомы
+        TransactionCallbacks.afterCommit(() -> {
+            popularityLeaderboard.addFilm(savedFilm);
+            filmSearchIndex.addFilm(savedFilm);
+        });
+        return FilmMapper.toDto(savedFilm);
     }
 
     @Transactional
@@ -69,9 +99,13 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException(ErrorMessages.filmNotFound(updateFilmDto.getId())));
 
         validationEntityUtils.validateMinFilmDate(updatedFilm);
-        updatedFilm = filmStorage.update(updatedFilm);
+        Film savedFilm = filmStorage.update(updatedFilm);
+        TransactionCallbacks.afterCommit(() -> {
+            popularityLeaderboard.updateFilm(savedFilm);
+            filmSearchIndex.updateFilm(savedFilm);
+        });
 
-        return FilmMapper.toDto(updatedFilm);
+        return FilmMapper.toDto(savedFilm);
     }
 
     public FilmDto getFilm(Long id) {
@@ -87,6 +121,10 @@ public class FilmService {
         log.debug("Deleting film with ID: {}", filmId);
         validationEntityUtils.validateFilmExists(filmId);
         filmStorage.delete(filmId);
+        TransactionCallbacks.afterCommit(() -> {
+            popularityLeaderboard.removeFilm(filmId);
+            filmSearchIndex.removeFilm(filmId);
+        });
         log.info("Film {} deleted successfully", filmId);
     }
 
@@ -103,12 +141,15 @@ public class FilmService {
 
     public List<FilmDto> getPopularFilms(Integer count, Integer genreId, Integer year) {
         log.debug("Getting top {} popular films", count);
-        List<Film> popularFilms = filmStorage.getPopularFilms(count, genreId, year);
+        List<Film> popularFilms = popularityLeaderboard.findTopFilmIds(count, genreId, year)
+                .map(this::findFilmsInOrder)
+                .orElseGet(() -> filmStorage.getPopularFilms(count, genreId, year));
         return popularFilms.stream()
                 .map(FilmMapper::toDto)
                 .toList();
     }
 
+    @Transactional
     public void addFilmLike(Long filmId, Long userId) {
         validationEntityUtils.validateFilmExists(filmId);
         validationEntityUtils.validateUserExists(userId);
@@ -116,12 +157,40 @@ public class FilmService {
         log.debug("Adding like. Film: {}, User: {}", filmId, userId);
         if (!filmStorage.isLikeExists(filmId, userId)) {
             filmStorage.addLike(filmId, userId);
+            TransactionCallbacks.afterCommit(() -> {
+                popularityLeaderboard.refreshLikes(filmId);
+                filmSearchIndex.incrementLikes(filmId);
+            });
         } else {
             log.warn("User {} already liked film {}", userId, filmId);
         }
         feedService.saveEvent(userId, EventType.LIKE, Operation.ADD, filmId);
     }
 
+    @Transactional
+    public void addFilmLikes(List<FilmLikeDto> likeDtos) {
+        Set<FilmLike> likes = likeDtos.stream()
+                .map(dto -> FilmLike.builder()
+                        .filmId(dto.getFilmId())
+                        .userId(dto.getUserId())
+                        .build())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        validationEntityUtils.validateFilmsExist(likes.stream().map(FilmLike::getFilmId).collect(Collectors.toSet()));
+        validationEntityUtils.validateUsersExist(likes.stream().map(FilmLike::getUserId).collect(Collectors.toSet()));
+
+        log.debug("Adding {} likes in batch", likes.size());
+        List<FilmLike> inserted = filmStorage.addLikes(likes);
+        TransactionCallbacks.afterCommit(() -> {
+            popularityLeaderboard.refreshLikes(inserted.stream().map(FilmLike::getFilmId).collect(Collectors.toSet()));
+            inserted.forEach(like -> filmSearchIndex.incrementLikes(like.getFilmId()));
+        });
+        log.debug("Batch inserted {} new likes, {} already existed", inserted.size(), likes.size() - inserted.size());
+
+        feedService.saveLikeEvents(likes, Operation.ADD);
+    }
+
+    @Transactional
     public void removeFilmLike(Long filmId, Long userId) {
         validationEntityUtils.validateFilmExists(filmId);
         validationEntityUtils.validateUserExists(userId);
@@ -134,6 +203,10 @@ public class FilmService {
         }
 
         filmStorage.removeLike(filmId, userId);
+        TransactionCallbacks.afterCommit(() -> {
+            popularityLeaderboard.refreshLikes(filmId);
+            filmSearchIndex.decrementLikes(filmId);
+        });
         feedService.saveEvent(userId, EventType.LIKE, Operation.REMOVE, filmId);
     }
 
@@ -148,11 +221,60 @@ public class FilmService {
                 .toList();
     }
 
-    public List<FilmDto> searchFilms(String query, String by) {
-        log.debug("Searching films by query: {} in fields: {}", query, by);
-        List<Film> foundFilms = filmStorage.search(query, by);
+    public List<FilmDto> searchFilms(String query, String by, boolean fuzzy) {
+        log.debug("Searching films by query: {} in fields: {} (fuzzy={})", query, by, fuzzy);
+        List<Film> foundFilms = filmSearchIndex.search(query, searchesTitle(by), searchesDirector(by), fuzzy)
+                .map(this::findFilmsInOrder)
+                .orElseGet(() -> filmStorage.search(query, by));
         return foundFilms.stream()
                 .map(FilmMapper::toDto)
                 .toList();
     }
-}
\ No newline at end of file
+
+    public Pagination.Page<FilmDto> searchFilmsPage(String query, String by, boolean fuzzy,
+                                                    LikesCursor after, int limit) {
+        log.debug("Searching films by query: {} in fields: {} (fuzzy={}) after {} (limit={})",
+                query, by, fuzzy, after, limit);
+        Optional<List<LikesCursor>> ranked = filmSearchIndex
+                .search(query, searchesTitle(by), searchesDirector(by), fuzzy, after, limit);
+        List<Film> foundFilms;
+        String nextCursor;
+        if (ranked.isPresent()) {
+            // Курсор строим по лайкам, по которым ранжировал индекс, а не по счётчику из базы
+            List<LikesCursor> page = ranked.get();
+            foundFilms = findFilmsInOrder(page.stream().map(LikesCursor::filmId).toList());
+            nextCursor = page.size() < limit ? null : page.getLast().toString();
+        } else {
+            foundFilms = filmStorage.search(query, by, after, limit);
+            nextCursor = foundFilms.size() < limit ? null : LikesCursor.of(foundFilms.getLast()).toString();
+        }
+        return new Pagination.Page<>(foundFilms.stream()
+                .map(FilmMapper::toDto)
+                .toList(), nextCursor);
+    }
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        log.debug("Suggesting up to {} titles and directors for prefix: {}", limit, prefix);
+        return filmSearchIndex.suggest(prefix, limit);
+    }
+
+    private static boolean searchesDirector(String by) {
+        return by.contains("director");
+    }
+
+    private static boolean searchesTitle(String by) {
+        return by.contains("title") || !searchesDirector(by);
+    }
+
+    private List<Film> findFilmsInOrder(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Film> filmsById = new HashMap<>();
+        filmStorage.findFilmsByIds(filmIds).forEach(film -> filmsById.put(film.getId(), film));
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.utils.collection.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Friend suggestions for GET /users/{id}/friends/suggestions: users who are not yet friends
+ * of the given user, ranked by the number of the user's friends who have them as friends.
+ * <p>
+ * The traversal is two hops and bounded. Friends with more than {@code fan-out-limit}
+ * friends of their own are not expanded, since their lists say little about the user and
+ * would dominate the cost. The traversal also stops after {@code max-visited} second-hop
+ * edges, so the cost of a request does not grow with the graph.
+ */
+@Component
+@Slf4j
+public class FriendSuggester {
+
+    private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingInt(Candidate::mutualFriends)
+            .thenComparing(Candidate::userId, Comparator.reverseOrder());
+
+    private final UserStorage userStorage;
+    private final int fanOutLimit;
+    private final int maxVisited;
+
+    @Autowired
+    public FriendSuggester(UserStorage userStorage,
+                           @Value("${filmorate.friends.suggestions.fan-out-limit}") int fanOutLimit,
+                           @Value("${filmorate.friends.suggestions.max-visited}") int maxVisited) {
+        this.userStorage = userStorage;
+        this.fanOutLimit = fanOutLimit;
+        this.maxVisited = maxVisited;
+    }
+
+    /**
+     * @return ids of up to {@code limit} suggested users, most mutual friends first, ties by id
+     */
+    public List<Long> suggest(long userId, int limit) {
+        long[] friendIds = userStorage.getUserFriendIdArray(userId);
+        LongIntHashMap mutualFriends = new LongIntHashMap();
+        int budget = maxVisited;
+        for (long friendId : friendIds) {
+            // Степень проверяем до чтения строки, чтобы не копировать списки хабов
+            int degree = userStorage.countUserFriends(friendId);
+            if (degree > fanOutLimit) {
+                continue;
+            }
+            if (degree > budget) {
+                log.debug("Suggestions for user {} stopped after {} edges", userId, maxVisited - budget);
+                break;
+            }
+            long[] candidates = userStorage.getUserFriendIdArray(friendId);
+            budget -= candidates.length;
+            for (long candidateId : candidates) {
+                if (candidateId != userId && Arrays.binarySearch(friendIds, candidateId) < 0) {
+                    mutualFriends.addTo(candidateId, 1);
+                }
+            }
+        }
+        return top(mutualFriends, limit);
+    }
+
+    private static List<Long> top(LongIntHashMap mutualFriends, int limit) {
+        // Куча на limit элементов: в корне худший из отобранных
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        mutualFriends.forEach((candidateId, count) -> {
+            if (heap.size() < limit) {
+                heap.add(new Candidate(candidateId, count));
+                return;
+            }
+            Candidate worst = heap.peek();
+            if (count > worst.mutualFriends() || count == worst.mutualFriends() && candidateId < worst.userId()) {
+                heap.poll();
+                heap.add(new Candidate(candidateId, count));
+            }
+        });
+
+        List<Long> ranked = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ranked.add(heap.poll().userId());
+        }
+        return ranked.reversed();
+    }
+
+    private record Candidate(long userId, int mutualFriends) {
+    }
+}
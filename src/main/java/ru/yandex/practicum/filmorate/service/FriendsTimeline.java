@@ -0,0 +1,239 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Timeline of a user's friends' events used to answer GET /users/{id}/timeline.
+ * <p>
+ * Fan-out on write: every stored event is pushed into a bounded ring buffer of each user who
+ * has its author as a friend. Buffers exist only for users who have read their timeline and
+ * are filled from the database on first read; a user whose buffer would exceed
+ * {@code max-users} is served from the database directly. Authors with more followers than
+ * {@code fan-out-limit} are not pushed at all: readers pull their latest events at read time
+ * and merge them into the buffered ones. An author goes back to push once an unfollow brings
+ * the follower count within the limit, and is forgotten when deleted.
+ */
+@Component
+@Slf4j
+public class FriendsTimeline implements FeedListener {
+
+    static final Comparator<Event> NEWEST_FIRST = Comparator.comparing(Event::getTimestamp)
+            .thenComparing(Event::getEventId)
+            .reversed();
+
+    private final UserStorage userStorage;
+    private final EventStorage eventStorage;
+    private final int capacity;
+    private final int fanOutLimit;
+    private final int maxUsers;
+
+    private final Map<Long, Buffer> buffers = new ConcurrentHashMap<>();
+    private final Set<Long> celebrities = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public FriendsTimeline(UserStorage userStorage,
+                           EventStorage eventStorage,
+                           @Value("${filmorate.timeline.capacity}") int capacity,
+                           @Value("${filmorate.timeline.fan-out-limit}") int fanOutLimit,
+                           @Value("${filmorate.timeline.max-users}") int maxUsers) {
+        this.userStorage = userStorage;
+        this.eventStorage = eventStorage;
+        this.capacity = capacity;
+        this.fanOutLimit = fanOutLimit;
+        this.maxUsers = maxUsers;
+    }
+
+    @Override
+    public void onEvents(List<Event> events) {
+        if (buffers.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<Event>> byAuthor = events.stream()
+                .filter(event -> !celebrities.contains(event.getUserId()))
+                .collect(Collectors.groupingBy(Event::getUserId));
+        byAuthor.forEach((authorId, authored) -> {
+            Set<Long> followers = userStorage.getFollowerIds(authorId);
+            if (followers.size() > fanOutLimit) {
+                // Дальше события этого автора читатели забирают сами
+                celebrities.add(authorId);
+                log.debug("User {} has {} followers, switching to pull", authorId, followers.size());
+                return;
+            }
+            for (Long followerId : followers) {
+                Buffer buffer = buffers.get(followerId);
+                if (buffer != null) {
+                    buffer.addAll(authored);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} latest events of the user's current friends, newest first.
+     */
+    public List<Event> getTimeline(long userId, int limit) {
+        Buffer buffer = limit > capacity ? null : bufferOf(userId);
+        if (buffer == null || !buffer.loaded) {
+            return eventStorage.findFriendsEvents(userId, limit);
+        }
+
+        Set<Long> friendIds = userStorage.getUserFriendsIds(userId);
+        Map<Long, Event> merged = new LinkedHashMap<>();
+        for (Event event : buffer.snapshot()) {
+            if (friendIds.contains(event.getUserId())) {
+                merged.put(event.getEventId(), event);
+            }
+        }
+        for (Long friendId : friendIds) {
+            if (celebrities.contains(friendId)) {
+                eventStorage.findFeedPage(friendId, null, limit)
+                        .forEach(event -> merged.putIfAbsent(event.getEventId(), event));
+            }
+        }
+        return merged.values().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Drops the user's buffer, so that the next read refills it from the database. Called when
+     * the user gains a friend whose earlier events the buffer never received.
+     */
+    public void invalidate(long userId) {
+        buffers.remove(userId);
+    }
+
+    /**
+     * Switches the author back to fan-out on write if losing a follower brought the follower
+     * count within the limit.
+     */
+    public void onUnfollowed(long authorId) {
+        if (!celebrities.contains(authorId)) {
+            return;
+        }
+        Set<Long> followers = userStorage.getFollowerIds(authorId);
+        if (followers.size() <= fanOutLimit && celebrities.remove(authorId)) {
+            // Пока события автора забирались при чтении, в буферы подписчиков они не попадали
+            followers.forEach(buffers::remove);
+            log.debug("User {} has {} followers, switching back to push", authorId, followers.size());
+        }
+    }
+
+    /**
+     * Forgets a deleted user, both as a reader and as an author.
+     */
+    public void removeUser(long userId) {
+        buffers.remove(userId);
+        celebrities.remove(userId);
+    }
+
+    private Buffer bufferOf(long userId) {
+        Buffer buffer = buffers.get(userId);
+        if (buffer != null) {
+            return buffer;
+        }
+        if (buffers.size() >= maxUsers) {
+            return null;
+        }
+
+        // Буфер регистрируется до чтения из базы, чтобы не потерять события, пришедшие во время загрузки
+        Buffer created = new Buffer(capacity);
+        buffer = buffers.putIfAbsent(userId, created);
+        if (buffer != null) {
+            return buffer;
+        }
+        try {
+            created.addAll(eventStorage.findFriendsEvents(userId, capacity).reversed());
+        } catch (RuntimeException e) {
+            buffers.remove(userId, created);
+            throw e;
+        }
+        created.loaded = true;
+        return created;
+    }
+
+    int bufferedUsers() {
+        return buffers.size();
+    }
+
+    boolean isPulled(long authorId) {
+        return celebrities.contains(authorId);
+    }
+
+    /**
+     * Latest events, at most {@code capacity}, in a ring ordered from oldest to newest.
+     */
+    private static final class Buffer {
+
+        private final Event[] events;
+        private int head;
+        private int size;
+        private volatile boolean loaded;
+
+        Buffer(int capacity) {
+            events = new Event[capacity];
+        }
+
+        synchronized void addAll(Collection<Event> added) {
+            for (Event event : added) {
+                if (size > 0 && NEWEST_FIRST.compare(event, newest()) > 0) {
+                    // Первичная загрузка может отстать от fan-out: тогда пересобираем по порядку
+                    rebuild(added);
+                    return;
+                }
+                push(event);
+            }
+        }
+
+        private void push(Event event) {
+            int tail = (head + size) % events.length;
+            events[tail] = event;
+            if (size < events.length) {
+                size++;
+            } else {
+                head = (head + 1) % events.length;
+            }
+        }
+
+        private Event newest() {
+            return events[(head + size - 1) % events.length];
+        }
+
+        private void rebuild(Collection<Event> added) {
+            Map<Long, Event> all = new LinkedHashMap<>();
+            snapshot().forEach(event -> all.put(event.getEventId(), event));
+            added.forEach(event -> all.put(event.getEventId(), event));
+            head = 0;
+            size = 0;
+            all.values().stream()
+                    .sorted(NEWEST_FIRST.reversed())
+                    .forEach(this::push);
+        }
+
+        synchronized List<Event> snapshot() {
+            List<Event> copy = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                copy.add(events[(head + i) % events.length]);
+            }
+            return copy;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
 import java.util.*;
@@ -14,18 +15,24 @@ import java.util.*;
 public class GenreService {
 
     private final GenreStorage genreStorage;
+    private final ReferenceDataCache referenceData;
 
     public List<Genre> findAllGenres() {
-        return genreStorage.findAll();
+        return referenceData.findAllGenres();
     }
 
     public Genre findGenreById(long id) {
-        return genreStorage.findById(id)
+        return referenceData.findGenreById(id)
                 .orElseThrow(() -> new NotFoundException(ErrorMessages.genreNotFound(id)));
     }
 
     public List<Genre> findGenresByIds(List<Long> genreIds) {
-        return genreStorage.findGenresByIds(genreIds);
+        return genreIds.stream()
+                .distinct()
+                .sorted()
+                .map(referenceData::findGenreById)
+                .flatMap(Optional::stream)
+                .toList();
     }
 
     public Map<Long, List<Genre>> getGenresByFilmIds(List<Long> filmIds) {
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+/**
+ * Periodically repairs drift between films.likes_count and the actual rows in film_likes
+ * and rebuilds the in-memory models derived from likes.
+ */
+@Component
+@Slf4j
+public class LikesCountReconciliationJob {
+
+    private final FilmStorage filmStorage;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final ObjectProvider<RecommendationEngine> recommendationEngine;
+    private final FilmSearchIndex filmSearchIndex;
+
+    @Autowired
+    public LikesCountReconciliationJob(FilmStorage filmStorage,
+                                       PopularityLeaderboard popularityLeaderboard,
+                                       ObjectProvider<RecommendationEngine> recommendationEngine,
+                                       FilmSearchIndex filmSearchIndex) {
+        this.filmStorage = filmStorage;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.recommendationEngine = recommendationEngine;
+        this.filmSearchIndex = filmSearchIndex;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconciliation.initial-delay}",
+            fixedDelayString = "${filmorate.likes.reconciliation.interval}")
+    public void reconcile() {
+        int repaired = filmStorage.reconcileLikesCounts();
+        if (repaired > 0) {
+            log.warn("Likes count drift repaired for {} films", repaired);
+        } else {
+            log.debug("Likes counts are consistent");
+        }
+        popularityLeaderboard.reload();
+        recommendationEngine.ifAvailable(RecommendationEngine::reload);
+        filmSearchIndex.reload();
+    }
+}
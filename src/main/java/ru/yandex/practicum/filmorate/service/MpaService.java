@@ -7,7 +7,7 @@ import ru.yandex.practicum.filmorate.dto.mpa.MpaDto;
 import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.MpaMapper;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 
 import java.util.List;
 
@@ -16,17 +16,17 @@ import java.util.List;
 @Slf4j
 public class MpaService {
 
-    private final MpaStorage mpaStorage;
+    private final ReferenceDataCache referenceData;
 
     public List<MpaDto> findAllMpa() {
-        return mpaStorage.findAll()
+        return referenceData.findAllMpa()
                 .stream()
                 .map(MpaMapper::toDto)
                 .toList();
     }
 
     public MpaDto findMpaById(long id) {
-        return mpaStorage.findById(id)
+        return referenceData.findMpaById(id)
                 .map(MpaMapper::toDto)
                 .orElseThrow(() -> new NotFoundException(ErrorMessages.mpaNotFound(id)));
     }
@@ -0,0 +1,538 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.utils.collection.LongHashSet;
+import ru.yandex.practicum.filmorate.utils.collection.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranking of films by likes used to answer GET /films/popular.
+ * <p>
+ * Each film belongs to four kinds of buckets: all films, films of its release year,
+ * films of each of its genres and each (genre, year) pair. Every bucket keeps its best
+ * {@code 2 * capacity} films sorted by likes (ties broken by film id), so a like only shifts
+ * one entry inside a short array, and answers from the first {@code capacity} of them.
+ * Films that drop out of the top are taken from the reserve; only once it runs below the
+ * capacity are all films rescanned, which takes at least {@code capacity} removals or
+ * demotions out of the bucket. Requests for more films than the capacity fall back to the
+ * database.
+ * <p>
+ * Callers apply changes only after their transaction commits, so a rolled back like never
+ * reaches the ranking. Likes are not counted here: after a commit the film's current count is
+ * read from the storage and set, with reads and writes of one film serialized by a striped lock.
+ * A reload reads all films without blocking readers, builds a new ranking aside and swaps it
+ * in; films changed while it was loading keep their live state, which is never older than the
+ * loaded one.
+ */
+@Component
+@Slf4j
+public class PopularityLeaderboard {
+
+    private static final int ANY = 0;
+    private static final int STRIPES = 64;
+    private static final Comparator<Entry> RANKING = Comparator.<Entry>comparingInt(entry -> -entry.likes)
+            .thenComparingLong(entry -> entry.id);
+
+    private final FilmStorage filmStorage;
+    private final int capacity;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final ReentrantLock[] likeLocks = new ReentrantLock[STRIPES];
+    private Ranking ranking;
+    private LongHashSet changedDuringReload;
+    private volatile boolean ready;
+
+    @Autowired
+    public PopularityLeaderboard(FilmStorage filmStorage,
+                                 @Value("${filmorate.popular.leaderboard.capacity}") int capacity) {
+        this.filmStorage = filmStorage;
+        this.capacity = capacity;
+        this.ranking = new Ranking(capacity);
+        for (int i = 0; i < STRIPES; i++) {
+            likeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        reloadLock.lock();
+        try {
+            trackChanges(new LongHashSet());
+            Ranking loaded = new Ranking(capacity);
+            try {
+                // Полное чтение идёт без блокировки: читатели продолжают работать со старым рейтингом
+                filmStorage.findAll().forEach(film -> loaded.join(entryOf(film, film.getLikesCount())));
+            } catch (RuntimeException e) {
+                trackChanges(null);
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                swap(loaded, changedDuringReload);
+                changedDuringReload = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Popularity leaderboard loaded: {} films, {} buckets", loaded.films.size(), loaded.buckets.size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Returns ids of the most liked films for the given filters, or an empty optional when
+     * the leaderboard cannot answer (not loaded yet or {@code count} exceeds the capacity).
+     */
+    public Optional<List<Long>> findTopFilmIds(int count, Integer genreId, Integer year) {
+        if (!ready || count > capacity) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            Bucket bucket = ranking.buckets.get(bucketKey(genreId == null ? ANY : genreId, year == null ? ANY : year));
+            return Optional.of(bucket == null ? List.of() : bucket.topIds(count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            if (!ranking.films.containsKey(film.getId())) {
+                ranking.join(entryOf(film, film.getLikesCount()));
+                changed(film.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = ranking.films.get(film.getId());
+            int likes = previous == null ? film.getLikesCount() : previous.likes;
+            if (previous != null) {
+                ranking.leave(previous);
+            }
+            ranking.join(entryOf(film, likes));
+            changed(film.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = ranking.films.get(filmId);
+            if (entry != null) {
+                ranking.leave(entry);
+            }
+            changed(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void refreshLikes(long filmId) {
+        refreshLikes(List.of(filmId));
+    }
+
+    /**
+     * Sets the likes of the films to their current counts in the storage. Called after the
+     * transaction that changed the likes commits, so the count read here already includes
+     * the change; a refresh that runs late only repeats the same count.
+     */
+    public void refreshLikes(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        // Чтение и запись счётчика одного фильма идут под одним замком, иначе старое значение может лечь поверх нового
+        int[] stripes = filmIds.stream()
+                .mapToInt(PopularityLeaderboard::stripe)
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            likeLocks[stripe].lock();
+        }
+        try {
+            Map<Long, Integer> likes = filmStorage.findLikesCounts(filmIds);
+            lock.writeLock().lock();
+            try {
+                likes.forEach((filmId, count) -> {
+                    Entry entry = ranking.films.get(filmId);
+                    if (entry != null) {
+                        ranking.setLikes(entry, count);
+                        changed(filmId);
+                    }
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                likeLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes back the likes of a user that is about to be deleted: the database drops them
+     * by cascade, so the leaderboard has to be told explicitly. The liked films are read
+     * now, while the likes still exist, and their counts are refreshed once the deletion commits.
+     */
+    public void removeLikesOfUser(long userId) {
+        List<Long> filmIds = filmStorage.findUserLikedFilmIds(userId);
+        TransactionCallbacks.afterCommit(() -> refreshLikes(filmIds));
+    }
+
+    private void trackChanges(LongHashSet changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringReload = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void changed(long filmId) {
+        if (changedDuringReload != null) {
+            changedDuringReload.add(filmId);
+        }
+    }
+
+    private void swap(Ranking loaded, LongHashSet changed) {
+        // Изменённые во время загрузки фильмы переносим из живого рейтинга: он не старше прочитанного
+        changed.forEach(filmId -> {
+            Entry stale = loaded.films.get(filmId);
+            if (stale != null) {
+                loaded.leave(stale);
+            }
+            Entry live = ranking.films.get(filmId);
+            if (live != null) {
+                loaded.join(new Entry(live.id, live.likes, live.year, live.genreIds));
+            }
+        });
+        ranking = loaded;
+        ready = true;
+    }
+
+    private static void forEachBucketKey(Entry entry, KeyAction action) {
+        action.apply(bucketKey(ANY, ANY));
+        action.apply(bucketKey(ANY, entry.year));
+        for (long genreId : entry.genreIds) {
+            action.apply(bucketKey((int) genreId, ANY));
+            action.apply(bucketKey((int) genreId, entry.year));
+        }
+    }
+
+    private static long bucketKey(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static int stripe(long filmId) {
+        return (int) (filmId & (STRIPES - 1));
+    }
+
+    private static Entry entryOf(Film film, int likes) {
+        Collection<Genre> genres = film.getGenres() == null ? List.of() : film.getGenres();
+        long[] genreIds = genres.stream()
+                .mapToLong(Genre::getId)
+                .distinct()
+                .toArray();
+        return new Entry(film.getId(), likes, film.getReleaseDate().getYear(), genreIds);
+    }
+
+    private static boolean ranksBefore(Entry first, Entry second) {
+        return RANKING.compare(first, second) < 0;
+    }
+
+    /**
+     * Films and buckets of one ranking; guarded by the leaderboard's lock once it is installed.
+     */
+    private static final class Ranking {
+        private final int capacity;
+        private final LongObjectHashMap<Entry> films = new LongObjectHashMap<>();
+        private final LongObjectHashMap<Bucket> buckets = new LongObjectHashMap<>();
+
+        private Ranking(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void join(Entry entry) {
+            films.put(entry.id, entry);
+            forEachBucketKey(entry, key -> {
+                Bucket bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new Bucket(key, capacity);
+                    buckets.put(key, bucket);
+                }
+                bucket.add(entry);
+            });
+        }
+
+        private void leave(Entry entry) {
+            films.remove(entry.id);
+            forEachBucketKey(entry, key -> {
+                Bucket bucket = buckets.get(key);
+                if (bucket.remove(entry)) {
+                    refill(bucket);
+                }
+                if (bucket.members == 0) {
+                    buckets.remove(key);
+                }
+            });
+        }
+
+        private void setLikes(Entry entry, int likes) {
+            if (likes > entry.likes) {
+                entry.likes = likes;
+                forEachBucketKey(entry, key -> buckets.get(key).promote(entry));
+            } else if (likes < entry.likes) {
+                entry.likes = likes;
+                forEachBucketKey(entry, key -> {
+                    Bucket bucket = buckets.get(key);
+                    if (bucket.demote(entry)) {
+                        refill(bucket);
+                    }
+                });
+            }
+        }
+
+        // Запас корзины иссяк: пересматриваем всех участников и снова набираем лучших
+        private void refill(Bucket bucket) {
+            int genreId = (int) (bucket.key >>> 32);
+            int year = (int) bucket.key;
+            int reserve = bucket.top.length;
+            // В голове кучи худший из отобранных; на одну запись больше запаса, чтобы знать лучшего из остальных
+            PriorityQueue<Entry> best = new PriorityQueue<>(reserve + 2, RANKING.reversed());
+            int[] members = {0};
+            films.forEachValue(entry -> {
+                if ((year == ANY || entry.year == year) && (genreId == ANY || entry.hasGenre(genreId))) {
+                    members[0]++;
+                    if (best.size() <= reserve) {
+                        best.add(entry);
+                    } else if (ranksBefore(entry, best.peek())) {
+                        best.poll();
+                        best.add(entry);
+                    }
+                }
+            });
+            Entry[] selected = best.toArray(new Entry[0]);
+            Arrays.sort(selected, RANKING);
+            bucket.reset(selected, members[0]);
+        }
+    }
+
+    @FunctionalInterface
+    private interface KeyAction {
+        void apply(long key);
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final int year;
+        private final long[] genreIds;
+        private int likes;
+
+        private Entry(long id, int likes, int year, long[] genreIds) {
+            this.id = id;
+            this.likes = likes;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+
+        private boolean hasGenre(long genreId) {
+            for (long id : genreIds) {
+                if (id == genreId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Best entries of one bucket, at most twice the capacity. Invariant: every member outside
+     * {@code top} ranks after all entries in it and no later than
+     * {@code (outsiderLikes, outsiderId)}, an upper bound that only a refill makes exact again.
+     * The first {@code capacity} entries are therefore the bucket's top as long as
+     * {@code size >= min(capacity, members)}.
+     */
+    private static final class Bucket {
+        private static final int NO_OUTSIDERS = -1;
+
+        private final long key;
+        private final int capacity;
+        private final Entry[] top;
+        private int size;
+        private int members;
+        private int outsiderLikes = NO_OUTSIDERS;
+        private long outsiderId;
+
+        private Bucket(long key, int capacity) {
+            this.key = key;
+            this.capacity = capacity;
+            this.top = new Entry[capacity * 2];
+        }
+
+        private List<Long> topIds(int count) {
+            int limit = Math.min(count, Math.min(capacity, size));
+            List<Long> ids = new ArrayList<>(limit);
+            for (int i = 0; i < limit; i++) {
+                ids.add(top[i].id);
+            }
+            return ids;
+        }
+
+        private void add(Entry entry) {
+            members++;
+            offer(entry);
+        }
+
+        /**
+         * @return true when the bucket has to be refilled from its members
+         */
+        private boolean remove(Entry entry) {
+            members--;
+            int index = indexOf(entry);
+            if (index >= 0) {
+                System.arraycopy(top, index + 1, top, index, size - index - 1);
+                top[--size] = null;
+            }
+            return needsRefill();
+        }
+
+        private void promote(Entry entry) {
+            int index = indexOf(entry);
+            if (index >= 0) {
+                moveUp(index);
+            } else {
+                offer(entry);
+            }
+        }
+
+        /**
+         * @return true when the bucket has to be refilled from its members
+         */
+        private boolean demote(Entry entry) {
+            int index = indexOf(entry);
+            if (index < 0) {
+                return false;
+            }
+            if (moveDown(index) == size - 1 && outsiderMayOutrank(entry)) {
+                // Кто-то снаружи может оказаться лучше: запись уходит из запаса
+                top[--size] = null;
+                noteOutsider(entry);
+            }
+            return needsRefill();
+        }
+
+        /**
+         * @param entries the best members in ranking order: the reserve followed by at most one outsider
+         */
+        private void reset(Entry[] entries, int members) {
+            Arrays.fill(top, null);
+            size = Math.min(top.length, entries.length);
+            System.arraycopy(entries, 0, top, 0, size);
+            this.members = members;
+            outsiderLikes = NO_OUTSIDERS;
+            if (entries.length > size) {
+                noteOutsider(entries[size]);
+            }
+        }
+
+        /**
+         * Places a member that is not in {@code top}, either new or one of the outsiders.
+         */
+        private void offer(Entry entry) {
+            if (size == top.length) {
+                if (ranksBefore(entry, top[size - 1])) {
+                    noteOutsider(top[size - 1]);
+                    top[size - 1] = entry;
+                    moveUp(size - 1);
+                } else {
+                    noteOutsider(entry);
+                }
+            } else if (size > 0 && ranksBefore(entry, top[size - 1]) || members - size - 1 == 0
+                    || !outsiderMayOutrank(entry)) {
+                // Вне запаса оставляем только тех, кто ниже всех его записей
+                top[size++] = entry;
+                moveUp(size - 1);
+            } else {
+                noteOutsider(entry);
+            }
+        }
+
+        private boolean needsRefill() {
+            return size < capacity && members > size;
+        }
+
+        private void noteOutsider(Entry entry) {
+            if (outsiderLikes == NO_OUTSIDERS || entry.likes > outsiderLikes
+                    || entry.likes == outsiderLikes && entry.id < outsiderId) {
+                outsiderLikes = entry.likes;
+                outsiderId = entry.id;
+            }
+        }
+
+        private boolean outsiderMayOutrank(Entry entry) {
+            return members > size && outsiderLikes != NO_OUTSIDERS
+                    && (outsiderLikes > entry.likes || outsiderLikes == entry.likes && outsiderId < entry.id);
+        }
+
+        private int indexOf(Entry entry) {
+            for (int i = 0; i < size; i++) {
+                if (top[i] == entry) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void moveUp(int index) {
+            Entry entry = top[index];
+            while (index > 0 && ranksBefore(entry, top[index - 1])) {
+                top[index] = top[index - 1];
+                index--;
+            }
+            top[index] = entry;
+        }
+
+        private int moveDown(int index) {
+            Entry entry = top[index];
+            while (index < size - 1 && ranksBefore(top[index + 1], entry)) {
+                top[index] = top[index + 1];
+                index++;
+            }
+            top[index] = entry;
+            return index;
+        }
+    }
+}
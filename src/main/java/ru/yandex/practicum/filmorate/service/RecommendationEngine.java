@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory source of film recommendations, selected by the
+ * {@code filmorate.recommendations.engine} property. With {@code sql} no engine is
+ * created and recommendations are computed by the database.
+ */
+public interface RecommendationEngine {
+
+    String PROPERTY = "filmorate.recommendations.engine";
+
+    /**
+     * Returns ids of recommended films in ascending order, or an empty optional
+     * when the engine cannot answer yet and the database has to be asked instead.
+     */
+    Optional<List<Long>> findRecommendedFilmIds(long userId);
+
+    /**
+     * Rebuilds the engine state from film_likes.
+     */
+    void reload();
+}
@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeListener;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.collection.CsrMatrix;
+import ru.yandex.practicum.filmorate.utils.collection.LongIntHashMap;
+import ru.yandex.practicum.filmorate.utils.collection.LongObjectHashMap;
+import ru.yandex.practicum.filmorate.utils.collection.OverlayMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory user x film likes matrix used to answer GET /users/{id}/recommendations.
+ * <p>
+ * Recommendations follow the same rule as the SQL fallback: find the users sharing the
+ * largest number of likes with the given user and suggest the films they liked that the
+ * user has not. Likes arrive through {@link FilmLikeListener} and land in a small delta;
+ * a background compaction folds the delta into a fresh CSR base and swaps it in.
+ */
+@Component
+@ConditionalOnProperty(name = RecommendationEngine.PROPERTY, havingValue = "csr", matchIfMissing = true)
+@Slf4j
+public class RecommendationModel implements RecommendationEngine, FilmLikeListener {
+
+    private final FilmStorage filmStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OverlayMatrix likes = new OverlayMatrix();
+    private volatile boolean ready;
+
+    @Autowired
+    public RecommendationModel(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            Map<Long, List<Long>> likedFilmIds = filmStorage.findAllUsersLikedFilmIds();
+            LongObjectHashMap<long[]> rows = new LongObjectHashMap<>(likedFilmIds.size());
+            likedFilmIds.forEach((userId, filmIds) ->
+                    rows.put(userId, filmIds.stream().mapToLong(Long::longValue).toArray()));
+            likes.reset(CsrMatrix.fromRows(rows));
+            ready = true;
+            log.info("Recommendation model loaded: {} users, {} likes", rows.size(), likes.baseEntryCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.compaction-interval}")
+    public void compact() {
+        OverlayMatrix.Compaction compaction;
+        lock.writeLock().lock();
+        try {
+            compaction = likes.freeze();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compaction == null) {
+            return;
+        }
+
+        CsrMatrix merged = compaction.merge();
+
+        lock.writeLock().lock();
+        try {
+            if (likes.install(compaction, merged)) {
+                log.debug("Recommendation model compacted: {} likes", merged.entryCount());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<List<Long>> findRecommendedFilmIds(long userId) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            long[] liked = likes.row(userId);
+            LongIntHashMap overlap = new LongIntHashMap();
+            for (long filmId : liked) {
+                likes.forEachInColumn(filmId, otherId -> {
+                    if (otherId != userId) {
+                        overlap.addTo(otherId, 1);
+                    }
+                });
+            }
+
+            int[] maxOverlap = {0};
+            overlap.forEach((otherId, common) -> maxOverlap[0] = Math.max(maxOverlap[0], common));
+            if (maxOverlap[0] == 0) {
+                return Optional.of(List.of());
+            }
+
+            LongIntHashMap candidates = new LongIntHashMap();
+            overlap.forEach((otherId, common) -> {
+                if (common == maxOverlap[0]) {
+                    likes.forEachInRow(otherId, filmId -> {
+                        if (Arrays.binarySearch(liked, filmId) < 0) {
+                            candidates.put(filmId, 1);
+                        }
+                    });
+                }
+            });
+            return Optional.of(Arrays.stream(candidates.keys()).sorted().boxed().toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        update(() -> likes.set(userId, filmId, true));
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        update(() -> likes.set(userId, filmId, false));
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(() -> {
+            List<Long> userIds = new ArrayList<>();
+            likes.forEachInColumn(filmId, userIds::add);
+            userIds.forEach(userId -> likes.set(userId, filmId, false));
+        });
+    }
+
+    @Override
+    public void onUserDeleted(long userId) {
+        update(() -> {
+            for (long filmId : likes.row(userId)) {
+                likes.set(userId, filmId, false);
+            }
+        });
+    }
+
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.film.FilmDto;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
@@ -10,7 +10,9 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.utils.ValidationEntityUtils;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -18,22 +20,38 @@ public class RecommendationService {
 
     private final FilmStorage filmStorage;
     private final ValidationEntityUtils validationEntityUtils;
+    private final ObjectProvider<RecommendationEngine> recommendationEngine;
 
     @Autowired
-    public RecommendationService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
-                                 ValidationEntityUtils validationEntityUtils) {
+    public RecommendationService(FilmStorage filmStorage,
+                                 ValidationEntityUtils validationEntityUtils,
+                                 ObjectProvider<RecommendationEngine> recommendationEngine) {
         this.filmStorage = filmStorage;
         this.validationEntityUtils = validationEntityUtils;
+        this.recommendationEngine = recommendationEngine;
     }
 
     public List<FilmDto> getFilmRecommendationsByUserLikes(long userId) {
         validationEntityUtils.validateUserExists(userId);
 
-        List<Film> recommendations = filmStorage.findRecommendationsByUserId(userId);
+        RecommendationEngine engine = recommendationEngine.getIfAvailable();
+        List<Film> recommendations = Optional.ofNullable(engine)
+                .flatMap(e -> e.findRecommendedFilmIds(userId))
+                .map(this::findFilmsInOrder)
+                .orElseGet(() -> filmStorage.findRecommendationsByUserId(userId));
         log.debug("Found recommendations films: {}", recommendations);
 
         return recommendations.stream()
                 .map(FilmMapper::toDto)
                 .toList();
     }
+
+    private List<Film> findFilmsInOrder(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        return filmStorage.findFilmsByIds(filmIds).stream()
+                .sorted(Comparator.comparing(Film::getId))
+                .toList();
+    }
 }
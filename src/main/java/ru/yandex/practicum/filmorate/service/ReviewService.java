@@ -120,18 +120,23 @@ public class ReviewService {
         return count == null ? DEFAULT_REVIEW_LIMIT : count;
     }
 
+    // Голос и поправка useful меняются в одной транзакции
+    @Transactional
     public void addLike(Long id, Long userId) {
         processAddVote(id, userId, VoteType.LIKE);
     }
 
+    @Transactional
     public void addDislike(Long id, Long userId) {
         processAddVote(id, userId, VoteType.DISLIKE);
     }
 
+    @Transactional
     public void deleteLike(Long id, Long userId) {
         processDeleteVote(id, userId, VoteType.LIKE);
     }
 
+    @Transactional
     public void deleteDislike(Long id, Long userId) {
         processDeleteVote(id, userId, VoteType.DISLIKE);
     }
@@ -150,8 +155,6 @@ public class ReviewService {
             reviewStorage.addVote(id, userId, voteType);
             log.info("Added {} to review {} by user {}", voteType.name(), id, userId);
         }
-
-        reviewStorage.updateReviewUseful(id);
     }
 
     private void processDeleteVote(Long id, Long userId, VoteType voteType) {
@@ -169,8 +172,6 @@ public class ReviewService {
 
         reviewStorage.deleteVote(id, userId, voteType);
         log.info("Deleted like from review {} by user {}", id, userId);
-
-        reviewStorage.updateReviewUseful(id);
     }
 }
 
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
+
+/**
+ * Periodically repairs drift between reviews.useful, which votes adjust by a delta,
+ * and the actual rows in review_votes. Can be switched off with
+ * {@code filmorate.reviews.reconciliation.enabled=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.reviews.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ReviewUsefulReconciliationJob {
+
+    private final ReviewStorage reviewStorage;
+
+    public ReviewUsefulReconciliationJob(ReviewStorage reviewStorage) {
+        this.reviewStorage = reviewStorage;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.reviews.reconciliation.initial-delay}",
+            fixedDelayString = "${filmorate.reviews.reconciliation.interval}")
+    public void reconcile() {
+        int repaired = reviewStorage.reconcileUseful();
+        if (repaired > 0) {
+            log.warn("Useful rating drift repaired for {} reviews", repaired);
+        } else {
+            log.debug("Useful ratings are consistent");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+
+import java.util.List;
+
+/**
+ * Inserts events together with the operation that caused them: the events table acts as a
+ * transactional outbox, so an event exists exactly when its operation has committed.
+ */
+@Component
+@ConditionalOnProperty(name = FeedWriter.PROPERTY, havingValue = "transactional", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TransactionalFeedWriter implements FeedWriter {
+
+    private final EventStorage eventStorage;
+    private final FeedPublisher feedPublisher;
+
+    @Override
+    public void write(List<Event> events) {
+        eventStorage.saveAll(events);
+        feedPublisher.publish(events);
+    }
+}
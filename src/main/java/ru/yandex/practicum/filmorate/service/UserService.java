@@ -2,8 +2,8 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dto.user.CreateUserDto;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserDto;
 import ru.yandex.practicum.filmorate.dto.user.UserDto;
@@ -19,6 +19,10 @@ import org.springframework.context.annotation.Lazy;
 import ru.yandex.practicum.filmorate.utils.ValidationEntityUtils;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,14 +32,26 @@ public class UserService {
     private final UserStorage userStorage;
     private final FeedService feedService;
     private final ValidationEntityUtils validationEntityUtils;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FriendsTimeline friendsTimeline;
+    private final FriendSuggester friendSuggester;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage,
+    public UserService(UserStorage userStorage,
                        ValidationEntityUtils validationEntityUtils,
-                       @Lazy FeedService feedService) {
+                       @Lazy FeedService feedService,
+                       PopularityLeaderboard popularityLeaderboard,
+                       FilmSearchIndex filmSearchIndex,
+                       FriendsTimeline friendsTimeline,
+                       FriendSuggester friendSuggester) {
         this.userStorage = userStorage;
         this.validationEntityUtils = validationEntityUtils;
         this.feedService = feedService;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.filmSearchIndex = filmSearchIndex;
+        this.friendsTimeline = friendsTimeline;
+        this.friendSuggester = friendSuggester;
     }
 
     public List<UserDto> findAllUsers() {
@@ -48,6 +64,18 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    public List<UserDto> findUsersPage(long afterId, int limit) {
+        log.debug("Retrieving users page after id {} (limit={})", afterId, limit);
+        return userStorage.findPage(afterId, limit).stream()
+                .map(UserMapper::toDto)
+                .toList();
+    }
+
+    public void streamAllUsers(Consumer<UserDto> consumer) {
+        log.debug("Streaming all users from storage");
+        userStorage.streamAll(user -> consumer.accept(UserMapper.toDto(user)));
+    }
+
     public UserDto createUser(CreateUserDto requestUserDto) {
         User newUser = UserMapper.toEntity(requestUserDto);
 
@@ -85,10 +113,14 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException(ErrorMessages.userNotFound(userId)));
     }
 
+    @Transactional
     public void deleteUser(Long userId) {
         log.debug("Deleting user with ID: {}", userId);
         validationEntityUtils.validateUserExists(userId);
+        popularityLeaderboard.removeLikesOfUser(userId);
+        filmSearchIndex.removeLikesOfUser(userId);
         userStorage.delete(userId);
+        friendsTimeline.removeUser(userId);
         log.info("User {} deleted successfully", userId);
     }
 
@@ -102,6 +134,8 @@ public class UserService {
         }
 
         userStorage.addFriendship(userId, friendId);
+        // В буфер ленты не попадали прошлые события нового друга
+        friendsTimeline.invalidate(userId);
 
         feedService.saveEvent(userId, EventType.FRIEND, Operation.ADD, friendId);
         log.info("Friendship added between user {} and user {}", userId, friendId);
@@ -122,6 +156,7 @@ public class UserService {
         log.debug("Attempting to remove friend relationship. User ID: {}, Friend ID: {}", userId, friendId);
         if (areFriends(userId, friendId)) {
             userStorage.removeFriendship(userId, friendId);
+            friendsTimeline.onUnfollowed(friendId);
             log.info("Friendship removed between user {} and user {}", userId, friendId);
 
             feedService.saveEvent(userId, EventType.FRIEND, Operation.REMOVE, friendId);
@@ -141,6 +176,21 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    public List<UserDto> getFriendSuggestions(long userId, int limit) {
+        validationEntityUtils.validateUserExists(userId);
+
+        log.debug("Finding up to {} friend suggestions for user {}", limit, userId);
+        List<Long> suggestedIds = friendSuggester.suggest(userId, limit);
+        Map<Long, User> users = userStorage.findUsersByIds(suggestedIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        return suggestedIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(UserMapper::toDto)
+                .toList();
+    }
+
     private boolean areFriends(long userId, long friendId) {
         boolean isFriend = userStorage.isFriend(userId, friendId);
         log.trace("Friendship check. User ID: {}, Friend ID: {}, Result: {}", userId, friendId, isFriend);
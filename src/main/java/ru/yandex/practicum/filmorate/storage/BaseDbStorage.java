@@ -1,8 +1,14 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -10,64 +16,106 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Every query goes through {@link #measure}, which records a {@code filmorate.storage.query}
+ * timer and a {@code filmorate.storage.query.rows} summary per storage, SQL constant and operation.
+ */
 @RequiredArgsConstructor
 public abstract class BaseDbStorage<T> {
+    private static final int STREAM_FETCH_SIZE = 500;
+
     protected final JdbcTemplate jdbc;
     protected final NamedParameterJdbcTemplate namedJdbc;
     protected final RowMapper<T> rowMapper;
 
+    private QueryMetrics metrics = new QueryMetrics(Metrics.globalRegistry, getClass());
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        metrics = new QueryMetrics(meterRegistry, getClass());
+    }
+
     protected List<T> findMany(String query, Object... params) {
-        return jdbc.query(query, rowMapper, params);
+        return measure("findMany", query, () -> jdbc.query(query, rowMapper, params), List::size);
     }
 
     protected List<T> findMany(String query, MapSqlParameterSource params) {
-        return namedJdbc.query(query, params, rowMapper);
+        return measure("findMany", query, () -> namedJdbc.query(query, params, rowMapper), List::size);
     }
 
     protected <R> List<R> findMany(String query, RowMapper<R> rowMapper, Object... params) {
-        return jdbc.query(query, rowMapper, params);
+        return measure("findMany", query, () -> jdbc.query(query, rowMapper, params), List::size);
+    }
+
+    /**
+     * Maps rows one by one as the driver fetches them, without collecting the result into a list.
+     */
+    protected void stream(String query, Consumer<T> consumer, Object... params) {
+        measure("stream", query, () -> {
+            int[] rows = {0};
+            jdbc.query(conn -> {
+                PreparedStatement ps = conn.prepareStatement(query,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                new ArgumentPreparedStatementSetter(params).setValues(ps);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                consumer.accept(rowMapper.mapRow(rs, rs.getRow()));
+                rows[0]++;
+            });
+            return rows[0];
+        }, Integer::intValue);
     }
 
     protected Optional<T> findOne(String query, Object... params) {
-        try {
-            T resultRow = jdbc.queryForObject(query, rowMapper, params);
-            return Optional.ofNullable(resultRow);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return measure("findOne", query, () -> {
+            try {
+                T resultRow = jdbc.queryForObject(query, rowMapper, params);
+                return Optional.ofNullable(resultRow);
+            } catch (EmptyResultDataAccessException ignored) {
+                return Optional.<T>empty();
+            }
+        }, result -> result.isPresent() ? 1 : 0);
     }
 
     protected <R> Optional<R> findOne(String query, Class<R> requiredType, Object... params) {
-        try {
-            R result = jdbc.queryForObject(query, requiredType, params);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return measure("findOne", query, () -> {
+            try {
+                R result = jdbc.queryForObject(query, requiredType, params);
+                return Optional.ofNullable(result);
+            } catch (EmptyResultDataAccessException ignored) {
+                return Optional.<R>empty();
+            }
+        }, result -> result.isPresent() ? 1 : 0);
     }
 
     protected <R> List<R> findList(String query, Class<R> elementType, Object... params) {
-        return jdbc.queryForList(query, elementType, params);
+        return measure("findList", query, () -> jdbc.queryForList(query, elementType, params), List::size);
     }
 
     protected <R> List<R> findList(String query, Class<R> elementType, MapSqlParameterSource params) {
-        return namedJdbc.queryForList(query, params, elementType);
+        return measure("findList", query, () -> namedJdbc.queryForList(query, params, elementType), List::size);
     }
 
     protected long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
 
-        jdbc.update(conn -> {
+        measure("insert", query, () -> jdbc.update(conn -> {
             PreparedStatement ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             for (int i = 0; i < params.length; i++) {
                 ps.setObject(i + 1, params[i]);
             }
             return ps;
-        }, keyHolder);
+        }, keyHolder), Integer::intValue);
 
         return Optional.ofNullable(keyHolder.getKey())
                 .map(Number::longValue)
@@ -76,34 +124,85 @@ public abstract class BaseDbStorage<T> {
     }
 
     protected void update(String query, Object... params) {
-        int updatedRows = jdbc.update(query, params);
+        int updatedRows = measure("update", query, () -> jdbc.update(query, params), Integer::intValue);
         if (updatedRows == 0) {
             throw new NotFoundException("No record found to update");
         }
     }
 
-    protected void updateWithoutCheck(String query, Object... params) {
-        jdbc.update(query, params);
+    protected int updateWithoutCheck(String query, Object... params) {
+        return measure("update", query, () -> jdbc.update(query, params), Integer::intValue);
     }
 
     protected boolean delete(String query, Object... params) {
-        int rowsAffected = jdbc.update(query, params);
+        int rowsAffected = measure("delete", query, () -> jdbc.update(query, params), Integer::intValue);
         return rowsAffected > 0;
     }
 
     protected boolean exists(String query, Object... params) {
-        Boolean exists = jdbc.queryForObject(query, Boolean.class, params);
+        Boolean exists = measure("exists", query, () -> jdbc.queryForObject(query, Boolean.class, params),
+                result -> Boolean.TRUE.equals(result) ? 1 : 0);
         return Boolean.TRUE.equals(exists);
     }
 
     protected boolean exists(String query, MapSqlParameterSource params) {
-        Boolean exists = namedJdbc.queryForObject(query, params, Boolean.class);
+        Boolean exists = measure("exists", query, () -> namedJdbc.queryForObject(query, params, Boolean.class),
+                result -> Boolean.TRUE.equals(result) ? 1 : 0);
         return Boolean.TRUE.equals(exists);
     }
 
-    protected void batchUpdate(String query, List<Object[]> batchArgs) {
-        if (!batchArgs.isEmpty()) {
-            jdbc.batchUpdate(query, batchArgs);
+    protected int[] batchUpdate(String query, List<Object[]> batchArgs) {
+        if (batchArgs.isEmpty()) {
+            return new int[0];
+        }
+        return measure("batchUpdate", query, () -> jdbc.batchUpdate(query, batchArgs), BaseDbStorage::affectedRows);
+    }
+
+    /**
+     * Inserts the rows in one JDBC batch and returns their generated keys in row order.
+     */
+    protected long[] batchInsert(String query, List<Object[]> batchArgs) {
+        if (batchArgs.isEmpty()) {
+            return new long[0];
+        }
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        measure("batchInsert", query, () -> jdbc.batchUpdate(
+                conn -> conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] params = batchArgs.get(i);
+                        for (int j = 0; j < params.length; j++) {
+                            ps.setObject(j + 1, params[j]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batchArgs.size();
+                    }
+                }, keyHolder), BaseDbStorage::affectedRows);
+
+        return keyHolder.getKeyList().stream()
+                .mapToLong(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .toArray();
+    }
+
+    /**
+     * Times a query that a subclass runs on the templates directly.
+     *
+     * @param rowCount rows returned or affected, taken from the result
+     */
+    protected <R> R measure(String operation, String query, Supplier<R> call, ToIntFunction<R> rowCount) {
+        return metrics.record(operation, query, call, rowCount);
+    }
+
+    private static int affectedRows(int[] counts) {
+        int rows = 0;
+        for (int count : counts) {
+            // Драйвер может вернуть SUCCESS_NO_INFO вместо числа строк
+            rows += Math.max(count, 0);
         }
+        return rows;
     }
 }
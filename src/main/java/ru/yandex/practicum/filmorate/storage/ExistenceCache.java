@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.utils.collection.ConcurrentIdBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Ids of users, films and reviews known to exist, so that existence checks skip the
+ * {@code SELECT EXISTS} round-trip. Misses go to the database and confirmed ids are remembered.
+ * <p>
+ * A hit is never stale. Ids are added only once the insert has committed or the database has
+ * confirmed them. A delete removes the id before it runs and again after it commits. Every
+ * removal bumps a generation counter, and an addition that raced with a removal is undone.
+ */
+@Component
+public class ExistenceCache {
+
+    public enum Entity {
+        USER,
+        FILM,
+        REVIEW
+    }
+
+    private final Map<Entity, KnownIds> known = new EnumMap<>(Entity.class);
+
+    public ExistenceCache() {
+        for (Entity entity : Entity.values()) {
+            known.put(entity, new KnownIds());
+        }
+    }
+
+    public boolean exists(Entity entity, long id, BooleanSupplier database) {
+        KnownIds ids = known.get(entity);
+        if (ids.bitmap.contains(id)) {
+            return true;
+        }
+        long generation = ids.generation.get();
+        boolean exists = database.getAsBoolean();
+        if (exists) {
+            ids.confirm(id, generation);
+        }
+        return exists;
+    }
+
+    public Set<Long> findExisting(Entity entity, Collection<Long> candidates,
+                                  Function<Collection<Long>, Set<Long>> database) {
+        KnownIds ids = known.get(entity);
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : candidates) {
+            if (ids.bitmap.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            long generation = ids.generation.get();
+            Set<Long> found = database.apply(unknown);
+            found.forEach(id -> ids.confirm(id, generation));
+            existing.addAll(found);
+        }
+        return existing;
+    }
+
+    public void added(Entity entity, long id) {
+        KnownIds ids = known.get(entity);
+        long generation = ids.generation.get();
+        TransactionCallbacks.afterCommit(() -> ids.confirm(id, generation));
+    }
+
+    public void removed(Entity entity, long id) {
+        KnownIds ids = known.get(entity);
+        ids.invalidate(id);
+        TransactionCallbacks.afterCommit(() -> ids.invalidate(id));
+    }
+
+    /**
+     * Forgets every id of the entity, e.g. when rows are removed by a cascade.
+     */
+    public void removedAll(Entity entity) {
+        KnownIds ids = known.get(entity);
+        ids.invalidateAll();
+        TransactionCallbacks.afterCommit(ids::invalidateAll);
+    }
+
+    private static final class KnownIds {
+        private final ConcurrentIdBitmap bitmap = new ConcurrentIdBitmap();
+        private final AtomicLong generation = new AtomicLong();
+
+        private void confirm(long id, long observedGeneration) {
+            bitmap.add(id);
+            // Между проверкой в базе и этой точкой было удаление: сбрасываем, пусть решает база
+            if (generation.get() != observedGeneration) {
+                bitmap.remove(id);
+            }
+        }
+
+        private void invalidate(long id) {
+            generation.incrementAndGet();
+            bitmap.remove(id);
+        }
+
+        private void invalidateAll() {
+            generation.incrementAndGet();
+            bitmap.clear();
+        }
+    }
+}
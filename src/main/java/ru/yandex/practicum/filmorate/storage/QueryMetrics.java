@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Timers and row-count summaries for the statements of one storage class, tagged with the
+ * storage, the logical query name and the {@link BaseDbStorage} operation.
+ * <p>
+ * The query name is the name of the {@code static final String} constant holding the SQL,
+ * e.g. {@code FIND_POPULAR_FILMS}. Statements built at runtime are named after the storage
+ * method that ran them, e.g. {@code search}.
+ */
+class QueryMetrics {
+
+    static final String QUERY_TIMER = "filmorate.storage.query";
+    static final String ROWS_SUMMARY = "filmorate.storage.query.rows";
+
+    private static final String NO_EXCEPTION = "none";
+    private static final String UNKNOWN_QUERY = "unknown";
+    private static final double MAX_EXPECTED_ROWS = 100_000;
+
+    private final MeterRegistry registry;
+    private final Class<?> storageClass;
+    private final String storage;
+    private final Map<String, String> constantNames;
+    private final Map<Statement, Meters> meters = new ConcurrentHashMap<>();
+
+    QueryMetrics(MeterRegistry registry, Class<?> storageClass) {
+        this.registry = registry;
+        this.storageClass = storageClass;
+        this.storage = storageClass.getSimpleName();
+        this.constantNames = findSqlConstants(storageClass);
+    }
+
+    <R> R record(String operation, String query, Supplier<R> call, ToIntFunction<R> rowCount) {
+        Meters statementMeters = meters.computeIfAbsent(new Statement(operation, query), this::register);
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            timer(statementMeters.name, operation, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        statementMeters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        statementMeters.rows.record(rowCount.applyAsInt(result));
+        return result;
+    }
+
+    private Meters register(Statement statement) {
+        String name = constantNames.get(statement.query);
+        if (name == null) {
+            name = callerName();
+        }
+        DistributionSummary rows = DistributionSummary.builder(ROWS_SUMMARY)
+                .description("Rows returned or affected by a storage query")
+                .tags("storage", storage, "query", name, "operation", statement.operation)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED_ROWS)
+                .register(registry);
+        return new Meters(name, timer(name, statement.operation, NO_EXCEPTION), rows);
+    }
+
+    private Timer timer(String name, String operation, String exception) {
+        return Timer.builder(QUERY_TIMER)
+                .description("Storage query execution time, including row mapping")
+                .tags("storage", storage, "query", name, "operation", operation, "exception", exception)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // Вызывается один раз на каждый новый текст запроса, поэтому обход стека здесь допустим
+    private String callerName() {
+        return StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE)
+                .walk(frames -> frames
+                        .filter(frame -> frame.getDeclaringClass() == storageClass)
+                        .map(StackWalker.StackFrame::getMethodName)
+                        .filter(method -> !method.startsWith("lambda$"))
+                        .findFirst())
+                .orElse(UNKNOWN_QUERY);
+    }
+
+    private static Map<String, String> findSqlConstants(Class<?> storageClass) {
+        Map<String, String> names = new HashMap<>();
+        for (Field field : storageClass.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (field.getType() == String.class && Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                try {
+                    field.setAccessible(true);
+                    names.putIfAbsent((String) field.get(null), field.getName());
+                } catch (ReflectiveOperationException | RuntimeException ignored) {
+                    // Константа недоступна: запрос получит имя вызывающего метода
+                }
+            }
+        }
+        return names;
+    }
+
+    private record Statement(String operation, String query) {
+    }
+
+    private record Meters(String name, Timer timer, DistributionSummary rows) {
+    }
+}
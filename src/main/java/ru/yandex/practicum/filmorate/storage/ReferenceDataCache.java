@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.utils.collection.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable snapshot of the reference data: MPA ratings, genres and directors.
+ * <p>
+ * Lookups, existence checks and film enrichment never touch the database. MPA ratings and
+ * genres are seed data with small dense ids, so they sit in arrays indexed by id; directors
+ * get ids from a sequence that only grows and are kept in a hash map instead. Directors are
+ * written only through {@code DirectorService}, which reports every change here; a change
+ * replaces the whole snapshot (copy-on-write), and readers keep using the one they have
+ * already taken. An unknown director or genre id is therefore a miss, not a reason to reload.
+ * A film row, however, always points to an existing MPA rating, so {@link #getMpa(long)}
+ * reloads the ratings once on a miss and fails if the id is still unknown.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    private final MpaStorage mpaStorage;
+    private final GenreStorage genreStorage;
+    private final DirectorStorage directorStorage;
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void load() {
+        snapshot = new Snapshot(
+                Table.indexed(mpaStorage.findAll(), Mpa[]::new, Mpa::getId),
+                Table.indexed(genreStorage.findAll(), Genre[]::new, Genre::getId),
+                Table.hashed(directorStorage.findAll(), Director::getId));
+        log.info("Reference data loaded: {} MPA ratings, {} genres, {} directors",
+                snapshot.mpa.values.size(), snapshot.genres.values.size(), snapshot.directors.values.size());
+    }
+
+    public List<Mpa> findAllMpa() {
+        return snapshot.mpa.values;
+    }
+
+    public Optional<Mpa> findMpaById(long id) {
+        return Optional.ofNullable(snapshot.mpa.get(id));
+    }
+
+    /**
+     * Returns the MPA rating a film refers to; a miss means the ratings changed in the database.
+     *
+     * @throws IllegalStateException if the rating is still unknown after a reload
+     */
+    public Mpa getMpa(long id) {
+        Mpa mpa = snapshot.mpa.get(id);
+        return mpa != null ? mpa : reloadMpa(id);
+    }
+
+    public List<Genre> findAllGenres() {
+        return snapshot.genres.values;
+    }
+
+    public Optional<Genre> findGenreById(long id) {
+        return Optional.ofNullable(snapshot.genres.get(id));
+    }
+
+    public List<Director> findAllDirectors() {
+        return snapshot.directors.values;
+    }
+
+    public Optional<Director> findDirectorById(long id) {
+        return Optional.ofNullable(snapshot.directors.get(id));
+    }
+
+    public boolean allGenresExist(Collection<Long> ids) {
+        Table<Genre> genres = snapshot.genres;
+        return ids.stream().allMatch(id -> id != null && genres.get(id) != null);
+    }
+
+    public boolean allDirectorsExist(Collection<Integer> ids) {
+        Table<Director> directors = snapshot.directors;
+        return ids.stream().allMatch(id -> id != null && directors.get(id) != null);
+    }
+
+    public synchronized void putDirector(Director director) {
+        Snapshot current = snapshot;
+        List<Director> directors = new ArrayList<>(current.directors.values);
+        directors.removeIf(existing -> existing.getId().equals(director.getId()));
+        directors.add(director);
+        snapshot = current.withDirectors(Table.hashed(directors, Director::getId));
+    }
+
+    public synchronized void removeDirector(int id) {
+        Snapshot current = snapshot;
+        List<Director> directors = new ArrayList<>(current.directors.values);
+        directors.removeIf(existing -> existing.getId() == id);
+        snapshot = current.withDirectors(Table.hashed(directors, Director::getId));
+    }
+
+    private synchronized Mpa reloadMpa(long id) {
+        Snapshot current = snapshot;
+        if (current.mpa.get(id) == null) {
+            log.warn("MPA rating {} is missing from the reference data, reloading MPA ratings", id);
+            current = current.withMpa(Table.indexed(mpaStorage.findAll(), Mpa[]::new, Mpa::getId));
+            snapshot = current;
+        }
+        Mpa mpa = current.mpa.get(id);
+        if (mpa == null) {
+            throw new IllegalStateException("Unknown MPA rating referenced by a film: " + id);
+        }
+        return mpa;
+    }
+
+    private record Snapshot(Table<Mpa> mpa, Table<Genre> genres, Table<Director> directors) {
+
+        private Snapshot withMpa(Table<Mpa> mpa) {
+            return new Snapshot(mpa, genres, directors);
+        }
+
+        private Snapshot withDirectors(Table<Director> directors) {
+            return new Snapshot(mpa, genres, directors);
+        }
+    }
+
+    /**
+     * Values sorted by id plus a lookup by id.
+     */
+    private record Table<T>(LongFunction<T> byId, List<T> values) {
+
+        /**
+         * Puts the value with id {@code i} at index {@code i}; only for small dense ids.
+         */
+        private static <T> Table<T> indexed(List<T> source, IntFunction<T[]> newArray,
+                                            ToLongFunction<T> id) {
+            List<T> values = sorted(source, id);
+            int size = values.isEmpty() ? 0 : (int) id.applyAsLong(values.get(values.size() - 1)) + 1;
+            T[] byId = newArray.apply(size);
+            for (T value : values) {
+                byId[(int) id.applyAsLong(value)] = value;
+            }
+            return new Table<>(key -> key >= 0 && key < byId.length ? byId[(int) key] : null, values);
+        }
+
+        private static <T> Table<T> hashed(List<T> source, ToLongFunction<T> id) {
+            List<T> values = sorted(source, id);
+            LongObjectHashMap<T> byId = new LongObjectHashMap<>(values.size());
+            for (T value : values) {
+                byId.put(id.applyAsLong(value), value);
+            }
+            return new Table<>(byId::get, values);
+        }
+
+        private static <T> List<T> sorted(List<T> source, ToLongFunction<T> id) {
+            return source.stream()
+                    .sorted(Comparator.comparingLong(id))
+                    .toList();
+        }
+
+        private T get(long id) {
+            return byId.apply(id);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.director;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -12,6 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository("directorDbStorage")
+@Profile("!in-memory")
 public class DirectorDbStorage extends BaseDbStorage<Director> implements DirectorStorage {
 
     private static final String SELECT_ALL_DIRECTORS = """
@@ -61,8 +63,7 @@ public class DirectorDbStorage extends BaseDbStorage<Director> implements Direct
     @Override
     public Director create(Director director) {
         long id = insert(INSERT_DIRECTOR, director.getName());
-        director.setId((int) id);
-        return director;
+        return director.toBuilder().id((int) id).build();
     }
 
     @Override
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.director;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.memory.JournalFactory;
+import ru.yandex.practicum.filmorate.storage.memory.JournaledStorage;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Director storage of the in-memory profile. Ids are never reused, so films that still refer
+ * to a deleted director simply stop resolving it.
+ */
+@Component
+@Profile("in-memory")
+public class InMemoryDirectorStorage extends JournaledStorage implements DirectorStorage {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Integer, String> names = new TreeMap<>();
+    private int lastId;
+
+    public InMemoryDirectorStorage(JournalFactory journals) {
+        super(journals, "directors");
+    }
+
+    @Override
+    public List<Director> findAll() {
+        return readLocked(() -> names.entrySet().stream()
+                .map(entry -> director(entry.getKey(), entry.getValue()))
+                .toList());
+    }
+
+    @Override
+    public Optional<Director> findById(Integer id) {
+        return readLocked(() -> Optional.ofNullable(names.get(id)).map(name -> director(id, name)));
+    }
+
+    @Override
+    public Director create(Director director) {
+        lock.writeLock().lock();
+        try {
+            Director created = director.toBuilder().id(++lastId).build();
+            names.put(created.getId(), created.getName());
+            log("save", new DirectorRow(created.getId(), created.getName()));
+            return created;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Director update(Director director) {
+        lock.writeLock().lock();
+        try {
+            if (names.replace(director.getId(), director.getName()) == null) {
+                throw new NotFoundException("No record found to update");
+            }
+            log("save", new DirectorRow(director.getId(), director.getName()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return director;
+    }
+
+    @Override
+    public void delete(Integer id) {
+        lock.writeLock().lock();
+        try {
+            if (names.remove(id) != null) {
+                log("delete", id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isExistById(Integer id) {
+        return readLocked(() -> names.containsKey(id));
+    }
+
+    @Override
+    public boolean isExistByIds(List<Integer> directorsIds) {
+        return readLocked(() -> directorsIds.stream().allMatch(names::containsKey));
+    }
+
+    @Override
+    protected Object captureState() {
+        return new State(lastId, names.entrySet().stream()
+                .map(entry -> new DirectorRow(entry.getKey(), entry.getValue()))
+                .toList());
+    }
+
+    @Override
+    protected void restore(JsonNode node) {
+        State state = read(node, State.class);
+        lastId = state.lastId();
+        state.directors().forEach(row -> names.put(row.id(), row.name()));
+    }
+
+    @Override
+    protected void replay(String op, JsonNode data) {
+        switch (op) {
+            case "save" -> {
+                DirectorRow row = read(data, DirectorRow.class);
+                names.put(row.id(), row.name());
+                lastId = Math.max(lastId, row.id());
+            }
+            case "delete" -> names.remove(data.asInt());
+            default -> throw new IllegalStateException("Unknown director journal operation: " + op);
+        }
+    }
+
+    @Override
+    protected <T> T withWritesPaused(Supplier<T> action) {
+        return readLocked(action);
+    }
+
+    private <T> T readLocked(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Director director(int id, String name) {
+        return Director.builder().id(id).name(name).build();
+    }
+
+    private record DirectorRow(int id, String name) {
+    }
+
+    private record State(int lastId, List<DirectorRow> directors) {
+    }
+}
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.event;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -9,8 +10,10 @@ import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
+@Profile("!in-memory")
 @Slf4j
 public class EventDbStorage extends BaseDbStorage<Event> implements EventStorage {
 
@@ -23,7 +26,36 @@ public class EventDbStorage extends BaseDbStorage<Event> implements EventStorage
             SELECT event_id, timestamp, user_id, event_type, operation, entity_id
             FROM events
             WHERE user_id = ?
-            ORDER BY timestamp ASC
+            ORDER BY timestamp ASC, event_id ASC
+            """;
+
+    // Индекс (user_id, timestamp, event_id) отдаёт строки уже в нужном порядке
+    private static final String LATEST_EVENTS_BY_USER_ID = """
+            SELECT event_id, timestamp, user_id, event_type, operation, entity_id
+            FROM events
+            WHERE user_id = ?
+            ORDER BY timestamp DESC, event_id DESC
+            LIMIT ?
+            """;
+
+    private static final String EVENTS_BY_USER_ID_BEFORE = """
+            SELECT e.event_id, e.timestamp, e.user_id, e.event_type, e.operation, e.entity_id
+            FROM events e
+            JOIN events c ON c.event_id = ?
+            WHERE e.user_id = ?
+              AND (e.timestamp < c.timestamp OR (e.timestamp = c.timestamp AND e.event_id < c.event_id))
+            ORDER BY e.timestamp DESC, e.event_id DESC
+            LIMIT ?
+            """;
+
+    // Полный проход по друзьям: используется только для первичного заполнения ленты друзей
+    private static final String LATEST_EVENTS_OF_FRIENDS = """
+            SELECT e.event_id, e.timestamp, e.user_id, e.event_type, e.operation, e.entity_id
+            FROM friendships f
+            JOIN events e ON e.user_id = f.friend_id
+            WHERE f.user_id = ?
+            ORDER BY e.timestamp DESC, e.event_id DESC
+            LIMIT ?
             """;
 
     public EventDbStorage(JdbcTemplate jdbc,
@@ -53,10 +85,44 @@ public class EventDbStorage extends BaseDbStorage<Event> implements EventStorage
     }
 
     @Override
-    public List<Event> findFeedByUserId(Long userId) {
-        log.debug("Fetching feed for user {})", userId);
+    public void saveAll(List<Event> events) {
+        log.debug("Saving {} events in batch", events.size());
+
+        long[] ids = batchInsert(INSERT_EVENT, events.stream()
+                .map(event -> new Object[]{
+                        event.getTimestamp(),
+                        event.getUserId(),
+                        event.getEventType().getValue(),
+                        event.getOperation().getValue(),
+                        event.getEntityId()})
+                .toList());
+        for (int i = 0; i < ids.length; i++) {
+            events.get(i).setEventId(ids[i]);
+        }
+    }
+
+    @Override
+    public void streamFeedByUserId(Long userId, Consumer<Event> consumer) {
+        log.debug("Streaming feed for user {}", userId);
+
+        stream(EVENTS_BY_USER_ID, consumer, userId);
+    }
+
+    @Override
+    public List<Event> findFeedPage(Long userId, Long beforeEventId, int limit) {
+        log.debug("Fetching feed page for user {} before event {} (limit={})", userId, beforeEventId, limit);
+
+        if (beforeEventId == null) {
+            return findMany(LATEST_EVENTS_BY_USER_ID, userId, limit);
+        }
+        return findMany(EVENTS_BY_USER_ID_BEFORE, beforeEventId, userId, limit);
+    }
+
+    @Override
+    public List<Event> findFriendsEvents(long userId, int limit) {
+        log.debug("Fetching latest events of friends of user {} (limit={})", userId, limit);
 
-        return findMany(EVENTS_BY_USER_ID, userId);
+        return findMany(LATEST_EVENTS_OF_FRIENDS, userId, limit);
     }
 }
 
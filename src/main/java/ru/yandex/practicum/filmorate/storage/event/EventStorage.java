@@ -2,11 +2,31 @@ package ru.yandex.practicum.filmorate.storage.event;
 
 import ru.yandex.practicum.filmorate.model.Event;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface EventStorage {
 
     Event save(Event event);
 
-    List<Event> findFeedByUserId(Long userId);
-}
+    /**
+     * Inserts the events in one batch and sets their generated ids.
+     */
+    void saveAll(List<Event> events);
+
+    /**
+     * Passes the whole feed of the user to the consumer, oldest event first.
+     */
+    void streamFeedByUserId(Long userId, Consumer<Event> consumer);
 
+    /**
+     * Returns up to {@code limit} events of the user, newest first, that come before the event
+     * {@code beforeEventId}, or the newest events when it is {@code null}.
+     */
+    List<Event> findFeedPage(Long userId, Long beforeEventId, int limit);
+
+    /**
+     * Returns up to {@code limit} latest events of the users the given user has added as friends,
+     * newest first.
+     */
+    List<Event> findFriendsEvents(long userId, int limit);
+}
@@ -0,0 +1,247 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeListener;
+import ru.yandex.practicum.filmorate.storage.memory.JournalFactory;
+import ru.yandex.practicum.filmorate.storage.memory.JournaledStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Event storage of the in-memory profile. Every user's feed is a list ordered by timestamp and
+ * event id, as the {@code (user_id, timestamp, event_id)} index orders it in the database, so
+ * pages are found by binary search and the latest events of friends by merging their lists
+ * from the end. The feed of a deleted user is dropped when the user storage reports it.
+ */
+@Component
+@Profile("in-memory")
+@Slf4j
+public class InMemoryEventStorage extends JournaledStorage implements EventStorage, FilmLikeListener {
+
+    private static final Comparator<Event> CHRONOLOGICAL = Comparator.comparing(Event::getTimestamp)
+            .thenComparing(Event::getEventId);
+
+    private final UserStorage userStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Event>> feeds = new HashMap<>();
+    private final Map<Long, Event> events = new HashMap<>();
+    private long lastId;
+
+    public InMemoryEventStorage(JournalFactory journals, UserStorage userStorage) {
+        super(journals, "events");
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public Event save(Event event) {
+        saveAll(List.of(event));
+        return event;
+    }
+
+    @Override
+    public void saveAll(List<Event> events) {
+        log.debug("Saving {} events in batch", events.size());
+
+        lock.writeLock().lock();
+        try {
+            for (Event event : events) {
+                event.setEventId(++lastId);
+                add(copyOf(event));
+            }
+            log("save", events.stream().map(EventRow::of).toList());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void streamFeedByUserId(Long userId, Consumer<Event> consumer) {
+        log.debug("Streaming feed for user {}", userId);
+
+        readLocked(() -> List.copyOf(feeds.getOrDefault(userId, List.of())))
+                .forEach(event -> consumer.accept(copyOf(event)));
+    }
+
+    @Override
+    public List<Event> findFeedPage(Long userId, Long beforeEventId, int limit) {
+        log.debug("Fetching feed page for user {} before event {} (limit={})", userId, beforeEventId, limit);
+
+        return readLocked(() -> {
+            List<Event> feed = feeds.getOrDefault(userId, List.of());
+            int end = feed.size();
+            if (beforeEventId != null) {
+                Event cursor = events.get(beforeEventId);
+                if (cursor == null) {
+                    return List.of();
+                }
+                int position = Collections.binarySearch(feed, cursor, CHRONOLOGICAL);
+                end = position >= 0 ? position : -position - 1;
+            }
+            List<Event> page = new ArrayList<>(Math.min(limit, end));
+            for (int i = end - 1; i >= 0 && page.size() < limit; i--) {
+                page.add(copyOf(feed.get(i)));
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public List<Event> findFriendsEvents(long userId, int limit) {
+        log.debug("Fetching latest events of friends of user {} (limit={})", userId, limit);
+
+        Set<Long> friendIds = userStorage.getUserFriendsIds(userId);
+        return readLocked(() -> {
+            // Слияние лент друзей с конца: в куче по одному курсору на друга
+            PriorityQueue<FeedCursor> heap = new PriorityQueue<>(
+                    Comparator.comparing(FeedCursor::current, CHRONOLOGICAL.reversed()));
+            for (Long friendId : friendIds) {
+                List<Event> feed = feeds.get(friendId);
+                if (feed != null && !feed.isEmpty()) {
+                    heap.add(new FeedCursor(feed, feed.size() - 1));
+                }
+            }
+            List<Event> latest = new ArrayList<>(limit);
+            while (!heap.isEmpty() && latest.size() < limit) {
+                FeedCursor cursor = heap.poll();
+                latest.add(copyOf(cursor.current()));
+                if (cursor.position() > 0) {
+                    heap.add(new FeedCursor(cursor.feed(), cursor.position() - 1));
+                }
+            }
+            return latest;
+        });
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+    }
+
+    @Override
+    public void onUserDeleted(long userId) {
+        lock.writeLock().lock();
+        try {
+            if (removeFeed(userId)) {
+                log("userDeleted", userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected Object captureState() {
+        List<EventRow> rows = new ArrayList<>(events.size());
+        feeds.values().forEach(feed -> feed.forEach(event -> rows.add(EventRow.of(event))));
+        return new State(lastId, rows);
+    }
+
+    @Override
+    protected void restore(JsonNode node) {
+        State state = read(node, State.class);
+        lastId = state.lastId();
+        state.events().forEach(row -> add(row.toEvent()));
+    }
+
+    @Override
+    protected void replay(String op, JsonNode data) {
+        switch (op) {
+            case "save" -> {
+                for (EventRow row : read(data, EventRow[].class)) {
+                    add(row.toEvent());
+                    lastId = Math.max(lastId, row.eventId());
+                }
+            }
+            case "userDeleted" -> removeFeed(data.asLong());
+            default -> throw new IllegalStateException("Unknown event journal operation: " + op);
+        }
+    }
+
+    @Override
+    protected <T> T withWritesPaused(Supplier<T> action) {
+        return readLocked(action);
+    }
+
+    private <T> T readLocked(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Event event) {
+        List<Event> feed = feeds.computeIfAbsent(event.getUserId(), id -> new ArrayList<>());
+        // Обычно событие новее всех в ленте и встаёт в конец
+        if (feed.isEmpty() || CHRONOLOGICAL.compare(feed.get(feed.size() - 1), event) < 0) {
+            feed.add(event);
+        } else {
+            int position = Collections.binarySearch(feed, event, CHRONOLOGICAL);
+            feed.add(position >= 0 ? position : -position - 1, event);
+        }
+        events.put(event.getEventId(), event);
+    }
+
+    private boolean removeFeed(long userId) {
+        List<Event> feed = feeds.remove(userId);
+        if (feed == null) {
+            return false;
+        }
+        feed.forEach(event -> events.remove(event.getEventId()));
+        return true;
+    }
+
+    private static Event copyOf(Event event) {
+        return event.toBuilder().build();
+    }
+
+    private record FeedCursor(List<Event> feed, int position) {
+
+        private Event current() {
+            return feed.get(position);
+        }
+    }
+
+    private record EventRow(long eventId, long timestamp, long userId, EventType eventType,
+                            Operation operation, long entityId) {
+
+        private static EventRow of(Event event) {
+            return new EventRow(event.getEventId(), event.getTimestamp(), event.getUserId(),
+                    event.getEventType(), event.getOperation(), event.getEntityId());
+        }
+
+        private Event toEvent() {
+            return Event.builder()
+                    .eventId(eventId)
+                    .timestamp(timestamp)
+                    .userId(userId)
+                    .eventType(eventType)
+                    .operation(operation)
+                    .entityId(entityId)
+                    .build();
+        }
+    }
+
+    private record State(long lastId, List<EventRow> events) {
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -7,37 +8,60 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.ExistenceCache;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Repository("filmDbStorage")
+@Profile("!in-memory")
 public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
 
+    /**
+     * Film columns: genre and director ids are aggregated into comma-separated lists,
+     * resolved by the row mapper from the reference data cache.
+     */
+    private static final String FILM_COLUMNS = """
+            f.*,
+            (SELECT LISTAGG(fg.genre_id, ',') WITHIN GROUP (ORDER BY fg.genre_id)
+                FROM film_genres fg
+                WHERE fg.film_id = f.id) AS genre_ids,
+            (SELECT LISTAGG(fd.director_id, ',') WITHIN GROUP (ORDER BY fd.director_id)
+                FROM film_directors fd
+                WHERE fd.film_id = f.id) AS director_ids
+            """;
+
     /**
      * Film queries
      */
-    private static final String FIND_ALL_FILMS = """
-            SELECT f.*, m.*
+    private static final String FIND_ALL_FILMS = "SELECT " + FILM_COLUMNS + """
+            FROM films f
+            """;
+
+    private static final String FIND_FILMS_AFTER_ID = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
+            WHERE f.id > ?
+            ORDER BY f.id
+            LIMIT ?
             """;
 
-    private static final String FIND_FILM_BY_ID = """
-            SELECT f.*, m.*
+    private static final String STREAM_ALL_FILMS = "SELECT " + FILM_COLUMNS + """
+            FROM films f
+            ORDER BY f.id
+            """;
+
+    private static final String FIND_FILM_BY_ID = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
             WHERE f.id = ?
             """;
 
-    private static final String FIND_FILMS_BY_IDS = """
-            SELECT f.*, m.*
+    private static final String FIND_FILMS_BY_IDS = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
             WHERE f.id in (:filmIds)
             """;
 
@@ -53,24 +77,18 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
 
     private static final String DELETE_FILM = "DELETE FROM films WHERE id = ?";
 
-    private static final String FIND_BY_DIRECTOR_YEAR = """
-            SELECT f.*, m.*
+    private static final String FIND_BY_DIRECTOR_YEAR = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
             JOIN film_directors fd ON f.id = fd.film_id
             WHERE fd.director_id = ?
             ORDER BY f.release_date
             """;
 
-    private static final String FIND_BY_DIRECTOR_LIKES = """
-            SELECT f.*, m.*
+    private static final String FIND_BY_DIRECTOR_LIKES = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
             JOIN film_directors fd ON f.id = fd.film_id
-            LEFT JOIN film_likes fl ON f.id = fl.film_id
             WHERE fd.director_id = ?
-            GROUP BY f.id, m.mpa_id, m.mpa_name, m.description
-            ORDER BY COUNT(fl.user_id) DESC
+            ORDER BY f.likes_count DESC, f.id
             """;
 
     private static final String FIND_MAX_INTERSECTION = """
@@ -84,10 +102,8 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             )
             """;
 
-    private static final String FIND_RECOMMENDATIONS_BY_MAX_INTERSECTION = """
-            SELECT f.*, m.*
+    private static final String FIND_RECOMMENDATIONS_BY_MAX_INTERSECTION = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
             WHERE f.id IN (
                 SELECT fl.film_id
                 FROM film_likes fl
@@ -105,33 +121,23 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
 
     private static final String EXISTS_FILM_BY_ID = "SELECT EXISTS(SELECT 1 FROM films WHERE id = ?)";
 
-    private static final String FIND_POPULAR_FILMS = """
-            WITH film_likes_stats AS (
-            SELECT film_id, COUNT(*) AS likes_count
-            FROM film_likes
-            GROUP BY film_id)
-            SELECT f.*, m.*
+    private static final String FIND_EXISTING_FILM_IDS = "SELECT id FROM films WHERE id IN (:ids)";
+
+    private static final String FIND_LIKES_COUNTS = "SELECT id, likes_count FROM films WHERE id IN (:ids)";
+
+    private static final String FIND_POPULAR_FILMS = "SELECT " + FILM_COLUMNS + """
             FROM films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
-            LEFT JOIN film_likes_stats fls ON f.id = fls.film_id
             WHERE (? IS NULL OR EXTRACT(YEAR FROM f.release_date) = ?)
             AND (? IS NULL OR f.id IN (SELECT film_id FROM film_genres WHERE genre_id = ?))
-            ORDER BY COALESCE(fls.likes_count, 0) DESC
+            ORDER BY f.likes_count DESC, f.id
             LIMIT ?
             """;
 
-    private static final String GET_COMMON_FILMS = """
-            SELECT f.*, m.*
+    private static final String GET_COMMON_FILMS = "SELECT " + FILM_COLUMNS + """
             FROM Films f
-            LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id
             JOIN film_likes uf1 ON f.id = uf1.film_id AND uf1.user_id = ?
             JOIN film_likes uf2 ON f.id = uf2.film_id AND uf2.user_id = ?
-            JOIN (
-                SELECT film_id, COUNT(*) AS likes_count
-                FROM film_likes
-                GROUP BY film_id
-            ) AS film_stats ON f.id = film_stats.film_id
-            ORDER BY film_stats.likes_count DESC
+            ORDER BY f.likes_count DESC, f.id
             """;
 
     /**
@@ -142,6 +148,12 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             VALUES (?, ?, ?)
             """;
 
+    private static final String INSERT_LIKE_IF_ABSENT = """
+            INSERT INTO film_likes (film_id, user_id, liked_at)
+            SELECT ?, ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)
+            """;
+
     private static final String EXISTS_USER_LIKE = """
             SELECT EXISTS(
                 SELECT 1
@@ -155,6 +167,16 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             WHERE film_id = ? AND user_id = ?
             """;
 
+    private static final String INCREMENT_LIKES_COUNT = "UPDATE films SET likes_count = likes_count + 1 WHERE id = ?";
+    private static final String DECREMENT_LIKES_COUNT = "UPDATE films SET likes_count = likes_count - 1 WHERE id = ?";
+    private static final String ADD_LIKES_COUNT = "UPDATE films SET likes_count = likes_count + ? WHERE id = ?";
+
+    private static final String RECONCILE_LIKES_COUNT = """
+            UPDATE films f
+            SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+            WHERE likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+            """;
+
     private static final String USER_LIKES = "SELECT film_id, user_id FROM FILM_LIKES";
     private static final String USER_LIKES_BY_ID = "SELECT film_id FROM FILM_LIKES WHERE user_id = ?";
 
@@ -166,43 +188,37 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
     private static final String DELETE_FILM_DIRECTORS = "DELETE FROM film_directors WHERE film_id = ?";
     private static final String INSERT_FILM_DIRECTOR = "INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)";
 
-    private static final String FIND_GENRES_BY_FILM_ID =
-            "SELECT g.* FROM genres g JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id = ?";
-
-    private static final String FIND_DIRECTORS_BY_FILM_ID =
-            "SELECT d.* FROM directors d JOIN film_directors fd ON d.director_id = fd.director_id WHERE fd.film_id = ?";
-
-    private static final String FIND_GENRES_BY_FILM_IDS =
-            "SELECT fg.film_id, g.* FROM genres g JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id IN (:ids)";
-
-    private static final String FIND_DIRECTORS_BY_FILM_IDS =
-            "SELECT fd.film_id, d.* FROM directors d JOIN film_directors fd ON d.director_id = fd.director_id WHERE fd.film_id IN (:ids)";
-
-    private final RowMapper<Director> directorRowMapper;
-    private final RowMapper<Genre> genreRowMapper;
+    private final FilmLikePublisher likePublisher;
+    private final ExistenceCache existenceCache;
 
     public FilmDbStorage(JdbcTemplate jdbc,
                          RowMapper<Film> rowMapper,
-                         RowMapper<Director> directorRowMapper,
-                         RowMapper<Genre> genreRowMapper,
-                         NamedParameterJdbcTemplate namedJdbc) {
+                         NamedParameterJdbcTemplate namedJdbc,
+                         FilmLikePublisher likePublisher,
+                         ExistenceCache existenceCache) {
         super(jdbc, namedJdbc, rowMapper);
-        this.directorRowMapper = directorRowMapper;
-        this.genreRowMapper = genreRowMapper;
+        this.likePublisher = likePublisher;
+        this.existenceCache = existenceCache;
     }
 
     @Override
     public List<Film> findAll() {
-        List<Film> films = findMany(FIND_ALL_FILMS);
-        enrichFilmsData(films);
-        return films;
+        return findMany(FIND_ALL_FILMS);
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return findMany(FIND_FILMS_AFTER_ID, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        stream(STREAM_ALL_FILMS, consumer);
     }
 
     @Override
     public Optional<Film> findFilmById(long id) {
-        Optional<Film> film = findOne(FIND_FILM_BY_ID, id);
-        film.ifPresent(this::enrichFilmData);
-        return film;
+        return findOne(FIND_FILM_BY_ID, id);
     }
 
     @Override
@@ -212,6 +228,7 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                 newFilm.getDuration(), newFilm.getMpa().getId(), LocalDateTime.now());
         newFilm.setId(id);
         updateRelations(newFilm);
+        existenceCache.added(ExistenceCache.Entity.FILM, id);
         return newFilm;
     }
 
@@ -220,7 +237,6 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
         update(UPDATE_FILM, film.getName(), film.getDescription(), film.getReleaseDate(),
                 film.getDuration(), film.getMpa().getId(), film.getId());
         updateRelations(film);
-        enrichFilmData(film);
 
         return findFilmById(film.getId())
                 .orElseThrow(() -> new NotFoundException("Film not found after update"));
@@ -229,26 +245,59 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
     @Override
     public List<Film> findAllByDirector(long directorId, String sortBy) {
         String sql = "year".equals(sortBy) ? FIND_BY_DIRECTOR_YEAR : FIND_BY_DIRECTOR_LIKES;
-        List<Film> films = findMany(sql, directorId);
-        enrichFilmsData(films);
-        return films;
+        return findMany(sql, directorId);
     }
 
     @Override
     public List<Film> getPopularFilms(Integer count, Integer genreId, Integer year) {
-        List<Film> films = findMany(FIND_POPULAR_FILMS, year, year, genreId, genreId, count);
-        enrichFilmsData(films);
-        return films;
+        return findMany(FIND_POPULAR_FILMS, year, year, genreId, genreId, count);
     }
 
     @Override
     public void addLike(long filmId, long userId) {
         insert(INSERT_LIKE, filmId, userId, LocalDateTime.now());
+        updateWithoutCheck(INCREMENT_LIKES_COUNT, filmId);
+        likePublisher.publish(listener -> listener.onLikeAdded(filmId, userId));
+    }
+
+    @Override
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FilmLike> pending = List.copyOf(likes);
+        List<Object[]> batchArgs = pending.stream()
+                .map(like -> new Object[]{like.getFilmId(), like.getUserId(), now, like.getFilmId(), like.getUserId()})
+                .toList();
+        int[] insertedRows = batchUpdate(INSERT_LIKE_IF_ABSENT, batchArgs);
+
+        List<FilmLike> inserted = new ArrayList<>();
+        Map<Long, Integer> addedPerFilm = new HashMap<>();
+        for (int i = 0; i < insertedRows.length; i++) {
+            if (insertedRows[i] > 0) {
+                FilmLike like = pending.get(i);
+                inserted.add(like);
+                addedPerFilm.merge(like.getFilmId(), 1, Integer::sum);
+            }
+        }
+
+        batchUpdate(ADD_LIKES_COUNT, addedPerFilm.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+        likePublisher.publish(listener ->
+                inserted.forEach(like -> listener.onLikeAdded(like.getFilmId(), like.getUserId())));
+        return inserted;
     }
 
     @Override
     public void removeLike(long filmId, long userId) {
-        delete(DELETE_LIKE, filmId, userId);
+        if (delete(DELETE_LIKE, filmId, userId)) {
+            updateWithoutCheck(DECREMENT_LIKES_COUNT, filmId);
+            likePublisher.publish(listener -> listener.onLikeRemoved(filmId, userId));
+        }
+    }
+
+    @Override
+    public int reconcileLikesCounts() {
+        return measure("update", RECONCILE_LIKES_COUNT, () -> jdbc.update(RECONCILE_LIKES_COUNT), Integer::intValue);
     }
 
     @Override
@@ -258,29 +307,39 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
 
     @Override
     public boolean isExistById(long id) {
-        return exists(EXISTS_FILM_BY_ID, id);
+        return existenceCache.exists(ExistenceCache.Entity.FILM, id, () -> exists(EXISTS_FILM_BY_ID, id));
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return existenceCache.findExisting(ExistenceCache.Entity.FILM, filmIds, unknownIds ->
+                new HashSet<>(findList(FIND_EXISTING_FILM_IDS, Long.class,
+                        new MapSqlParameterSource("ids", unknownIds))));
     }
 
     @Override
     public void delete(Long id) {
+        existenceCache.removed(ExistenceCache.Entity.FILM, id);
+        // Отзывы о фильме удалятся каскадно
+        existenceCache.removedAll(ExistenceCache.Entity.REVIEW);
         if (!delete(DELETE_FILM, id)) {
             throw new NotFoundException(ErrorMessages.filmNotFound(id));
         }
+        likePublisher.publish(listener -> listener.onFilmDeleted(id));
     }
 
     @Override
     public List<Film> getCommonFilms(Long userId, Long friendId) {
-        List<Film> popularFilms = findMany(GET_COMMON_FILMS, userId, friendId);
-        enrichFilmsData(popularFilms);
-        return popularFilms;
+        return findMany(GET_COMMON_FILMS, userId, friendId);
     }
 
     @Override
     public List<Film> findFilmsByIds(List<Long> filmIds) {
         MapSqlParameterSource params = new MapSqlParameterSource("filmIds", filmIds);
-        List<Film> films = findMany(FIND_FILMS_BY_IDS, params);
-        enrichFilmsData(films);
-        return films;
+        return findMany(FIND_FILMS_BY_IDS, params);
     }
 
     @Override
@@ -288,9 +347,24 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
         return findList(USER_LIKES_BY_ID, Long.class, userId);
     }
 
+    @Override
+    public Map<Long, Integer> findLikesCounts(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Map.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", filmIds);
+        return measure("findMany", FIND_LIKES_COUNTS, () -> namedJdbc.query(FIND_LIKES_COUNTS, params, rs -> {
+            Map<Long, Integer> result = new HashMap<>();
+            while (rs.next()) {
+                result.put(rs.getLong("id"), rs.getInt("likes_count"));
+            }
+            return result;
+        }), Map::size);
+    }
+
     @Override
     public Map<Long, List<Long>> findAllUsersLikedFilmIds() {
-        return jdbc.query(USER_LIKES, rs -> {
+        return measure("findMany", USER_LIKES, () -> jdbc.query(USER_LIKES, rs -> {
             Map<Long, List<Long>> result = new HashMap<>();
             while (rs.next()) {
                 result.computeIfAbsent(
@@ -299,7 +373,7 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                 ).add(rs.getLong("film_id"));
             }
             return result;
-        });
+        }), result -> result.values().stream().mapToInt(List::size).sum());
     }
 
     @Override
@@ -310,84 +384,58 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             return Collections.emptyList();
         }
 
-        List<Film> films = findMany(
+        return findMany(
                 FIND_RECOMMENDATIONS_BY_MAX_INTERSECTION,
                 userId,
                 userId,
                 maxIntersection.get(),
                 userId);
-
-        enrichFilmsData(films);
-        return films;
     }
 
     public List<Film> search(String query, String by) {
+        return search(query, by, null, null);
+    }
+
+    @Override
+    public List<Film> search(String query, String by, LikesCursor after, int limit) {
+        return search(query, by, after, (Integer) limit);
+    }
+
+    private List<Film> search(String query, String by, LikesCursor after, Integer limit) {
         String searchPattern = "%" + query.toLowerCase() + "%";
         StringBuilder sql = new StringBuilder(
-                "SELECT f.*, m.*, COUNT(fl.user_id) AS rate " +
-                        "FROM films f " +
-                        "LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.mpa_id " +
-                        "LEFT JOIN film_directors fd ON f.id = fd.film_id " +
-                        "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                        "LEFT JOIN film_likes fl ON f.id = fl.film_id "
+                "SELECT " + FILM_COLUMNS +
+                        "FROM films f "
         );
+        String byTitle = "LOWER(f.name) LIKE ? ";
+        String byDirector = "EXISTS (SELECT 1 FROM film_directors fd " +
+                "JOIN directors d ON fd.director_id = d.director_id " +
+                "WHERE fd.film_id = f.id AND LOWER(d.director_name) LIKE ?) ";
         List<Object> params = new ArrayList<>();
         if (by.contains("director") && by.contains("title")) {
-            sql.append("WHERE LOWER(f.name) LIKE ? OR LOWER(d.director_name) LIKE ? ");
+            sql.append("WHERE (").append(byTitle).append("OR ").append(byDirector).append(") ");
             params.add(searchPattern);
             params.add(searchPattern);
         } else if (by.contains("director")) {
-            sql.append("WHERE LOWER(d.director_name) LIKE ? ");
+            sql.append("WHERE ").append(byDirector);
             params.add(searchPattern);
         } else {
-            sql.append("WHERE LOWER(f.name) LIKE ? ");
+            sql.append("WHERE ").append(byTitle);
             params.add(searchPattern);
         }
-        sql.append("GROUP BY f.id, m.mpa_id, m.mpa_name, m.description ORDER BY rate DESC");
-        List<Film> films = findMany(sql.toString(), params.toArray());
-        if (!films.isEmpty()) {
-            enrichFilmsData(films);
+        if (after != null) {
+            sql.append("AND (f.likes_count < ? OR (f.likes_count = ? AND f.id > ?)) ");
+            params.add(after.likes());
+            params.add(after.likes());
+            params.add(after.filmId());
         }
-        return films;
-    }
-
-    private void enrichFilmData(Film film) {
-        List<Genre> genres = findMany(FIND_GENRES_BY_FILM_ID, genreRowMapper, film.getId());
-        List<Director> directors = findMany(FIND_DIRECTORS_BY_FILM_ID, directorRowMapper, film.getId());
-
-        film.setGenres(genres);
-        film.setDirectors(directors);
-    }
-
-    private void enrichFilmsData(List<Film> films) {
-        if (films.isEmpty()) return;
-        List<Long> ids = films.stream().map(Film::getId).toList();
-        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
-
-        Map<Long, List<Genre>> genresMap = namedJdbc.query(FIND_GENRES_BY_FILM_IDS, params, rs -> {
-            Map<Long, List<Genre>> result = new HashMap<>();
-            while (rs.next()) {
-                result.computeIfAbsent(
-                        rs.getLong("film_id"),
-                        k -> new ArrayList<>()).add(genreRowMapper.mapRow(rs, rs.getRow())
-                );
-            }
-            return result;
-        });
-
-        Map<Long, List<Director>> directorsMap = namedJdbc.query(FIND_DIRECTORS_BY_FILM_IDS, params, rs -> {
-            Map<Long, List<Director>> result = new HashMap<>();
-            while (rs.next()) {
-                Director d = directorRowMapper.mapRow(rs, rs.getRow());
-                result.computeIfAbsent(rs.getLong("film_id"), k -> new ArrayList<>()).add(d);
-            }
-            return result;
-        });
-
-        films.forEach(f -> {
-            f.setGenres(genresMap.getOrDefault(f.getId(), Collections.emptyList()));
-            f.setDirectors(directorsMap.getOrDefault(f.getId(), new ArrayList<>()));
-        });
+        sql.append("ORDER BY f.likes_count DESC, f.id");
+        if (limit != null) {
+            // С LIMIT база держит только верхние строки вместо сортировки всех совпадений
+            sql.append(" LIMIT ?");
+            params.add(limit);
+        }
+        return findMany(sql.toString(), params.toArray());
     }
 
     private void updateRelations(Film film) {
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+/**
+ * Receives like changes made through the storages once they are committed,
+ * so in-memory models derived from film_likes can follow them incrementally.
+ */
+public interface FilmLikeListener {
+
+    void onLikeAdded(long filmId, long userId);
+
+    void onLikeRemoved(long filmId, long userId);
+
+    void onFilmDeleted(long filmId);
+
+    void onUserDeleted(long userId);
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers like changes to every {@link FilmLikeListener}: after commit when called inside
+ * a transaction, immediately otherwise. Listeners are looked up lazily because they
+ * usually depend on the storages that publish to them.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmLikePublisher {
+
+    private final ObjectProvider<FilmLikeListener> listeners;
+
+    public void publish(Consumer<FilmLikeListener> event) {
+        TransactionCallbacks.afterCommit(() -> listeners.orderedStream().forEach(event));
+    }
+}
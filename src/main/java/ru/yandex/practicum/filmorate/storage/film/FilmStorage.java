@@ -1,15 +1,24 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     List<Film> findAll();
 
+    List<Film> findPage(long afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Film save(Film newFilm);
 
     Film update(Film newFilm);
@@ -18,12 +27,23 @@ public interface FilmStorage {
 
     boolean isExistById(long filmId);
 
+    Set<Long> findExistingIds(Collection<Long> filmIds);
+
     void addLike(long filmId, long userId);
 
+    List<FilmLike> addLikes(Collection<FilmLike> likes);
+
     boolean isLikeExists(long filmId, long userId);
 
     void removeLike(long filmId, long userId);
 
+    int reconcileLikesCounts();
+
+    /**
+     * Returns the current likes count of every given film that exists.
+     */
+    Map<Long, Integer> findLikesCounts(Collection<Long> filmIds);
+
     List<Film> getPopularFilms(Integer count, Integer genreId, Integer year);
 
     List<Film> getCommonFilms(Long userId, Long friendId);
@@ -40,6 +60,8 @@ public interface FilmStorage {
 
     List<Film> search(String query, String by);
 
+    List<Film> search(String query, String by, LikesCursor after, int limit);
+
     void delete(Long id);
 
 }
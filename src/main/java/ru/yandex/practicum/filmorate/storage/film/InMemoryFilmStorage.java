@@ -0,0 +1,636 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ErrorMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.memory.JournalFactory;
+import ru.yandex.practicum.filmorate.storage.memory.JournaledStorage;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
+import ru.yandex.practicum.filmorate.utils.collection.LongHashSet;
+import ru.yandex.practicum.filmorate.utils.collection.LongIntHashMap;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Film storage kept entirely in memory, answering every query of {@link FilmDbStorage} with the
+ * same ordering. Likes are indexed both by film and by user, films are indexed by director, and
+ * a set ordered by likes (descending) and id serves the popular list and the search pages.
+ * <p>
+ * Films keep the ids of their MPA rating, genres and directors; the entities themselves come
+ * from the {@link ReferenceDataCache}, and a director deleted since is skipped, as the row
+ * mapper does. Likes of a deleted user are dropped when the user storage reports the deletion.
+ */
+@Component
+@Profile("in-memory")
+@Slf4j
+public class InMemoryFilmStorage extends JournaledStorage implements FilmStorage, FilmLikeListener {
+
+    private static final int STREAM_CHUNK = 1000;
+    private static final Comparator<Ranked> MOST_LIKED_FIRST = Comparator.comparingInt(Ranked::likes).reversed()
+            .thenComparingLong(Ranked::filmId);
+
+    private final ReferenceDataCache referenceData;
+    private final FilmLikePublisher likePublisher;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Long, FilmRow> films = new TreeMap<>();
+    private final Map<Long, LongHashSet> likesByFilm = new HashMap<>();
+    private final Map<Long, LongHashSet> likesByUser = new HashMap<>();
+    private final Map<Integer, LongHashSet> filmsByDirector = new HashMap<>();
+    private final NavigableSet<Ranked> ranking = new TreeSet<>(MOST_LIKED_FIRST);
+    private long lastId;
+
+    public InMemoryFilmStorage(JournalFactory journals,
+                               ReferenceDataCache referenceData,
+                               FilmLikePublisher likePublisher) {
+        super(journals, "films");
+        this.referenceData = referenceData;
+        this.likePublisher = likePublisher;
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return readLocked(() -> toFilms(films.values()));
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return readLocked(() -> toFilms(films.tailMap(afterId, false).values().stream().limit(limit).toList()));
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        // Замок берётся на каждую порцию, а не на время записи ответа
+        long afterId = 0;
+        List<Film> chunk;
+        do {
+            chunk = findPage(afterId, STREAM_CHUNK);
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK);
+    }
+
+    @Override
+    public Film save(Film newFilm) {
+        lock.writeLock().lock();
+        try {
+            newFilm.setId(++lastId);
+            FilmRow row = FilmRow.of(newFilm);
+            put(row);
+            log("save", row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return newFilm;
+    }
+
+    @Override
+    public Film update(Film film) {
+        lock.writeLock().lock();
+        try {
+            if (!films.containsKey(film.getId())) {
+                throw new NotFoundException(ErrorMessages.filmNotFound(film.getId()));
+            }
+            FilmRow row = FilmRow.of(film);
+            put(row);
+            log("update", row);
+            return toFilm(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Film> findFilmById(long id) {
+        return readLocked(() -> Optional.ofNullable(films.get(id)).map(this::toFilm));
+    }
+
+    @Override
+    public boolean isExistById(long filmId) {
+        return readLocked(() -> films.containsKey(filmId));
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        return readLocked(() -> {
+            Set<Long> existing = new HashSet<>();
+            for (Long filmId : filmIds) {
+                if (films.containsKey(filmId)) {
+                    existing.add(filmId);
+                }
+            }
+            return existing;
+        });
+    }
+
+    @Override
+    public void addLike(long filmId, long userId) {
+        lock.writeLock().lock();
+        try {
+            if (!films.containsKey(filmId)) {
+                throw new NotFoundException(ErrorMessages.filmNotFound(filmId));
+            }
+            if (!like(filmId, userId)) {
+                return;
+            }
+            log("like", new Like(filmId, userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        likePublisher.publish(listener -> listener.onLikeAdded(filmId, userId));
+    }
+
+    @Override
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        List<FilmLike> inserted = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (FilmLike filmLike : likes) {
+                if (films.containsKey(filmLike.getFilmId()) && like(filmLike.getFilmId(), filmLike.getUserId())) {
+                    inserted.add(filmLike);
+                }
+            }
+            if (!inserted.isEmpty()) {
+                log("likes", inserted.stream()
+                        .map(filmLike -> new Like(filmLike.getFilmId(), filmLike.getUserId()))
+                        .toList());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        likePublisher.publish(listener ->
+                inserted.forEach(filmLike -> listener.onLikeAdded(filmLike.getFilmId(), filmLike.getUserId())));
+        return inserted;
+    }
+
+    @Override
+    public boolean isLikeExists(long filmId, long userId) {
+        return readLocked(() -> {
+            LongHashSet userIds = likesByFilm.get(filmId);
+            return userIds != null && userIds.contains(userId);
+        });
+    }
+
+    @Override
+    public void removeLike(long filmId, long userId) {
+        lock.writeLock().lock();
+        try {
+            if (!unlike(filmId, userId)) {
+                return;
+            }
+            log("unlike", new Like(filmId, userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        likePublisher.publish(listener -> listener.onLikeRemoved(filmId, userId));
+    }
+
+    /**
+     * Like counters are the sizes of the like sets, so there is never anything to repair.
+     */
+    @Override
+    public int reconcileLikesCounts() {
+        return 0;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer year) {
+        Predicate<FilmRow> filter = row -> (year == null || row.releaseDate().getYear() == year)
+                && (genreId == null || contains(row.genreIds(), genreId));
+        return readLocked(() -> ranked(ranking, filter, count));
+    }
+
+    @Override
+    public List<Film> getCommonFilms(Long userId, Long friendId) {
+        return readLocked(() -> {
+            LongHashSet userLikes = likesByUser.get(userId);
+            LongHashSet friendLikes = likesByUser.get(friendId);
+            if (userLikes == null || friendLikes == null) {
+                return List.of();
+            }
+            List<Ranked> common = new ArrayList<>();
+            userLikes.forEach(filmId -> {
+                if (friendLikes.contains(filmId)) {
+                    common.add(rankOf(filmId));
+                }
+            });
+            common.sort(MOST_LIKED_FIRST);
+            return toFilms(common.stream().map(ranked -> films.get(ranked.filmId())).toList());
+        });
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> filmIds) {
+        return readLocked(() -> toFilms(filmIds.stream()
+                .distinct()
+                .sorted()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList()));
+    }
+
+    /**
+     * Films liked by the users whose likes overlap the most with the given user's, which the user
+     * has not liked yet.
+     */
+    @Override
+    public List<Film> findRecommendationsByUserId(long userId) {
+        return readLocked(() -> {
+            LongHashSet userLikes = likesByUser.get(userId);
+            if (userLikes == null || userLikes.isEmpty()) {
+                return List.of();
+            }
+            LongIntHashMap overlap = new LongIntHashMap();
+            userLikes.forEach(filmId -> likesByFilm.get(filmId).forEach(otherUserId -> {
+                if (otherUserId != userId) {
+                    overlap.addTo(otherUserId, 1);
+                }
+            }));
+            int[] max = {0};
+            overlap.forEach((otherUserId, count) -> max[0] = Math.max(max[0], count));
+            if (max[0] == 0) {
+                return List.of();
+            }
+
+            LongHashSet recommended = new LongHashSet();
+            overlap.forEach((otherUserId, count) -> {
+                if (count == max[0]) {
+                    likesByUser.get(otherUserId).forEach(filmId -> {
+                        if (!userLikes.contains(filmId)) {
+                            recommended.add(filmId);
+                        }
+                    });
+                }
+            });
+            return toFilms(Arrays.stream(recommended.toSortedArray()).mapToObj(films::get).toList());
+        });
+    }
+
+    @Override
+    public List<Long> findUserLikedFilmIds(long userId) {
+        return readLocked(() -> {
+            LongHashSet filmIds = likesByUser.get(userId);
+            return filmIds == null ? List.of() : Arrays.stream(filmIds.toSortedArray()).boxed().toList();
+        });
+    }
+
+    @Override
+    public Map<Long, Integer> findLikesCounts(Collection<Long> filmIds) {
+        return readLocked(() -> {
+            Map<Long, Integer> result = new HashMap<>(filmIds.size() * 2);
+            for (Long filmId : filmIds) {
+                if (films.containsKey(filmId)) {
+                    result.put(filmId, likesOf(filmId));
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Map<Long, List<Long>> findAllUsersLikedFilmIds() {
+        return readLocked(() -> {
+            Map<Long, List<Long>> result = new HashMap<>(likesByUser.size() * 2);
+            likesByUser.forEach((userId, filmIds) -> {
+                if (!filmIds.isEmpty()) {
+                    result.put(userId, Arrays.stream(filmIds.toArray()).boxed().toList());
+                }
+            });
+            return result;
+        });
+    }
+
+    @Override
+    public List<Film> findAllByDirector(long directorId, String sortBy) {
+        return readLocked(() -> {
+            LongHashSet filmIds = filmsByDirector.get((int) directorId);
+            if (filmIds == null) {
+                return List.of();
+            }
+            if ("year".equals(sortBy)) {
+                return toFilms(Arrays.stream(filmIds.toSortedArray())
+                        .mapToObj(films::get)
+                        .sorted(Comparator.comparing(FilmRow::releaseDate))
+                        .toList());
+            }
+            List<Ranked> ranked = new ArrayList<>(filmIds.size());
+            filmIds.forEach(filmId -> ranked.add(rankOf(filmId)));
+            ranked.sort(MOST_LIKED_FIRST);
+            return toFilms(ranked.stream().map(rank -> films.get(rank.filmId())).toList());
+        });
+    }
+
+    @Override
+    public List<Film> search(String query, String by) {
+        return search(query, by, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> search(String query, String by, LikesCursor after, int limit) {
+        String lowerQuery = query.toLowerCase();
+        boolean byDirector = by.contains("director");
+        boolean byTitle = by.contains("title") || !byDirector;
+        Predicate<FilmRow> filter = row -> byTitle && row.name().toLowerCase().contains(lowerQuery)
+                || byDirector && directedBy(row, lowerQuery);
+        return readLocked(() -> {
+            NavigableSet<Ranked> candidates = after == null
+                    ? ranking
+                    : ranking.tailSet(new Ranked(after.likes(), after.filmId()), false);
+            return ranked(candidates, filter, limit);
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        lock.writeLock().lock();
+        try {
+            FilmRow row = films.remove(id);
+            if (row == null) {
+                throw new NotFoundException(ErrorMessages.filmNotFound(id));
+            }
+            removeFilm(row);
+            log("delete", id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        likePublisher.publish(listener -> listener.onFilmDeleted(id));
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+    }
+
+    @Override
+    public void onUserDeleted(long userId) {
+        lock.writeLock().lock();
+        try {
+            if (removeUserLikes(userId)) {
+                log("userDeleted", userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected Object captureState() {
+        Map<Long, long[]> likes = new HashMap<>(likesByFilm.size() * 2);
+        likesByFilm.forEach((filmId, userIds) -> {
+            if (!userIds.isEmpty()) {
+                likes.put(filmId, userIds.toSortedArray());
+            }
+        });
+        return new State(lastId, List.copyOf(films.values()), likes);
+    }
+
+    @Override
+    protected void restore(JsonNode node) {
+        State state = read(node, State.class);
+        lastId = state.lastId();
+        state.films().forEach(this::put);
+        state.likes().forEach((filmId, userIds) -> {
+            for (long userId : userIds) {
+                like(filmId, userId);
+            }
+        });
+    }
+
+    @Override
+    protected void replay(String op, JsonNode data) {
+        switch (op) {
+            case "save", "update" -> {
+                FilmRow row = read(data, FilmRow.class);
+                put(row);
+                lastId = Math.max(lastId, row.id());
+            }
+            case "like" -> {
+                Like like = read(data, Like.class);
+                like(like.filmId(), like.userId());
+            }
+            case "likes" -> {
+                for (Like like : read(data, Like[].class)) {
+                    like(like.filmId(), like.userId());
+                }
+            }
+            case "unlike" -> {
+                Like like = read(data, Like.class);
+                unlike(like.filmId(), like.userId());
+            }
+            case "delete" -> {
+                FilmRow row = films.remove(data.asLong());
+                if (row != null) {
+                    removeFilm(row);
+                }
+            }
+            case "userDeleted" -> removeUserLikes(data.asLong());
+            default -> throw new IllegalStateException("Unknown film journal operation: " + op);
+        }
+    }
+
+    @Override
+    protected <T> T withWritesPaused(Supplier<T> action) {
+        return readLocked(action);
+    }
+
+    private <T> T readLocked(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(FilmRow row) {
+        FilmRow previous = films.put(row.id(), row);
+        if (previous != null) {
+            for (int directorId : previous.directorIds()) {
+                filmsByDirector.get(directorId).remove(row.id());
+            }
+        } else {
+            ranking.add(new Ranked(0, row.id()));
+        }
+        for (int directorId : row.directorIds()) {
+            filmsByDirector.computeIfAbsent(directorId, id -> new LongHashSet()).add(row.id());
+        }
+    }
+
+    private void removeFilm(FilmRow row) {
+        ranking.remove(rankOf(row.id()));
+        for (int directorId : row.directorIds()) {
+            filmsByDirector.get(directorId).remove(row.id());
+        }
+        LongHashSet userIds = likesByFilm.remove(row.id());
+        if (userIds != null) {
+            userIds.forEach(userId -> likesByUser.get(userId).remove(row.id()));
+        }
+    }
+
+    private boolean like(long filmId, long userId) {
+        Ranked before = rankOf(filmId);
+        if (!likesByFilm.computeIfAbsent(filmId, id -> new LongHashSet()).add(userId)) {
+            return false;
+        }
+        likesByUser.computeIfAbsent(userId, id -> new LongHashSet()).add(filmId);
+        rerank(before);
+        return true;
+    }
+
+    private boolean unlike(long filmId, long userId) {
+        LongHashSet userIds = likesByFilm.get(filmId);
+        Ranked before = rankOf(filmId);
+        if (userIds == null || !userIds.remove(userId)) {
+            return false;
+        }
+        likesByUser.get(userId).remove(filmId);
+        rerank(before);
+        return true;
+    }
+
+    private boolean removeUserLikes(long userId) {
+        LongHashSet filmIds = likesByUser.remove(userId);
+        if (filmIds == null || filmIds.isEmpty()) {
+            return false;
+        }
+        filmIds.forEach(filmId -> {
+            Ranked before = rankOf(filmId);
+            likesByFilm.get(filmId).remove(userId);
+            rerank(before);
+        });
+        return true;
+    }
+
+    private void rerank(Ranked before) {
+        if (ranking.remove(before)) {
+            ranking.add(rankOf(before.filmId()));
+        }
+    }
+
+    private Ranked rankOf(long filmId) {
+        return new Ranked(likesOf(filmId), filmId);
+    }
+
+    private int likesOf(long filmId) {
+        LongHashSet userIds = likesByFilm.get(filmId);
+        return userIds == null ? 0 : userIds.size();
+    }
+
+    private List<Film> ranked(NavigableSet<Ranked> candidates, Predicate<FilmRow> filter, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, 64));
+        for (Ranked ranked : candidates) {
+            if (result.size() >= limit) {
+                break;
+            }
+            FilmRow row = films.get(ranked.filmId());
+            if (filter.test(row)) {
+                result.add(toFilm(row));
+            }
+        }
+        return result;
+    }
+
+    private boolean directedBy(FilmRow row, String lowerQuery) {
+        for (int directorId : row.directorIds()) {
+            Optional<Director> director = referenceData.findDirectorById(directorId);
+            if (director.isPresent() && director.get().getName().toLowerCase().contains(lowerQuery)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    private List<Film> toFilms(Collection<FilmRow> rows) {
+        List<Film> result = new ArrayList<>(rows.size());
+        for (FilmRow row : rows) {
+            result.add(toFilm(row));
+        }
+        return result;
+    }
+
+    private Film toFilm(FilmRow row) {
+        return Film.builder()
+                .id(row.id())
+                .name(row.name())
+                .description(row.description())
+                .releaseDate(row.releaseDate())
+                .duration(row.duration())
+                .mpa(referenceData.getMpa(row.mpaId()))
+                .genres(resolve(row.genreIds(),
+                        id -> referenceData.findGenreById(id).orElse(null)))
+                .directors(resolve(Arrays.stream(row.directorIds()).asLongStream().toArray(),
+                        id -> referenceData.findDirectorById(id).orElse(null)))
+                .likesCount(likesOf(row.id()))
+                .build();
+    }
+
+    private static <T> List<T> resolve(long[] ids, LongFunction<T> resolver) {
+        List<T> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            T value = resolver.apply(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Film as stored: reference data is kept by id, genre and director ids in ascending order.
+     */
+    private record FilmRow(long id, String name, String description, LocalDate releaseDate, int duration,
+                           long mpaId, long[] genreIds, int[] directorIds) {
+
+        private static FilmRow of(Film film) {
+            long[] genreIds = film.getGenres() == null ? new long[0] : film.getGenres().stream()
+                    .mapToLong(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            int[] directorIds = film.getDirectors() == null ? new int[0] : film.getDirectors().stream()
+                    .mapToInt(Director::getId)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            return new FilmRow(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), film.getMpa().getId(), genreIds, directorIds);
+        }
+    }
+
+    private record Ranked(int likes, long filmId) {
+    }
+
+    private record Like(long filmId, long userId) {
+    }
+
+    private record State(long lastId, List<FilmRow> films, Map<Long, long[]> likes) {
+    }
+}
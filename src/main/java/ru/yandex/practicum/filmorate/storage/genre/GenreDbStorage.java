@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -11,6 +13,7 @@ import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
 import java.util.*;
 
 @Repository
+@Profile("!in-memory")
 public class GenreDbStorage extends BaseDbStorage<Genre> implements GenreStorage {
     private static final String FIND_ALL_GENRE = "SELECT * FROM genres ORDER BY id";
     private static final String FIND_GENRE_BY_ID = "SELECT * FROM genres WHERE id = ?";
@@ -23,7 +26,7 @@ public class GenreDbStorage extends BaseDbStorage<Genre> implements GenreStorage
             WHERE fg.film_id IN (:filmIds)
             ORDER BY id
             """;
-    private static final String EXISTS_GENRES = "";
+    private static final String EXISTS_GENRE = "SELECT EXISTS(SELECT 1 FROM genres WHERE id = ?)";
 
     public GenreDbStorage(JdbcTemplate jdbc,
                           NamedParameterJdbcTemplate namedJdbc,
@@ -70,7 +73,7 @@ public class GenreDbStorage extends BaseDbStorage<Genre> implements GenreStorage
         MapSqlParameterSource parameters = new MapSqlParameterSource()
                 .addValue("filmIds", filmIds);
 
-        return namedJdbc.query(FIND_GENRES_BY_FILM_IDS, parameters, rs -> {
+        ResultSetExtractor<Map<Long, List<Genre>>> extractor = rs -> {
             Map<Long, List<Genre>> result = new HashMap<>();
 
             while (rs.next()) {
@@ -81,16 +84,20 @@ public class GenreDbStorage extends BaseDbStorage<Genre> implements GenreStorage
             }
 
             return result;
-        });
+        };
+
+        return measure("findMany", FIND_GENRES_BY_FILM_IDS,
+                () -> namedJdbc.query(FIND_GENRES_BY_FILM_IDS, parameters, extractor),
+                result -> result.values().stream().mapToInt(List::size).sum());
     }
 
     @Override
     public boolean isExistById(long id) {
-        return exists(EXISTS_GENRES, id);
+        return exists(EXISTS_GENRE, id);
     }
 
     @Override
     public boolean isExistByIds(List<Long> ids) {
-        return !findGenresByIds(ids).isEmpty();
+        return findGenreIdsByIds(ids).size() == new HashSet<>(ids).size();
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+
+/**
+ * Genres of the in-memory profile. They are seed data that is never changed through the API,
+ * so the storage holds the rows of {@code data.sql} and needs no journal.
+ */
+@Component
+@Profile("in-memory")
+public class InMemoryGenreStorage implements GenreStorage {
+
+    private static final List<Genre> GENRES = List.of(
+            genre(1, "Комедия"),
+            genre(2, "Драма"),
+            genre(3, "Мультфильм"),
+            genre(4, "Триллер"),
+            genre(5, "Документальный"),
+            genre(6, "Боевик"));
+
+    // Хранилище фильмов само зависит от жанров через кэш справочников
+    private final ObjectProvider<FilmStorage> filmStorage;
+
+    public InMemoryGenreStorage(ObjectProvider<FilmStorage> filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    public List<Genre> findAll() {
+        return GENRES.stream().map(InMemoryGenreStorage::copyOf).toList();
+    }
+
+    @Override
+    public Optional<Genre> findById(long id) {
+        return GENRES.stream()
+                .filter(genre -> genre.getId() == id)
+                .findFirst()
+                .map(InMemoryGenreStorage::copyOf);
+    }
+
+    @Override
+    public List<Genre> findGenresByIds(List<Long> genreIds) {
+        if (genreIds == null || genreIds.isEmpty()) return Collections.emptyList();
+
+        Set<Long> uniqueIds = new HashSet<>(genreIds);
+        return GENRES.stream()
+                .filter(genre -> uniqueIds.contains(genre.getId()))
+                .map(InMemoryGenreStorage::copyOf)
+                .toList();
+    }
+
+    @Override
+    public List<Long> findGenreIdsByIds(List<Long> genreIds) {
+        return findGenresByIds(genreIds).stream()
+                .map(Genre::getId)
+                .toList();
+    }
+
+    @Override
+    public Map<Long, List<Genre>> findGenresByFilmIds(List<Long> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) return Collections.emptyMap();
+
+        Map<Long, List<Genre>> result = new HashMap<>();
+        for (Film film : filmStorage.getObject().findFilmsByIds(filmIds)) {
+            if (!film.getGenres().isEmpty()) {
+                result.put(film.getId(), film.getGenres());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isExistById(long id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public boolean isExistByIds(List<Long> ids) {
+        return findGenreIdsByIds(ids).size() == new HashSet<>(ids).size();
+    }
+
+    private static Genre genre(long id, String name) {
+        return Genre.builder().id(id).name(name).build();
+    }
+
+    private static Genre copyOf(Genre genre) {
+        return genre(genre.getId(), genre.getName());
+    }
+}
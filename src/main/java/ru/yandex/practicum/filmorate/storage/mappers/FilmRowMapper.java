@@ -4,17 +4,24 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
 
+/**
+ * Maps a film row. The film queries aggregate genre and director ids into the comma-separated
+ * {@code genre_ids} and {@code director_ids} columns, and the MPA rating, genres and directors
+ * themselves are taken from the {@link ReferenceDataCache}.
+ */
 @Component
 @RequiredArgsConstructor
 public class FilmRowMapper implements RowMapper<Film> {
 
-    private final RowMapper<Mpa> mpaRowMapper;
+    private final ReferenceDataCache referenceData;
 
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -24,9 +31,33 @@ public class FilmRowMapper implements RowMapper<Film> {
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("release_date").toLocalDate())
                 .duration(rs.getInt("duration"))
-                .mpa(mpaRowMapper.mapRow(rs, rowNum))
-                .genres(new ArrayList<>())
-                .directors(new ArrayList<>())
+                .mpa(referenceData.getMpa(rs.getLong("mpa_rating_id")))
+                .genres(resolveIds(rs.getString("genre_ids"),
+                        id -> referenceData.findGenreById(id).orElse(null)))
+                .directors(resolveIds(rs.getString("director_ids"),
+                        id -> referenceData.findDirectorById(id).orElse(null)))
+                .likesCount(rs.getInt("likes_count"))
                 .build();
     }
+
+    private static <T> List<T> resolveIds(String ids, LongFunction<T> resolver) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<T> result = new ArrayList<>();
+        long id = 0;
+        for (int i = 0; i <= ids.length(); i++) {
+            if (i == ids.length() || ids.charAt(i) == ',') {
+                T value = resolver.apply(id);
+                // Удалённая между запросами запись просто пропускается
+                if (value != null) {
+                    result.add(value);
+                }
+                id = 0;
+            } else {
+                id = id * 10 + (ids.charAt(i) - '0');
+            }
+        }
+        return result;
+    }
 }
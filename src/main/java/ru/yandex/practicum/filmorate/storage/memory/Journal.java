@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead log of one in-memory storage, kept in its own directory.
+ * <p>
+ * Changes are appended as JSON lines to numbered segments {@code wal-NNNNNN.log}. A checkpoint
+ * starts a new segment and writes {@code snapshot.json} holding the state as of that moment
+ * together with the number of the first segment not covered by it; older segments are then
+ * deleted. Recovery restores the snapshot and replays the remaining segments in order.
+ * A crash can only tear the last line of a segment, so such a line is skipped.
+ */
+@Slf4j
+public class Journal implements AutoCloseable {
+
+    static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final Path directory;
+    private final ObjectMapper mapper;
+    private final boolean fsync;
+
+    private long segment;
+    private FileOutputStream out;
+    private boolean dirty;
+
+    public Journal(Path directory, ObjectMapper mapper, boolean fsync) {
+        this.directory = directory;
+        this.mapper = mapper;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Passes the snapshot state, if there is one, to {@code restore} and then every logged
+     * change after it to {@code replay}, and opens a fresh segment for new changes.
+     */
+    public synchronized void recover(Consumer<JsonNode> restore, BiConsumer<String, JsonNode> replay) {
+        try {
+            Files.createDirectories(directory);
+            long firstSegment = 0;
+            Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshotFile)) {
+                JsonNode snapshot = mapper.readTree(snapshotFile.toFile());
+                firstSegment = snapshot.get("segment").asLong();
+                restore.accept(snapshot.get("state"));
+            }
+
+            long lastSegment = firstSegment - 1;
+            int replayed = 0;
+            for (long number : segmentNumbers()) {
+                if (number >= firstSegment) {
+                    replayed += replaySegment(segmentFile(number), replay);
+                }
+                lastSegment = Math.max(lastSegment, number);
+            }
+            openSegment(lastSegment + 1);
+            log.info("Journal {} recovered: snapshot up to segment {}, {} changes replayed",
+                    directory, firstSegment, replayed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover journal " + directory, e);
+        }
+    }
+
+    public synchronized void append(String op, Object data) {
+        try {
+            out.write(mapper.writeValueAsBytes(new Entry(op, data)));
+            out.write(NEW_LINE);
+            out.flush();
+            if (fsync) {
+                out.getChannel().force(false);
+            }
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to journal " + directory, e);
+        }
+    }
+
+    /**
+     * Starts a new segment and serializes the state as of this moment. Must be called while the
+     * storage accepts no changes, so the state matches the end of the closed segment exactly.
+     *
+     * @return the checkpoint to {@link #write}, or {@code null} when nothing changed since the last one
+     */
+    public synchronized Checkpoint checkpoint(Object state) {
+        if (!dirty) {
+            return null;
+        }
+        try {
+            byte[] snapshot = mapper.writeValueAsBytes(new Snapshot(segment + 1, state));
+            openSegment(segment + 1);
+            dirty = false;
+            return new Checkpoint(segment, snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to checkpoint journal " + directory, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot next to the log and deletes the segments it covers. Runs outside the
+     * storage's write pause: until the snapshot file is replaced the old one plus all segments
+     * still describe the same state.
+     */
+    public void write(Checkpoint checkpoint) {
+        try {
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileOutputStream snapshotOut = new FileOutputStream(temp.toFile())) {
+                snapshotOut.write(checkpoint.snapshot());
+                snapshotOut.getChannel().force(true);
+            }
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            for (long number : segmentNumbers()) {
+                if (number < checkpoint.segment()) {
+                    Files.deleteIfExists(segmentFile(number));
+                }
+            }
+            log.debug("Journal {} snapshot written, {} bytes", directory, checkpoint.snapshot().length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot of journal " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close journal " + directory, e);
+        }
+    }
+
+    private int replaySegment(Path file, BiConsumer<String, JsonNode> replay) throws IOException {
+        List<String> lines;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            lines = reader.lines().toList();
+        }
+        int replayed = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode entry;
+            try {
+                entry = mapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                if (i == lines.size() - 1) {
+                    log.warn("Skipping torn last entry of {}", file);
+                    break;
+                }
+                throw new IllegalStateException("Corrupted entry " + (i + 1) + " in " + file, e);
+            }
+            replay.accept(entry.get("op").asText(), entry.get("data"));
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private void openSegment(long number) throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        segment = number;
+        out = new FileOutputStream(segmentFile(number).toFile(), true);
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    public record Checkpoint(long segment, byte[] snapshot) {
+    }
+
+    private record Entry(String op, Object data) {
+    }
+
+    private record Snapshot(long segment, Object state) {
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Opens the journals of the in-memory storages under {@code filmorate.memory.directory},
+ * one subdirectory per storage, and converts their JSON back into objects.
+ */
+@Component
+@Profile("in-memory")
+public class JournalFactory {
+
+    private final Path directory;
+    private final ObjectMapper mapper;
+    private final boolean fsync;
+
+    @Autowired
+    public JournalFactory(@Value("${filmorate.memory.directory}") Path directory,
+                          ObjectMapper mapper,
+                          @Value("${filmorate.memory.fsync}") boolean fsync) {
+        this.directory = directory;
+        this.mapper = mapper;
+        this.fsync = fsync;
+    }
+
+    public Journal open(String name) {
+        return new Journal(directory.resolve(name), mapper, fsync);
+    }
+
+    public <T> T read(JsonNode node, Class<T> type) {
+        try {
+            return mapper.treeToValue(node, type);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read journal entry as " + type.getSimpleName(), e);
+        }
+    }
+}
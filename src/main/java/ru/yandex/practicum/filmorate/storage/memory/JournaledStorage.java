@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.function.Supplier;
+
+/**
+ * Base of the in-memory storages that survive restarts through a {@link Journal}.
+ * <p>
+ * A storage applies every change to its structures and logs it while still holding its write
+ * lock, so the log order is the order the changes were applied in. On startup the last snapshot
+ * is restored and the log replayed; a periodic checkpoint pauses writes only long enough to
+ * serialize the state and switch to a new segment.
+ */
+public abstract class JournaledStorage {
+
+    private final JournalFactory journals;
+    private final Journal journal;
+
+    protected JournaledStorage(JournalFactory journals, String name) {
+        this.journals = journals;
+        this.journal = journals.open(name);
+    }
+
+    @PostConstruct
+    public void recover() {
+        journal.recover(this::restore, this::replay);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.memory.snapshot-interval}")
+    public void snapshot() {
+        Journal.Checkpoint checkpoint = withWritesPaused(() -> journal.checkpoint(captureState()));
+        if (checkpoint != null) {
+            journal.write(checkpoint);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshot();
+        journal.close();
+    }
+
+    protected void log(String op, Object data) {
+        journal.append(op, data);
+    }
+
+    protected <T> T read(JsonNode node, Class<T> type) {
+        return journals.read(node, type);
+    }
+
+    /**
+     * Returns the state to snapshot. Called with writes paused; the result is serialized before
+     * they resume, so it may share structures with the storage.
+     */
+    protected abstract Object captureState();
+
+    protected abstract void restore(JsonNode state);
+
+    protected abstract void replay(String op, JsonNode data);
+
+    protected abstract <T> T withWritesPaused(Supplier<T> action);
+}
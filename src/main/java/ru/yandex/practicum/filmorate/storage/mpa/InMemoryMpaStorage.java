@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage.mpa;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * MPA ratings of the in-memory profile. They are seed data that is never changed through the
+ * API, so the storage holds the rows of {@code data.sql} and needs no journal.
+ */
+@Component
+@Profile("in-memory")
+public class InMemoryMpaStorage implements MpaStorage {
+
+    private static final List<Mpa> RATINGS = List.of(
+            mpa(1, "G", "Нет возрастных ограничений"),
+            mpa(2, "PG", "Рекомендуется присутствие родителей"),
+            mpa(3, "PG-13", "Детям до 13 лет просмотр не желателен"),
+            mpa(4, "R", "Лицам до 17 лет только с родителями"),
+            mpa(5, "NC-17", "Лицам до 18 лет просмотр запрещён"));
+
+    // Хранилище фильмов само зависит от рейтингов через кэш справочников
+    private final ObjectProvider<FilmStorage> filmStorage;
+
+    public InMemoryMpaStorage(ObjectProvider<FilmStorage> filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    public List<Mpa> findAll() {
+        return RATINGS.stream().map(InMemoryMpaStorage::copyOf).toList();
+    }
+
+    @Override
+    public Optional<Mpa> findById(long id) {
+        return RATINGS.stream()
+                .filter(mpa -> mpa.getId() == id)
+                .findFirst()
+                .map(InMemoryMpaStorage::copyOf);
+    }
+
+    @Override
+    public Set<Mpa> findByIdIn(Set<Long> mpaIds) {
+        return RATINGS.stream()
+                .filter(mpa -> mpaIds.contains(mpa.getId()))
+                .map(InMemoryMpaStorage::copyOf)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean isExistById(Long mpaId) {
+        return mpaId != null && findById(mpaId).isPresent();
+    }
+
+    @Override
+    public Map<Long, Mpa> findMpasByFilmIds(List<Long> filmIds) {
+        Map<Long, Mpa> result = new HashMap<>();
+        for (Film film : filmStorage.getObject().findFilmsByIds(filmIds)) {
+            result.put(film.getId(), film.getMpa());
+        }
+        return result;
+    }
+
+    private static Mpa mpa(long id, String name, String description) {
+        return Mpa.builder().id(id).name(name).description(description).build();
+    }
+
+    private static Mpa copyOf(Mpa mpa) {
+        return mpa(mpa.getId(), mpa.getName(), mpa.getDescription());
+    }
+}
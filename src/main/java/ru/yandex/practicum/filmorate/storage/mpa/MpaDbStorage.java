@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.storage.mpa;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -11,6 +13,7 @@ import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
 import java.util.*;
 
 @Repository
+@Profile("!in-memory")
 public class MpaDbStorage extends BaseDbStorage<Mpa> implements MpaStorage {
     private static final String FIND_ALL_MPA = "SELECT * FROM mpa_ratings";
     private static final String FIND_MPA_BY_ID = "SELECT * FROM mpa_ratings WHERE mpa_id = ?";
@@ -57,7 +60,7 @@ public class MpaDbStorage extends BaseDbStorage<Mpa> implements MpaStorage {
         MapSqlParameterSource parameters = new MapSqlParameterSource()
                 .addValue("filmIds", filmIds);
 
-        return namedJdbc.query(FIND_MPA_BY_FILM_IDS, parameters, rs -> {
+        ResultSetExtractor<Map<Long, Mpa>> extractor = rs -> {
             Map<Long, Mpa> result = new HashMap<>();
 
             while (rs.next()) {
@@ -68,6 +71,10 @@ public class MpaDbStorage extends BaseDbStorage<Mpa> implements MpaStorage {
             }
 
             return result;
-        });
+        };
+
+        return measure("findMany", FIND_MPA_BY_FILM_IDS,
+                () -> namedJdbc.query(FIND_MPA_BY_FILM_IDS, parameters, extractor),
+                Map::size);
     }
 }
\ No newline at end of file
@@ -0,0 +1,441 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ErrorMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.VoteType;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeListener;
+import ru.yandex.practicum.filmorate.storage.memory.JournalFactory;
+import ru.yandex.practicum.filmorate.storage.memory.JournaledStorage;
+import ru.yandex.practicum.filmorate.utils.collection.LongHashSet;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Review storage of the in-memory profile. Reviews are indexed by film and by author, votes by
+ * review and by voter, and a set ordered by usefulness serves the list of all reviews.
+ * <p>
+ * Reviews of a deleted film or user and the votes of a deleted user are removed when the
+ * film or user storage reports the deletion, as the foreign keys do in the database.
+ */
+@Component
+@Profile("in-memory")
+@Slf4j
+public class InMemoryReviewStorage extends JournaledStorage implements ReviewStorage, FilmLikeListener {
+
+    private static final Comparator<ReviewRow> MOST_USEFUL_FIRST = Comparator.comparingInt(ReviewRow::useful)
+            .reversed()
+            .thenComparingLong(ReviewRow::reviewId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, ReviewRow> reviews = new HashMap<>();
+    private final NavigableSet<ReviewRow> ranking = new TreeSet<>(MOST_USEFUL_FIRST);
+    private final Map<Long, LongHashSet> reviewsByFilm = new HashMap<>();
+    private final Map<Long, LongHashSet> reviewsByUser = new HashMap<>();
+    private final Map<Long, Map<Long, VoteType>> votes = new HashMap<>();
+    private final Map<Long, LongHashSet> votedByUser = new HashMap<>();
+    private long lastId;
+
+    public InMemoryReviewStorage(JournalFactory journals) {
+        super(journals, "reviews");
+    }
+
+    @Override
+    public Review save(Review review) {
+        LocalDateTime now = LocalDateTime.now();
+        lock.writeLock().lock();
+        try {
+            review.setReviewId(++lastId);
+            ReviewRow row = new ReviewRow(review.getReviewId(), review.getContent(), review.getIsPositive(),
+                    review.getUserId(), review.getFilmId(), 0, now, now);
+            put(row);
+            log("save", row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return review;
+    }
+
+    @Override
+    public Review update(Review review) {
+        lock.writeLock().lock();
+        try {
+            ReviewRow row = reviews.get(review.getReviewId());
+            if (row == null) {
+                throw new NotFoundException(ErrorMessages.reviewNotFound(review.getReviewId()));
+            }
+            ReviewRow updated = new ReviewRow(row.reviewId(), review.getContent(), review.getIsPositive(),
+                    row.userId(), row.filmId(), row.useful(), row.createdAt(), LocalDateTime.now());
+            put(updated);
+            log("save", updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return review;
+    }
+
+    @Override
+    public void delete(long id) {
+        lock.writeLock().lock();
+        try {
+            if (!remove(id)) {
+                throw new NotFoundException(ErrorMessages.reviewNotFound(id));
+            }
+            log("delete", id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Review> findAll(int count) {
+        return readLocked(() -> ranking.stream()
+                .limit(count)
+                .map(ReviewRow::toReview)
+                .toList());
+    }
+
+    @Override
+    public List<Review> findByFilmId(long filmId, int limit) {
+        return readLocked(() -> {
+            LongHashSet reviewIds = reviewsByFilm.get(filmId);
+            if (reviewIds == null) {
+                return List.of();
+            }
+            List<ReviewRow> rows = new ArrayList<>(reviewIds.size());
+            reviewIds.forEach(reviewId -> rows.add(reviews.get(reviewId)));
+            return rows.stream()
+                    .sorted(MOST_USEFUL_FIRST)
+                    .limit(limit)
+                    .map(ReviewRow::toReview)
+                    .toList();
+        });
+    }
+
+    @Override
+    public Optional<Review> findById(long reviewId) {
+        return readLocked(() -> Optional.ofNullable(reviews.get(reviewId)).map(ReviewRow::toReview));
+    }
+
+    @Override
+    public boolean isExistById(long reviewId) {
+        return readLocked(() -> reviews.containsKey(reviewId));
+    }
+
+    @Override
+    public void addVote(long id, long userId, VoteType voteType) {
+        lock.writeLock().lock();
+        try {
+            if (!reviews.containsKey(id)) {
+                throw new NotFoundException(ErrorMessages.reviewNotFound(id));
+            }
+            vote(id, userId, voteType);
+            log("vote", new Vote(id, userId, voteType));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateVote(long id, long userId, VoteType voteType) {
+        lock.writeLock().lock();
+        try {
+            VoteType current = findVote(id, userId);
+            if (current == null) {
+                throw new NotFoundException(ErrorMessages.voteNotFound(id, userId));
+            }
+            if (current != voteType) {
+                vote(id, userId, voteType);
+                log("vote", new Vote(id, userId, voteType));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteVote(long id, long userId, VoteType voteType) {
+        lock.writeLock().lock();
+        try {
+            if (findVote(id, userId) != voteType) {
+                throw new NotFoundException(ErrorMessages.voteNotFound(id, userId));
+            }
+            unvote(id, userId);
+            log("unvote", new Vote(id, userId, voteType));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int reconcileUseful() {
+        lock.writeLock().lock();
+        try {
+            int repaired = 0;
+            for (ReviewRow row : List.copyOf(reviews.values())) {
+                int useful = usefulOf(row.reviewId());
+                if (row.useful() != useful) {
+                    ReviewRow updated = row.withUseful(useful, LocalDateTime.now());
+                    put(updated);
+                    log("save", updated);
+                    repaired++;
+                }
+            }
+            return repaired;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<VoteType> findUserVote(long reviewId, long userId) {
+        return readLocked(() -> Optional.ofNullable(findVote(reviewId, userId)));
+    }
+
+    @Override
+    public boolean existsByUserAndFilm(Long userId, Long filmId) {
+        return readLocked(() -> {
+            LongHashSet reviewIds = reviewsByFilm.get(filmId);
+            if (reviewIds == null) {
+                return false;
+            }
+            boolean[] found = {false};
+            reviewIds.forEach(reviewId -> found[0] |= reviews.get(reviewId).userId() == userId);
+            return found[0];
+        });
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        lock.writeLock().lock();
+        try {
+            if (removeFilmReviews(filmId)) {
+                log("filmDeleted", filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onUserDeleted(long userId) {
+        lock.writeLock().lock();
+        try {
+            if (removeUserReviewsAndVotes(userId)) {
+                log("userDeleted", userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected Object captureState() {
+        List<Vote> allVotes = new ArrayList<>();
+        votes.forEach((reviewId, byUser) ->
+                byUser.forEach((userId, voteType) -> allVotes.add(new Vote(reviewId, userId, voteType))));
+        return new State(lastId, List.copyOf(reviews.values()), allVotes);
+    }
+
+    @Override
+    protected void restore(JsonNode node) {
+        State state = read(node, State.class);
+        lastId = state.lastId();
+        state.reviews().forEach(this::put);
+        // Полезность уже в снимке отзывов, голоса только раскладываем по индексам
+        state.votes().forEach(vote -> putVote(vote.reviewId(), vote.userId(), vote.voteType()));
+    }
+
+    @Override
+    protected void replay(String op, JsonNode data) {
+        switch (op) {
+            case "save" -> {
+                ReviewRow row = read(data, ReviewRow.class);
+                put(row);
+                lastId = Math.max(lastId, row.reviewId());
+            }
+            case "delete" -> remove(data.asLong());
+            case "vote" -> {
+                Vote vote = read(data, Vote.class);
+                vote(vote.reviewId(), vote.userId(), vote.voteType());
+            }
+            case "unvote" -> {
+                Vote vote = read(data, Vote.class);
+                unvote(vote.reviewId(), vote.userId());
+            }
+            case "filmDeleted" -> removeFilmReviews(data.asLong());
+            case "userDeleted" -> removeUserReviewsAndVotes(data.asLong());
+            default -> throw new IllegalStateException("Unknown review journal operation: " + op);
+        }
+    }
+
+    @Override
+    protected <T> T withWritesPaused(Supplier<T> action) {
+        return readLocked(action);
+    }
+
+    private <T> T readLocked(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(ReviewRow row) {
+        ReviewRow previous = reviews.put(row.reviewId(), row);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(row);
+        reviewsByFilm.computeIfAbsent(row.filmId(), id -> new LongHashSet()).add(row.reviewId());
+        reviewsByUser.computeIfAbsent(row.userId(), id -> new LongHashSet()).add(row.reviewId());
+    }
+
+    private boolean remove(long reviewId) {
+        ReviewRow row = reviews.remove(reviewId);
+        if (row == null) {
+            return false;
+        }
+        ranking.remove(row);
+        removeFrom(reviewsByFilm, row.filmId(), reviewId);
+        removeFrom(reviewsByUser, row.userId(), reviewId);
+        Map<Long, VoteType> reviewVotes = votes.remove(reviewId);
+        if (reviewVotes != null) {
+            reviewVotes.keySet().forEach(userId -> removeFrom(votedByUser, userId, reviewId));
+        }
+        return true;
+    }
+
+    private static void removeFrom(Map<Long, LongHashSet> index, long ownerId, long id) {
+        LongHashSet ids = index.get(ownerId);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    private boolean removeFilmReviews(long filmId) {
+        LongHashSet reviewIds = reviewsByFilm.remove(filmId);
+        if (reviewIds == null || reviewIds.isEmpty()) {
+            return false;
+        }
+        for (long reviewId : reviewIds.toArray()) {
+            remove(reviewId);
+        }
+        return true;
+    }
+
+    private boolean removeUserReviewsAndVotes(long userId) {
+        LongHashSet reviewIds = reviewsByUser.remove(userId);
+        LongHashSet votedIds = votedByUser.remove(userId);
+        if (reviewIds != null) {
+            for (long reviewId : reviewIds.toArray()) {
+                remove(reviewId);
+            }
+        }
+        if (votedIds != null) {
+            // С отзывов, за которые голосовал пользователь, снимаем вес его голосов
+            votedIds.forEach(reviewId -> {
+                VoteType previous = removeVote(reviewId, userId);
+                if (previous != null) {
+                    addUseful(reviewId, -previous.getWeight());
+                }
+            });
+        }
+        return reviewIds != null && !reviewIds.isEmpty() || votedIds != null && !votedIds.isEmpty();
+    }
+
+    private void vote(long reviewId, long userId, VoteType voteType) {
+        VoteType previous = putVote(reviewId, userId, voteType);
+        addUseful(reviewId, voteType.getWeight() - (previous == null ? 0 : previous.getWeight()));
+    }
+
+    private void unvote(long reviewId, long userId) {
+        VoteType previous = removeVote(reviewId, userId);
+        if (previous != null) {
+            addUseful(reviewId, -previous.getWeight());
+        }
+    }
+
+    private VoteType putVote(long reviewId, long userId, VoteType voteType) {
+        votedByUser.computeIfAbsent(userId, id -> new LongHashSet()).add(reviewId);
+        return votes.computeIfAbsent(reviewId, id -> new HashMap<>()).put(userId, voteType);
+    }
+
+    private VoteType removeVote(long reviewId, long userId) {
+        Map<Long, VoteType> reviewVotes = votes.get(reviewId);
+        VoteType previous = reviewVotes == null ? null : reviewVotes.remove(userId);
+        if (previous != null) {
+            removeFrom(votedByUser, userId, reviewId);
+        }
+        return previous;
+    }
+
+    private void addUseful(long reviewId, int delta) {
+        ReviewRow row = reviews.get(reviewId);
+        if (row != null && delta != 0) {
+            put(row.withUseful(row.useful() + delta, LocalDateTime.now()));
+        }
+    }
+
+    private VoteType findVote(long reviewId, long userId) {
+        Map<Long, VoteType> reviewVotes = votes.get(reviewId);
+        return reviewVotes == null ? null : reviewVotes.get(userId);
+    }
+
+    private int usefulOf(long reviewId) {
+        Map<Long, VoteType> reviewVotes = votes.get(reviewId);
+        if (reviewVotes == null) {
+            return 0;
+        }
+        int useful = 0;
+        for (VoteType voteType : reviewVotes.values()) {
+            useful += voteType.getWeight();
+        }
+        return useful;
+    }
+
+    private record ReviewRow(long reviewId, String content, boolean positive, long userId, long filmId,
+                             int useful, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+        private ReviewRow withUseful(int newUseful, LocalDateTime now) {
+            return new ReviewRow(reviewId, content, positive, userId, filmId, newUseful, createdAt, now);
+        }
+
+        private Review toReview() {
+            return Review.builder()
+                    .reviewId(reviewId)
+                    .content(content)
+                    .isPositive(positive)
+                    .userId(userId)
+                    .filmId(filmId)
+                    .useful(useful)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+
+    private record Vote(long reviewId, long userId, VoteType voteType) {
+    }
+
+    private record State(long lastId, List<ReviewRow> reviews, List<Vote> votes) {
+    }
+}
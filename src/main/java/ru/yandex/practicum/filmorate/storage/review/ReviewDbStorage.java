@@ -1,19 +1,24 @@
 package ru.yandex.practicum.filmorate.storage.review;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.ErrorMessages;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.VoteType;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.ExistenceCache;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository("reviewDbStorage")
+@Profile("!in-memory")
 @Slf4j
 public class ReviewDbStorage extends BaseDbStorage<Review> implements ReviewStorage {
 
@@ -41,29 +46,41 @@ public class ReviewDbStorage extends BaseDbStorage<Review> implements ReviewStor
             INSERT INTO review_votes (review_id, user_id, vote_type, created_at, updated_at)
             VALUES (?, ?, ?, ?, ?)
             """;
+    // Меняет только голос другого типа, чтобы по числу строк понять, нужна ли поправка
     public static final String UPDATE_VOTE = """
             UPDATE review_votes
             SET vote_type = ?, updated_at = ?
-            WHERE review_id = ? AND user_id = ?
+            WHERE review_id = ? AND user_id = ? AND vote_type <> ?
             """;
-    public static final String DELETE_VOTE = "DELETE FROM review_votes WHERE review_id = ? and user_id = ?";
-    public static final String UPDATE_REVIEW_USEFUL = """
+    public static final String DELETE_VOTE =
+            "DELETE FROM review_votes WHERE review_id = ? and user_id = ? and vote_type = ?";
+    public static final String ADD_REVIEW_USEFUL = """
+            UPDATE reviews
+            SET useful = useful + ?, updated_at = ?
+            WHERE review_id = ?
+            """;
+    public static final String RECONCILE_USEFUL = """
             UPDATE reviews r
             SET useful = (
-                SELECT COALESCE(
-                    SUM(CASE WHEN v.vote_type = 'LIKE' THEN 1 ELSE -1 END),
-                    0
-                )
+                SELECT COALESCE(SUM(CASE WHEN v.vote_type = 'LIKE' THEN 1 ELSE -1 END), 0)
                 FROM review_votes v
                 WHERE v.review_id = r.review_id
-            ), updated_at = ?
-            WHERE review_id = ?
+            )
+            WHERE useful <> (
+                SELECT COALESCE(SUM(CASE WHEN v.vote_type = 'LIKE' THEN 1 ELSE -1 END), 0)
+                FROM review_votes v
+                WHERE v.review_id = r.review_id
+            )
             """;
 
+    private final ExistenceCache existenceCache;
+
     public ReviewDbStorage(JdbcTemplate jdbc,
                            NamedParameterJdbcTemplate namedJdbc,
-                           RowMapper<Review> rowMapper) {
+                           RowMapper<Review> rowMapper,
+                           ExistenceCache existenceCache) {
         super(jdbc, namedJdbc, rowMapper);
+        this.existenceCache = existenceCache;
     }
 
     @Override
@@ -79,6 +96,7 @@ public class ReviewDbStorage extends BaseDbStorage<Review> implements ReviewStor
         );
 
         review.setReviewId(id);
+        existenceCache.added(ExistenceCache.Entity.REVIEW, id);
 
         return review;
     }
@@ -98,6 +116,7 @@ public class ReviewDbStorage extends BaseDbStorage<Review> implements ReviewStor
 
     @Override
     public void delete(long id) {
+        existenceCache.removed(ExistenceCache.Entity.REVIEW, id);
         update(DELETE_REVIEW, id);
     }
 
@@ -118,38 +137,45 @@ public class ReviewDbStorage extends BaseDbStorage<Review> implements ReviewStor
 
     @Override
     public boolean isExistById(long reviewId) {
-        return exists(EXISTS_BY_ID, reviewId);
+        return existenceCache.exists(ExistenceCache.Entity.REVIEW, reviewId, () -> exists(EXISTS_BY_ID, reviewId));
     }
 
     @Override
     public void addVote(long id, long userId, VoteType voteType) {
+        LocalDateTime now = LocalDateTime.now();
         insert(
                 INSERT_VOTE,
                 id,
                 userId,
                 voteType.name(),
-                LocalDateTime.now(),
-                LocalDateTime.now()
+                now,
+                now
         );
+        addUseful(id, voteType.getWeight(), now);
     }
 
     @Override
     public void updateVote(long id, long userId, VoteType voteType) {
-        update(UPDATE_VOTE, voteType.name(), LocalDateTime.now(), id, userId);
+        LocalDateTime now = LocalDateTime.now();
+        if (updateWithoutCheck(UPDATE_VOTE, voteType.name(), now, id, userId, voteType.name()) > 0) {
+            // Голос сменил знак: минус старый вес, плюс новый
+            addUseful(id, 2 * voteType.getWeight(), now);
+        } else if (findUserVote(id, userId).isEmpty()) {
+            throw new NotFoundException(ErrorMessages.voteNotFound(id, userId));
+        }
     }
 
     @Override
     public void deleteVote(long id, long userId, VoteType voteType) {
-        update(DELETE_VOTE, id, userId);
+        if (!delete(DELETE_VOTE, id, userId, voteType.name())) {
+            throw new NotFoundException(ErrorMessages.voteNotFound(id, userId));
+        }
+        addUseful(id, -voteType.getWeight(), LocalDateTime.now());
     }
 
     @Override
-    public void updateReviewUseful(long reviewId) {
-        update(
-                UPDATE_REVIEW_USEFUL,
-                LocalDateTime.now(),
-                reviewId
-        );
+    public int reconcileUseful() {
+        return measure("update", RECONCILE_USEFUL, () -> jdbc.update(RECONCILE_USEFUL), Integer::intValue);
     }
 
     @Override
@@ -162,4 +188,8 @@ public class ReviewDbStorage extends BaseDbStorage<Review> implements ReviewStor
     public boolean existsByUserAndFilm(Long userId, Long filmId) {
         return exists(EXISTS_BY_USER_AND_FILM, userId, filmId);
     }
+
+    private void addUseful(long reviewId, int delta, LocalDateTime now) {
+        update(ADD_REVIEW_USEFUL, delta, now, reviewId);
+    }
 }
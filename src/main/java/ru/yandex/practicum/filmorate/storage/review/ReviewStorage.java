@@ -27,7 +27,7 @@ public interface ReviewStorage {
 
     void deleteVote(long id, long userId, VoteType voteType);
 
-    void updateReviewUseful(long reviewId);
+    int reconcileUseful();
 
     Optional<VoteType> findUserVote(long reviewId, long userId);
 
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.utils.TransactionCallbacks;
+import ru.yandex.practicum.filmorate.utils.collection.CsrMatrix;
+import ru.yandex.practicum.filmorate.utils.collection.LongObjectHashMap;
+import ru.yandex.practicum.filmorate.utils.collection.OverlayMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of the directed {@code friendships} table: row {@code u} holds the ids of
+ * the users {@code u} has added as friends, column {@code u} the users who added {@code u}.
+ * <p>
+ * Changes are applied once the transaction that made them commits and land in a small delta
+ * on top of a CSR base; a background compaction folds the delta into a fresh base. Rows come
+ * out sorted, so common friends are a linear merge of two rows. Until the graph is loaded
+ * callers are expected to ask the database instead.
+ */
+@Component
+@Profile("!in-memory")
+@Slf4j
+public class FriendGraph {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OverlayMatrix friendships = new OverlayMatrix();
+    private volatile boolean ready;
+
+    /**
+     * Replaces the graph with the friend ids per user returned by the loader. The loader runs
+     * under the write lock, so changes committed while it reads are applied after it, not lost.
+     */
+    public void reload(Supplier<Map<Long, List<Long>>> loader) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, List<Long>> friendIds = loader.get();
+            LongObjectHashMap<long[]> rows = new LongObjectHashMap<>(friendIds.size());
+            friendIds.forEach((userId, ids) -> rows.put(userId, ids.stream().mapToLong(Long::longValue).toArray()));
+            friendships.reset(CsrMatrix.fromRows(rows));
+            ready = true;
+            log.info("Friend graph loaded: {} users, {} friendships", rows.size(), friendships.baseEntryCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.friends.compaction-interval}")
+    public void compact() {
+        OverlayMatrix.Compaction compaction;
+        lock.writeLock().lock();
+        try {
+            compaction = friendships.freeze();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compaction == null) {
+            return;
+        }
+
+        CsrMatrix merged = compaction.merge();
+
+        lock.writeLock().lock();
+        try {
+            if (friendships.install(compaction, merged)) {
+                log.debug("Friend graph compacted: {} friendships", merged.entryCount());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFriend(long userId, long friendId) {
+        lock.readLock().lock();
+        try {
+            return friendships.contains(userId, friendId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the user's friends in ascending order
+     */
+    public long[] friendIds(long userId) {
+        lock.readLock().lock();
+        try {
+            return friendships.row(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int friendCount(long userId) {
+        lock.readLock().lock();
+        try {
+            return friendships.rowSize(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] followerIds(long userId) {
+        lock.readLock().lock();
+        try {
+            return columnOf(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids present in both users' friend lists, in ascending order
+     */
+    public long[] commonFriendIds(long userId, long otherUserId) {
+        long[] friends;
+        long[] otherFriends;
+        lock.readLock().lock();
+        try {
+            friends = friendships.row(userId);
+            otherFriends = friendships.row(otherUserId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return intersect(friends, otherFriends);
+    }
+
+    public void added(long userId, long friendId) {
+        TransactionCallbacks.afterCommit(() -> update(() -> friendships.set(userId, friendId, true)));
+    }
+
+    /**
+     * Removes the friendship in both directions, as the storage does.
+     */
+    public void removed(long userId, long friendId) {
+        TransactionCallbacks.afterCommit(() -> update(() -> {
+            friendships.set(userId, friendId, false);
+            friendships.set(friendId, userId, false);
+        }));
+    }
+
+    public void userDeleted(long userId) {
+        TransactionCallbacks.afterCommit(() -> update(() -> {
+            for (long friendId : friendships.row(userId)) {
+                friendships.set(userId, friendId, false);
+            }
+            for (long followerId : columnOf(userId)) {
+                friendships.set(followerId, userId, false);
+            }
+        }));
+    }
+
+    static long[] intersect(long[] left, long[] right) {
+        long[] common = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                common[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return size == 0 ? EMPTY : Arrays.copyOf(common, size);
+    }
+
+    private long[] columnOf(long userId) {
+        List<Long> followers = new ArrayList<>();
+        friendships.forEachInColumn(userId, followers::add);
+        long[] ids = followers.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically rebuilds the friend graph from the {@code friendships} table, so that rows
+ * written around the storage (migrations, manual fixes) and any missed update stop showing up
+ * as drift. Can be switched off with {@code filmorate.friends.reload.enabled=false}.
+ */
+@Component
+@Profile("!in-memory")
+@ConditionalOnProperty(name = "filmorate.friends.reload.enabled", havingValue = "true", matchIfMissing = true)
+public class FriendGraphReloadJob {
+
+    private final UserDbStorage userStorage;
+
+    public FriendGraphReloadJob(UserDbStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.friends.reload.initial-delay}",
+            fixedDelayString = "${filmorate.friends.reload.interval}")
+    public void reload() {
+        userStorage.loadFriendGraph();
+    }
+}
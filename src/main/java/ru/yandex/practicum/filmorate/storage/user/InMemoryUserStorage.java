@@ -1,127 +1,206 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikePublisher;
+import ru.yandex.practicum.filmorate.storage.memory.JournalFactory;
+import ru.yandex.practicum.filmorate.storage.memory.JournaledStorage;
+import ru.yandex.practicum.filmorate.utils.collection.LongHashSet;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Thread-safe user storage kept entirely in memory, with the same friendship semantics as
+ * {@link UserDbStorage}: friendships are directed, removing one removes both directions.
+ * <p>
+ * Every user has a set of friend ids and a reverse set of follower ids, so deleting a user
+ * costs O(degree). The sets are guarded by striped locks keyed by the owning user; an update
+ * touching two users takes both stripes in index order. Changes are journaled under the same
+ * locks, and a snapshot takes all of them. Users are kept as immutable rows and copied on
+ * the way out, so callers never hold the stored instance.
+ */
 @Component
-@RequiredArgsConstructor
+@Profile("in-memory")
 @Slf4j
-public class InMemoryUserStorage implements UserStorage {
+public class InMemoryUserStorage extends JournaledStorage implements UserStorage {
 
-    private final Map<Long, User> users;
+    private static final int STRIPES = 64;
+
+    private final FilmLikePublisher likePublisher;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Map<Long, UserRow> users = new ConcurrentHashMap<>();
+    private final Map<Long, LongHashSet> friends = new ConcurrentHashMap<>();
+    private final Map<Long, LongHashSet> followers = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public InMemoryUserStorage(JournalFactory journals, FilmLikePublisher likePublisher) {
+        super(journals, "users");
+        this.likePublisher = likePublisher;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
 
     @Override
     public List<User> findAll() {
-        return users.values().stream().toList();
+        return users.values().stream()
+                .map(UserRow::toUser)
+                .toList();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return users.values().stream()
+                .filter(row -> row.id() > afterId)
+                .sorted(Comparator.comparingLong(UserRow::id))
+                .limit(limit)
+                .map(UserRow::toUser)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        users.values().stream()
+                .sorted(Comparator.comparingLong(UserRow::id))
+                .map(UserRow::toUser)
+                .forEach(consumer);
     }
 
     @Override
     public User save(User newUser) {
-        long newId = generateId();
+        long newId = idSequence.incrementAndGet();
         newUser.setId(newId);
 
-        users.put(newId, newUser);
+        UserRow row = UserRow.of(newUser);
+        withLock(newId, () -> {
+            users.put(newId, row);
+            log("save", row);
+        });
+        log.debug("Generated new ID for User. New ID: {}", newId);
 
         return newUser;
     }
 
     @Override
     public User update(User newUser) {
-        users.put(newUser.getId(), newUser);
+        UserRow row = UserRow.of(newUser);
+        withLock(row.id(), () -> {
+            if (users.replace(row.id(), row) == null) {
+                throw new NotFoundException(ErrorMessages.userNotFound(row.id()));
+            }
+            log("update", row);
+        });
 
         return newUser;
     }
 
     @Override
     public Optional<User> getUserById(long id) {
-        return Optional.ofNullable(users.get(id));
+        return Optional.ofNullable(users.get(id)).map(UserRow::toUser);
     }
 
     @Override
-    public void addFriendship(long userId, long friendId) {
-        User user = users.get(userId);
-        User friend = users.get(friendId);
+    public List<User> findUsersByIds(Collection<Long> userIds) {
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingLong(UserRow::id))
+                .map(UserRow::toUser)
+                .toList();
+    }
 
-        if (user == null || friend == null) {
-            throw new NotFoundException("User not found: userId=" + userId + ", friendId=" + friendId);
+    @Override
+    public void addFriendship(long userId, long friendId) {
+        lockBoth(userId, friendId);
+        try {
+            // Проверка под замком: удаление пользователя берёт тот же замок
+            if (!users.containsKey(userId) || !users.containsKey(friendId)) {
+                throw new NotFoundException("User not found: userId=" + userId + ", friendId=" + friendId);
+            }
+            link(userId, friendId);
+            log("addFriendship", new Link(userId, friendId));
+        } finally {
+            unlockBoth(userId, friendId);
         }
+    }
 
-        Set<Long> userFriendsIds = user.getFriendsIds();
-        Set<Long> otherFriendsIds = friend.getFriendsIds();
+    @Override
+    public Set<Long> getUserFriendsIds(long userId) {
+        return toSet(copyOf(friends, userId));
+    }
 
-        if (userFriendsIds != null) {
-            userFriendsIds.add(friendId);
-        } else {
-            user.setFriendsIds(new HashSet<>(Set.of(friendId)));
-        }
-        if (otherFriendsIds != null) {
-            otherFriendsIds.add(userId);
-        } else {
-            friend.setFriendsIds(new HashSet<>(Set.of(userId)));
-        }
+    @Override
+    public long[] getUserFriendIdArray(long userId) {
+        long[] friendIds = copyOf(friends, userId);
+        Arrays.sort(friendIds);
+        return friendIds;
     }
 
     @Override
-    public Set<Long> getUserFriendsIds(long userId) {
-        User user = users.get(userId);
-        if (user == null) {
-            log.warn("User with ID {} not found", userId);
-            return Collections.emptySet();
+    public int countUserFriends(long userId) {
+        ReentrantLock lock = lockOf(userId);
+        lock.lock();
+        try {
+            LongHashSet friendIds = friends.get(userId);
+            return friendIds == null ? 0 : friendIds.size();
+        } finally {
+            lock.unlock();
         }
-        return user.getFriendsIds() != null ? user.getFriendsIds() : Collections.emptySet();
+    }
+
+    @Override
+    public Set<Long> getFollowerIds(long userId) {
+        return toSet(copyOf(followers, userId));
     }
 
     @Override
     public List<User> getUserFriends(long userId) {
-        return Optional.ofNullable(users.get(userId))
-                .map(User::getFriendsIds)
-                .map(friendIds -> friendIds.stream()
-                        .map(this::getUserById)
-                        .flatMap(Optional::stream)
-                        .collect(Collectors.toList()))
-                .orElseGet(Collections::emptyList);
+        return usersOf(copyOf(friends, userId));
     }
 
     @Override
     public void removeFriendship(long userId, long friendId) {
-        Set<Long> userFriendsIds = users.get(userId).getFriendsIds();
-        Set<Long> otherFriendsIds = users.get(friendId).getFriendsIds();
-
-        if (userFriendsIds != null) {
-            userFriendsIds.remove(friendId);
-        }
-        if (otherFriendsIds != null) {
-            otherFriendsIds.remove(userId);
+        lockBoth(userId, friendId);
+        try {
+            unlink(userId, friendId);
+            unlink(friendId, userId);
+            log("removeFriendship", new Link(userId, friendId));
+        } finally {
+            unlockBoth(userId, friendId);
         }
     }
 
     @Override
     public List<User> getUsersCommonFriends(long userId, long otherUserId) {
-        Set<Long> friendsIds = getUserFriendsIds(userId);
-        Set<Long> otherFriendsIds = getUserFriendsIds(otherUserId);
-
-        if (friendsIds == null || otherFriendsIds == null) {
-            return Collections.emptyList();
-        }
-
-        return friendsIds.stream()
-                .filter(otherFriendsIds::contains)
-                .map(this::getUserById)
-                .flatMap(Optional::stream)
-                .toList();
+        long[] friendIds = copyOf(friends, userId);
+        long[] otherFriendIds = copyOf(friends, otherUserId);
+        Arrays.sort(friendIds);
+        Arrays.sort(otherFriendIds);
+        return usersOf(FriendGraph.intersect(friendIds, otherFriendIds));
     }
 
     @Override
     public boolean isFriend(long userId, long friendId) {
-        Set<Long> friendsIds = getUserFriendsIds(userId);
-        return friendsIds != null && friendsIds.contains(friendId);
+        ReentrantLock lock = lockOf(userId);
+        lock.lock();
+        try {
+            LongHashSet friendIds = friends.get(userId);
+            return friendIds != null && friendIds.contains(friendId);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -129,35 +208,219 @@ public class InMemoryUserStorage implements UserStorage {
         return users.containsKey(userId);
     }
 
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        return userIds.stream()
+                .filter(users::containsKey)
+                .collect(Collectors.toSet());
+    }
+
     // метод для удаления пользователя
     @Override
     public void delete(Long id) {
-        if (!users.containsKey(id)) {
-            throw new NotFoundException(ErrorMessages.userNotFound(id));
+        LongHashSet friendIds;
+        LongHashSet followerIds;
+        ReentrantLock lock = lockOf(id);
+        lock.lock();
+        try {
+            if (users.remove(id) == null) {
+                throw new NotFoundException(ErrorMessages.userNotFound(id));
+            }
+            friendIds = friends.remove(id);
+            followerIds = followers.remove(id);
+            log("delete", id);
+        } finally {
+            lock.unlock();
+        }
+
+        // Новые дружбы с удалённым пользователем уже не появятся, соседей чистим по одному
+        if (friendIds != null) {
+            friendIds.forEach(friendId -> withLock(friendId, () -> removeFrom(followers, friendId, id)));
+        }
+        if (followerIds != null) {
+            followerIds.forEach(followerId -> withLock(followerId, () -> removeFrom(friends, followerId, id)));
+        }
+        // Лайки, отзывы и события пользователя удаляют сами хранилища
+        likePublisher.publish(listener -> listener.onUserDeleted(id));
+        log.debug("User {} deleted from in-memory storage", id);
+    }
+
+    @Override
+    protected Object captureState() {
+        List<UserRow> rows = List.copyOf(users.values());
+        Map<Long, long[]> friendIds = new HashMap<>(friends.size() * 2);
+        friends.forEach((userId, ids) -> {
+            if (!ids.isEmpty()) {
+                friendIds.put(userId, ids.toSortedArray());
+            }
+        });
+        return new State(idSequence.get(), rows, friendIds);
+    }
+
+    @Override
+    protected void restore(JsonNode node) {
+        State state = read(node, State.class);
+        idSequence.set(state.lastId());
+        state.users().forEach(row -> users.put(row.id(), row));
+        // Снимок мог застать удаление посередине, поэтому связи с удалёнными пропускаем
+        state.friends().forEach((userId, ids) -> {
+            for (long friendId : ids) {
+                if (users.containsKey(userId) && users.containsKey(friendId)) {
+                    link(userId, friendId);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void replay(String op, JsonNode data) {
+        switch (op) {
+            case "save", "update" -> {
+                UserRow row = read(data, UserRow.class);
+                users.put(row.id(), row);
+                idSequence.accumulateAndGet(row.id(), Math::max);
+            }
+            case "addFriendship" -> {
+                Link link = read(data, Link.class);
+                link(link.userId(), link.friendId());
+            }
+            case "removeFriendship" -> {
+                Link link = read(data, Link.class);
+                unlink(link.userId(), link.friendId());
+                unlink(link.friendId(), link.userId());
+            }
+            case "delete" -> {
+                long id = data.asLong();
+                users.remove(id);
+                LongHashSet friendIds = friends.remove(id);
+                LongHashSet followerIds = followers.remove(id);
+                if (friendIds != null) {
+                    friendIds.forEach(friendId -> removeFrom(followers, friendId, id));
+                }
+                if (followerIds != null) {
+                    followerIds.forEach(followerId -> removeFrom(friends, followerId, id));
+                }
+            }
+            default -> throw new IllegalStateException("Unknown user journal operation: " + op);
         }
+    }
 
-        // Удаляем пользователя из списков друзей у других пользователей
-        for (User user : users.values()) {
-            Set<Long> friendsIds = user.getFriendsIds();
-            if (friendsIds != null) {
-                friendsIds.remove(id);
+    @Override
+    protected <T> T withWritesPaused(Supplier<T> action) {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                locks[i].unlock();
             }
         }
+    }
 
-        users.remove(id);
-        log.debug("User {} deleted from in-memory storage", id);
+    private void link(long userId, long friendId) {
+        friends.computeIfAbsent(userId, id -> new LongHashSet()).add(friendId);
+        followers.computeIfAbsent(friendId, id -> new LongHashSet()).add(userId);
     }
 
-    private Long generateId() {
-        long currentId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
+    private void unlink(long userId, long friendId) {
+        removeFrom(friends, userId, friendId);
+        removeFrom(followers, friendId, userId);
+    }
+
+    private static void removeFrom(Map<Long, LongHashSet> index, long ownerId, long id) {
+        LongHashSet ids = index.get(ownerId);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
 
-        log.debug("Generated new ID for User. New ID: {}", currentId + 1);
+    private long[] copyOf(Map<Long, LongHashSet> index, long userId) {
+        ReentrantLock lock = lockOf(userId);
+        lock.lock();
+        try {
+            LongHashSet ids = index.get(userId);
+            return ids == null ? new long[0] : ids.toArray();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        return ++currentId;
+    private List<User> usersOf(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        return Arrays.stream(sorted)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .map(UserRow::toUser)
+                .toList();
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private void withLock(long userId, Runnable action) {
+        ReentrantLock lock = lockOf(userId);
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(long userId) {
+        return locks[stripe(userId)];
     }
-}
 
+    private static int stripe(long userId) {
+        return (int) (userId & (STRIPES - 1));
+    }
+
+    private void lockBoth(long userId, long otherUserId) {
+        int first = Math.min(stripe(userId), stripe(otherUserId));
+        int second = Math.max(stripe(userId), stripe(otherUserId));
+        locks[first].lock();
+        if (second != first) {
+            locks[second].lock();
+        }
+    }
+
+    private void unlockBoth(long userId, long otherUserId) {
+        int first = Math.min(stripe(userId), stripe(otherUserId));
+        int second = Math.max(stripe(userId), stripe(otherUserId));
+        if (second != first) {
+            locks[second].unlock();
+        }
+        locks[first].unlock();
+    }
+
+    private record UserRow(long id, String email, String login, String name, LocalDate birthday) {
+
+        private static UserRow of(User user) {
+            return new UserRow(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        }
+
+        private User toUser() {
+            return User.builder()
+                    .id(id)
+                    .email(email)
+                    .login(login)
+                    .name(name)
+                    .birthday(birthday)
+                    .build();
+        }
+    }
+
+    private record Link(long userId, long friendId) {
+    }
+
+    private record State(long lastId, List<UserRow> users, Map<Long, long[]> friends) {
+    }
+}
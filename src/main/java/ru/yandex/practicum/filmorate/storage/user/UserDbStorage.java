@@ -1,24 +1,42 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.ErrorMessages;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.ExistenceCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikePublisher;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository("userDbStorage")
+@Profile("!in-memory")
 public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     private static final String FIND_ALL_USERS = "SELECT * FROM users";
 
+    private static final String FIND_USERS_AFTER_ID = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String STREAM_ALL_USERS = "SELECT * FROM users ORDER BY id";
+
     private static final String INSERT_USER = """
     INSERT INTO users (login, name, email, birthday, created_at)
     VALUES (?, ?, ?, ?, ?)
@@ -34,6 +52,12 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     private static final String USER_EXISTS_QUERY = "SELECT EXISTS(SELECT 1 FROM users WHERE id = ?)";
 
+    private static final String FIND_EXISTING_USER_IDS_QUERY = "SELECT id FROM users WHERE id IN (:ids)";
+
+    private static final String FIND_USERS_BY_IDS_QUERY = "SELECT * FROM users WHERE id IN (:ids) ORDER BY id";
+
+    private static final String FIND_ALL_FRIENDSHIPS_QUERY = "SELECT user_id, friend_id FROM friendships";
+
     private static final String EXIST_USER_FRIENDSHIP_QUERY = """
     SELECT EXISTS(
         SELECT 1
@@ -54,6 +78,10 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     private static final String FIND_FRIEND_IDS_QUERY = "SELECT friend_id FROM friendships WHERE user_id = ?";
 
+    private static final String COUNT_FRIENDS_QUERY = "SELECT COUNT(*) FROM friendships WHERE user_id = ?";
+
+    private static final String FIND_FOLLOWER_IDS_QUERY = "SELECT user_id FROM friendships WHERE friend_id = ?";
+
     private static final String INSERT_FRIENDSHIP_QUERY = """
     INSERT INTO friendships (user_id, friend_id, created_at)
     VALUES (?, ?, ?)
@@ -78,10 +106,41 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     private static final String DELETE_USER_QUERY = "DELETE FROM users WHERE id = ?";
 
+    private static final String DECREMENT_LIKED_FILMS_COUNT_QUERY = """
+    UPDATE films
+    SET likes_count = likes_count - 1
+    WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)
+    """;
+
+    private static final String REVERT_REVIEW_VOTES_QUERY = """
+    UPDATE reviews r
+    SET useful = useful - (
+        SELECT CASE WHEN v.vote_type = 'LIKE' THEN 1 ELSE -1 END
+        FROM review_votes v
+        WHERE v.review_id = r.review_id AND v.user_id = ?
+    )
+    WHERE review_id IN (SELECT review_id FROM review_votes WHERE user_id = ?)
+    """;
+
+    private final FilmLikePublisher likePublisher;
+    private final ExistenceCache existenceCache;
+    private final FriendGraph friendGraph;
+
     public UserDbStorage(JdbcTemplate jdbcTemplate,
                          NamedParameterJdbcTemplate namedJdbc,
-                         RowMapper<User> rowMapper) {
+                         RowMapper<User> rowMapper,
+                         FilmLikePublisher likePublisher,
+                         ExistenceCache existenceCache,
+                         FriendGraph friendGraph) {
         super(jdbcTemplate, namedJdbc, rowMapper);
+        this.likePublisher = likePublisher;
+        this.existenceCache = existenceCache;
+        this.friendGraph = friendGraph;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFriendGraph() {
+        friendGraph.reload(this::findAllFriendIds);
     }
 
     @Override
@@ -89,6 +148,16 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         return findMany(FIND_ALL_USERS);
     }
 
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return findMany(FIND_USERS_AFTER_ID, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        stream(STREAM_ALL_USERS, consumer);
+    }
+
     @Override
     public User save(User newUser) {
         long id = insert(INSERT_USER,
@@ -100,6 +169,7 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         );
 
         newUser.setId(id);
+        existenceCache.added(ExistenceCache.Entity.USER, id);
         return newUser;
     }
 
@@ -121,19 +191,62 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         return findOne(FIND_USER_BY_ID_QUERY, id);
     }
 
+    @Override
+    public List<User> findUsersByIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return findMany(FIND_USERS_BY_IDS_QUERY, new MapSqlParameterSource("ids", userIds));
+    }
+
     @Override
     public void addFriendship(long userId, long friendId) {
         insert(INSERT_FRIENDSHIP_QUERY, userId, friendId, LocalDateTime.now());
+        friendGraph.added(userId, friendId);
     }
 
     @Override
     public Set<Long> getUserFriendsIds(long userId) {
+        if (friendGraph.isReady()) {
+            return toSet(friendGraph.friendIds(userId));
+        }
         List<Long> friendIds = findList(FIND_FRIEND_IDS_QUERY, Long.class, userId);
         return new HashSet<>(friendIds);
     }
 
+    @Override
+    public long[] getUserFriendIdArray(long userId) {
+        if (friendGraph.isReady()) {
+            return friendGraph.friendIds(userId);
+        }
+        long[] friendIds = findList(FIND_FRIEND_IDS_QUERY, Long.class, userId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        Arrays.sort(friendIds);
+        return friendIds;
+    }
+
+    @Override
+    public int countUserFriends(long userId) {
+        if (friendGraph.isReady()) {
+            return friendGraph.friendCount(userId);
+        }
+        return findOne(COUNT_FRIENDS_QUERY, Integer.class, userId).orElse(0);
+    }
+
+    @Override
+    public Set<Long> getFollowerIds(long userId) {
+        if (friendGraph.isReady()) {
+            return toSet(friendGraph.followerIds(userId));
+        }
+        return new HashSet<>(findList(FIND_FOLLOWER_IDS_QUERY, Long.class, userId));
+    }
+
     @Override
     public List<User> getUserFriends(long userId) {
+        if (friendGraph.isReady()) {
+            return findUsersByIds(toList(friendGraph.friendIds(userId)));
+        }
         return findMany(FIND_USER_FRIENDS_QUERY, userId);
     }
 
@@ -146,28 +259,80 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                 friendId,
                 userId
         );
+        friendGraph.removed(userId, friendId);
     }
 
     @Override
     public boolean isFriend(long userId, long friendId) {
+        if (friendGraph.isReady()) {
+            return friendGraph.isFriend(userId, friendId);
+        }
         return exists(EXIST_USER_FRIENDSHIP_QUERY, userId, friendId);
     }
 
     @Override
     public boolean isExistById(long userId) {
-        return exists(USER_EXISTS_QUERY, userId);
+        return existenceCache.exists(ExistenceCache.Entity.USER, userId, () -> exists(USER_EXISTS_QUERY, userId));
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return existenceCache.findExisting(ExistenceCache.Entity.USER, userIds, unknownIds ->
+                new HashSet<>(findList(FIND_EXISTING_USER_IDS_QUERY, Long.class,
+                        new MapSqlParameterSource("ids", unknownIds))));
     }
 
     @Override
     public List<User> getUsersCommonFriends(long userId, long otherUserId) {
+        if (friendGraph.isReady()) {
+            return findUsersByIds(toList(friendGraph.commonFriendIds(userId, otherUserId)));
+        }
         return findMany(FIND_COMMON_FRIENDS, userId, otherUserId);
     }
 
     @Override
     public void delete(Long id) {
+        existenceCache.removed(ExistenceCache.Entity.USER, id);
+        // Отзывы пользователя удалятся каскадно
+        existenceCache.removedAll(ExistenceCache.Entity.REVIEW);
+        // Лайки пользователя удалятся каскадно, поэтому счётчики фильмов уменьшаем заранее
+        updateWithoutCheck(DECREMENT_LIKED_FILMS_COUNT_QUERY, id);
+        // Так же и с голосами за отзывы: их вес снимаем с рейтинга полезности
+        updateWithoutCheck(REVERT_REVIEW_VOTES_QUERY, id, id);
         if (!delete(DELETE_USER_QUERY, id)) {
             throw new NotFoundException(ErrorMessages.userNotFound(id));
         }
+        // Дружбы пользователя удалятся каскадно
+        friendGraph.userDeleted(id);
+        likePublisher.publish(listener -> listener.onUserDeleted(id));
+    }
+
+    private Map<Long, List<Long>> findAllFriendIds() {
+        return measure("findMany", FIND_ALL_FRIENDSHIPS_QUERY, () -> jdbc.query(FIND_ALL_FRIENDSHIPS_QUERY, rs -> {
+            Map<Long, List<Long>> result = new HashMap<>();
+            while (rs.next()) {
+                result.computeIfAbsent(
+                        rs.getLong("user_id"),
+                        v -> new ArrayList<>()
+                ).add(rs.getLong("friend_id"));
+            }
+            return result;
+        }), result -> result.values().stream().mapToInt(List::size).sum());
+    }
+
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
     }
 }
 
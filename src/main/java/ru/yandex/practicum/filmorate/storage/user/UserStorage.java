@@ -2,24 +2,44 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     List<User> findAll();
 
+    List<User> findPage(long afterId, int limit);
+
+    void streamAll(Consumer<User> consumer);
+
     User save(User newUser);
 
     User update(User newUser);
 
     Optional<User> getUserById(long id);
 
+    List<User> findUsersByIds(Collection<Long> userIds);
+
     void addFriendship(long userId, long friendId);
 
     Set<Long> getUserFriendsIds(long userId);
 
+    /**
+     * Returns ids of the user's friends in ascending order, without boxing them.
+     */
+    long[] getUserFriendIdArray(long userId);
+
+    int countUserFriends(long userId);
+
+    /**
+     * Returns ids of the users who have added the given user as a friend.
+     */
+    Set<Long> getFollowerIds(long userId);
+
     List<User> getUserFriends(long userId);
 
     void removeFriendship(long userId, long friendId);
@@ -28,6 +48,8 @@ public interface UserStorage {
 
     boolean isExistById(long userId);
 
+    Set<Long> findExistingIds(Collection<Long> userIds);
+
     List<User> getUsersCommonFriends(long userId, long otherUserId);
 
     void delete(Long id);
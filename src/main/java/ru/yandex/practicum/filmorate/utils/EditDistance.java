@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bounded Levenshtein distance for typo-tolerant search.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class EditDistance {
+
+    /**
+     * Checks whether some substring of {@code text} is within {@code maxEdits} insertions,
+     * deletions and substitutions of {@code pattern}.
+     * <p>
+     * Runs the approximate substring matching DP one text character at a time and, following
+     * Ukkonen's cutoff, only evaluates pattern rows up to the last one still within the bound,
+     * so the usual cost is {@code O(maxEdits * text length)}.
+     */
+    public static boolean containsWithin(String text, String pattern, int maxEdits) {
+        int length = pattern.length();
+        if (length <= maxEdits) {
+            return true;
+        }
+
+        // Значения больше maxEdits не важны, поэтому все они хранятся как maxEdits + 1
+        int capped = maxEdits + 1;
+        int[] column = new int[length + 1];
+        for (int i = 0; i <= length; i++) {
+            column[i] = Math.min(i, capped);
+        }
+        int lastActive = maxEdits;
+
+        for (int j = 0; j < text.length(); j++) {
+            char c = text.charAt(j);
+            int diagonal = 0;
+            int limit = Math.min(length, lastActive + 1);
+            for (int i = 1; i <= limit; i++) {
+                int left = column[i];
+                int value = pattern.charAt(i - 1) == c
+                        ? diagonal
+                        : Math.min(diagonal, Math.min(left, column[i - 1])) + 1;
+                diagonal = left;
+                column[i] = Math.min(value, capped);
+            }
+
+            lastActive = limit;
+            while (column[lastActive] > maxEdits) {
+                lastActive--;
+            }
+            if (lastActive == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes objects to a response as one JSON array, element by element, so the array is never
+ * held in memory. Unlike {@link NdjsonWriter} the output is a plain JSON document.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonArrayWriter {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param source fills the array by passing every element to the given consumer
+     */
+    public <T> void write(OutputStream out, Consumer<Consumer<T>> source) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            source.accept(value -> {
+                try {
+                    generator.writeObject(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+}
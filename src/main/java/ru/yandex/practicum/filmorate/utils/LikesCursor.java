@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import ru.yandex.practicum.filmorate.exception.ErrorMessages;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Keyset cursor for lists ranked by likes (descending) and then by film id, e.g. search
+ * results. Travels in {@link Pagination#NEXT_CURSOR_HEADER} as {@code <likes>:<id>}.
+ */
+public record LikesCursor(int likes, long filmId) {
+
+    public static LikesCursor of(Film film) {
+        return new LikesCursor(film.getLikesCount(), film.getId());
+    }
+
+    public static LikesCursor parse(String cursor) {
+        int separator = cursor.indexOf(':');
+        try {
+            return new LikesCursor(Integer.parseInt(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1)));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new ValidationException(ErrorMessages.invalidCursor(cursor));
+        }
+    }
+
+    /**
+     * @return true when a film with these likes and id comes after the cursor
+     */
+    public boolean precedes(int filmLikes, long id) {
+        return filmLikes < likes || (filmLikes == likes && id > filmId);
+    }
+
+    @Override
+    public String toString() {
+        return likes + ":" + filmId;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keyset pagination: a page is requested with the id of the last element seen ({@code after})
+ * and the id of the last element of a full page is returned in {@link #NEXT_CURSOR_HEADER}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Pagination {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Upper bound on the number of items accepted by a single batch write.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    public static <T> String nextCursor(List<T> page, int limit, ToLongFunction<T> idExtractor) {
+        if (page.size() < limit) {
+            return null;
+        }
+        return String.valueOf(idExtractor.applyAsLong(page.getLast()));
+    }
+
+    /**
+     * A page together with the cursor of the next one, {@code null} after the last page.
+     */
+    public record Page<T>(List<T> items, String nextCursor) {
+    }
+}
@@ -1,7 +1,6 @@
 package ru.yandex.practicum.filmorate.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.dto.genre.GenreRequestDto;
 import ru.yandex.practicum.filmorate.dto.mpa.MpaRequestDto;
@@ -10,41 +9,35 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Component
 public class ValidationEntityUtils {
 
     private final FilmStorage filmStorage;
-    private final GenreStorage genreStorage;
-    private final MpaStorage mpaStorage;
     private final UserStorage userStorage;
-    private final DirectorStorage directorStorage;
     private final ReviewStorage reviewStorage;
+    private final ReferenceDataCache referenceData;
 
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
     @Autowired
-    public ValidationEntityUtils(@Qualifier("filmDbStorage") FilmStorage filmStorage,
-                                 GenreStorage genreStorage,
-                                 MpaStorage mpaStorage,
-                                 @Qualifier("userDbStorage") UserStorage userStorage,
+    public ValidationEntityUtils(FilmStorage filmStorage,
+                                 UserStorage userStorage,
                                  ReviewStorage reviewStorage,
-                                 DirectorStorage directorStorage) {
+                                 ReferenceDataCache referenceData) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
-        this.directorStorage = directorStorage;
-        this.genreStorage = genreStorage;
-        this.mpaStorage = mpaStorage;
         this.reviewStorage = reviewStorage;
+        this.referenceData = referenceData;
     }
 
     public void validateMinFilmDate(Film film) {
@@ -73,26 +66,46 @@ public class ValidationEntityUtils {
         }
     }
 
+    public void validateFilmsExist(Collection<Long> filmIds) {
+        Set<Long> existing = filmStorage.findExistingIds(filmIds);
+        filmIds.stream()
+                .filter(filmId -> !existing.contains(filmId))
+                .findFirst()
+                .ifPresent(filmId -> {
+                    throw new NotFoundException(ErrorMessages.filmNotFound(filmId));
+                });
+    }
+
+    public void validateUsersExist(Collection<Long> userIds) {
+        Set<Long> existing = userStorage.findExistingIds(userIds);
+        userIds.stream()
+                .filter(userId -> !existing.contains(userId))
+                .findFirst()
+                .ifPresent(userId -> {
+                    throw new NotFoundException(ErrorMessages.userNotFound(userId));
+                });
+    }
+
     public void validateMpaExists(Long mpaId) {
-        if (!mpaStorage.isExistById(mpaId)) {
+        if (mpaId == null || referenceData.findMpaById(mpaId).isEmpty()) {
             throw new NotFoundException(ErrorMessages.mpaNotFound(mpaId));
         }
     }
 
     public void validateGenreExists(List<Long> genreIds) {
-        if (!genreStorage.isExistByIds(genreIds)) {
+        if (!referenceData.allGenresExist(genreIds)) {
             throw new NotFoundException(ErrorMessages.GENRES_NOT_FOUND);
         }
     }
 
     public void validateDirectorExists(Integer directorId) {
-        if (!directorStorage.isExistById(directorId)) {
+        if (directorId == null || referenceData.findDirectorById(directorId).isEmpty()) {
             throw new NotFoundException(ErrorMessages.directorNotFound(directorId));
         }
     }
 
     public void validateDirectorsExists(List<Integer> directorsIds) {
-        if (!directorStorage.isExistByIds(directorsIds)) {
+        if (!referenceData.allDirectorsExist(directorsIds)) {
             throw new NotFoundException(ErrorMessages.DIRECTORS_NOT_FOUND);
         }
     }
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.utils.collection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe set of non-negative {@code long} ids stored as bits. Ids are grouped into chunks
+ * of 65536 bits (8 KiB) allocated on first use, so sparse id ranges stay cheap. Single bits
+ * are flipped with atomic read-modify-write operations, reads take no locks.
+ */
+public class ConcurrentIdBitmap {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int WORDS_PER_CHUNK = 1 << (CHUNK_BITS - 6);
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final ConcurrentHashMap<Long, AtomicLongArray> chunks = new ConcurrentHashMap<>();
+
+    public boolean contains(long id) {
+        if (id < 0) {
+            return false;
+        }
+        AtomicLongArray chunk = chunks.get(id >>> CHUNK_BITS);
+        return chunk != null && (chunk.get(word(id)) & bit(id)) != 0;
+    }
+
+    public void add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        chunks.computeIfAbsent(id >>> CHUNK_BITS, key -> new AtomicLongArray(WORDS_PER_CHUNK))
+                .getAndAccumulate(word(id), bit(id), (word, bit) -> word | bit);
+    }
+
+    public void remove(long id) {
+        if (id < 0) {
+            return;
+        }
+        AtomicLongArray chunk = chunks.get(id >>> CHUNK_BITS);
+        if (chunk != null) {
+            chunk.getAndAccumulate(word(id), ~bit(id), (word, mask) -> word & mask);
+        }
+    }
+
+    public void clear() {
+        chunks.clear();
+    }
+
+    private static int word(long id) {
+        return (int) ((id & CHUNK_MASK) >>> 6);
+    }
+
+    private static long bit(long id) {
+        return 1L << id;
+    }
+}
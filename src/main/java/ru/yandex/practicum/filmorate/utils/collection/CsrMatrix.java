@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.utils.collection;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable sparse boolean matrix with {@code long} row and column keys, stored in
+ * compressed sparse row layout together with its transpose, so both rows and columns
+ * can be scanned without touching other entries.
+ */
+public final class CsrMatrix {
+
+    public static final CsrMatrix EMPTY = new CsrMatrix(new long[0], new int[1], new long[0],
+            new long[0], new int[1], new long[0]);
+
+    private final long[] rowKeys;
+    private final int[] rowOffsets;
+    private final long[] rowValues;
+
+    private final long[] colKeys;
+    private final int[] colOffsets;
+    private final long[] colValues;
+
+    private CsrMatrix(long[] rowKeys, int[] rowOffsets, long[] rowValues,
+                      long[] colKeys, int[] colOffsets, long[] colValues) {
+        this.rowKeys = rowKeys;
+        this.rowOffsets = rowOffsets;
+        this.rowValues = rowValues;
+        this.colKeys = colKeys;
+        this.colOffsets = colOffsets;
+        this.colValues = colValues;
+    }
+
+    /**
+     * Builds a matrix from rows given as column keys in any order; duplicates and empty rows are dropped.
+     */
+    public static CsrMatrix fromRows(LongObjectHashMap<long[]> rows) {
+        long[] keys = new long[rows.size()];
+        int[] count = {0};
+        rows.forEach((key, row) -> {
+            if (row.length > 0) {
+                keys[count[0]++] = key;
+            }
+        });
+        long[] rowKeys = Arrays.copyOf(keys, count[0]);
+        Arrays.sort(rowKeys);
+
+        int[] rowOffsets = new int[rowKeys.length + 1];
+        long[][] sortedRows = new long[rowKeys.length][];
+        for (int i = 0; i < rowKeys.length; i++) {
+            long[] row = rows.get(rowKeys[i]).clone();
+            Arrays.sort(row);
+            sortedRows[i] = dedupSorted(row);
+            rowOffsets[i + 1] = rowOffsets[i] + sortedRows[i].length;
+        }
+        long[] rowValues = new long[rowOffsets[rowKeys.length]];
+        for (int i = 0; i < rowKeys.length; i++) {
+            System.arraycopy(sortedRows[i], 0, rowValues, rowOffsets[i], sortedRows[i].length);
+        }
+
+        long[] colKeys = rowValues.clone();
+        Arrays.sort(colKeys);
+        colKeys = dedupSorted(colKeys);
+        int[] colOffsets = new int[colKeys.length + 1];
+        for (long value : rowValues) {
+            colOffsets[Arrays.binarySearch(colKeys, value) + 1]++;
+        }
+        for (int i = 0; i < colKeys.length; i++) {
+            colOffsets[i + 1] += colOffsets[i];
+        }
+        // Rows are visited in ascending key order, so every column ends up sorted
+        long[] colValues = new long[rowValues.length];
+        int[] fill = Arrays.copyOf(colOffsets, colKeys.length);
+        for (int i = 0; i < rowKeys.length; i++) {
+            for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                colValues[fill[Arrays.binarySearch(colKeys, rowValues[j])]++] = rowKeys[i];
+            }
+        }
+        return new CsrMatrix(rowKeys, rowOffsets, rowValues, colKeys, colOffsets, colValues);
+    }
+
+    public int rowCount() {
+        return rowKeys.length;
+    }
+
+    public int entryCount() {
+        return rowValues.length;
+    }
+
+    public boolean contains(long row, long col) {
+        int index = Arrays.binarySearch(rowKeys, row);
+        return index >= 0 && Arrays.binarySearch(rowValues, rowOffsets[index], rowOffsets[index + 1], col) >= 0;
+    }
+
+    public void forEachInRow(long row, LongConsumer action) {
+        forEach(rowKeys, rowOffsets, rowValues, row, action);
+    }
+
+    public void forEachInColumn(long col, LongConsumer action) {
+        forEach(colKeys, colOffsets, colValues, col, action);
+    }
+
+    public void forEachRowKey(LongConsumer action) {
+        for (long key : rowKeys) {
+            action.accept(key);
+        }
+    }
+
+    /**
+     * @return column keys of the row in ascending order
+     */
+    public long[] row(long row) {
+        int index = Arrays.binarySearch(rowKeys, row);
+        return index < 0 ? new long[0] : Arrays.copyOfRange(rowValues, rowOffsets[index], rowOffsets[index + 1]);
+    }
+
+    public int rowSize(long row) {
+        int index = Arrays.binarySearch(rowKeys, row);
+        return index < 0 ? 0 : rowOffsets[index + 1] - rowOffsets[index];
+    }
+
+    public int columnSize(long col) {
+        int index = Arrays.binarySearch(colKeys, col);
+        return index < 0 ? 0 : colOffsets[index + 1] - colOffsets[index];
+    }
+
+    private static void forEach(long[] keys, int[] offsets, long[] values, long key, LongConsumer action) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            return;
+        }
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    private static long[] dedupSorted(long[] sorted) {
+        if (sorted.length < 2) {
+            return sorted;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.utils.collection;
+
+final class HashUtils {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashUtils() {
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int tableSize(int expectedSize, float loadFactor) {
+        long required = (long) Math.ceil(Math.max(expectedSize, 2) / (double) loadFactor);
+        int capacity = Integer.highestOneBit((int) Math.min(required, MAX_CAPACITY));
+        return capacity < required ? capacity << 1 : capacity;
+    }
+}
@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.utils.collection;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Mutable sparse boolean matrix: an immutable {@link CsrMatrix} plus small hash-based
+ * deltas holding the changes made since it was built.
+ * <p>
+ * Compaction runs in three steps so the expensive merge can happen without blocking
+ * readers: {@link #freeze()} moves the active delta aside, {@link Compaction#merge()}
+ * builds a new base from immutable inputs, and {@link #install(Compaction, CsrMatrix)}
+ * swaps it in. Not thread-safe: callers guard every method except {@code merge()}.
+ */
+public class OverlayMatrix {
+
+    private CsrMatrix base = CsrMatrix.EMPTY;
+    private Delta frozen;
+    private Delta active = new Delta();
+
+    public boolean contains(long row, long col) {
+        Boolean state = active.get(row, col);
+        if (state == null && frozen != null) {
+            state = frozen.get(row, col);
+        }
+        return state != null ? state : base.contains(row, col);
+    }
+
+    public void set(long row, long col, boolean present) {
+        active.set(row, col, present);
+    }
+
+    public void forEachInRow(long row, LongConsumer action) {
+        base.forEachInRow(row, col -> {
+            if (contains(row, col)) {
+                action.accept(col);
+            }
+        });
+        if (frozen != null) {
+            frozen.forEachAddedInRow(row, col -> {
+                if (active.get(row, col) == null && !base.contains(row, col)) {
+                    action.accept(col);
+                }
+            });
+        }
+        active.forEachAddedInRow(row, col -> {
+            if (!base.contains(row, col)) {
+                action.accept(col);
+            }
+        });
+    }
+
+    public void forEachInColumn(long col, LongConsumer action) {
+        base.forEachInColumn(col, row -> {
+            if (contains(row, col)) {
+                action.accept(row);
+            }
+        });
+        if (frozen != null) {
+            frozen.forEachAddedInColumn(col, row -> {
+                if (active.get(row, col) == null && !base.contains(row, col)) {
+                    action.accept(row);
+                }
+            });
+        }
+        active.forEachAddedInColumn(col, row -> {
+            if (!base.contains(row, col)) {
+                action.accept(row);
+            }
+        });
+    }
+
+    /**
+     * @return column keys of the row in ascending order
+     */
+    public long[] row(long row) {
+        int capacity = base.rowSize(row) + active.rowChanges(row) + (frozen == null ? 0 : frozen.rowChanges(row));
+        long[] cols = new long[capacity];
+        int[] size = {0};
+        forEachInRow(row, col -> cols[size[0]++] = col);
+        long[] result = Arrays.copyOf(cols, size[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return number of entries in the row; reads the base directly unless the row has pending changes
+     */
+    public int rowSize(long row) {
+        if (active.rowChanges(row) == 0 && (frozen == null || frozen.rowChanges(row) == 0)) {
+            return base.rowSize(row);
+        }
+        int[] size = {0};
+        forEachInRow(row, col -> size[0]++);
+        return size[0];
+    }
+
+    public int pendingChanges() {
+        return active.size() + (frozen == null ? 0 : frozen.size());
+    }
+
+    public int baseEntryCount() {
+        return base.entryCount();
+    }
+
+    public void reset(CsrMatrix newBase) {
+        base = newBase;
+        frozen = null;
+        active = new Delta();
+    }
+
+    /**
+     * @return the compaction to run, or null when one is already in progress or nothing changed
+     */
+    public Compaction freeze() {
+        if (frozen != null || active.size() == 0) {
+            return null;
+        }
+        frozen = active;
+        active = new Delta();
+        return new Compaction(base, frozen);
+    }
+
+    /**
+     * @return false when the matrix was reset while the compaction was running
+     */
+    public boolean install(Compaction compaction, CsrMatrix merged) {
+        if (frozen != compaction.delta) {
+            return false;
+        }
+        base = merged;
+        frozen = null;
+        return true;
+    }
+
+    public static final class Compaction {
+        private final CsrMatrix base;
+        private final Delta delta;
+
+        private Compaction(CsrMatrix base, Delta delta) {
+            this.base = base;
+            this.delta = delta;
+        }
+
+        public CsrMatrix merge() {
+            LongObjectHashMap<long[]> rows = new LongObjectHashMap<>(base.rowCount() + delta.byRow.size());
+            base.forEachRowKey(row -> rows.put(row, merged(row)));
+            delta.byRow.forEach((row, changes) -> {
+                if (!rows.containsKey(row)) {
+                    rows.put(row, merged(row));
+                }
+            });
+            return CsrMatrix.fromRows(rows);
+        }
+
+        private long[] merged(long row) {
+            long[] cols = new long[base.rowSize(row) + delta.rowChanges(row)];
+            int[] size = {0};
+            base.forEachInRow(row, col -> {
+                if (!Boolean.FALSE.equals(delta.get(row, col))) {
+                    cols[size[0]++] = col;
+                }
+            });
+            delta.forEachAddedInRow(row, col -> {
+                if (!base.contains(row, col)) {
+                    cols[size[0]++] = col;
+                }
+            });
+            return Arrays.copyOf(cols, size[0]);
+        }
+    }
+
+    private static final class Delta {
+        private final LongObjectHashMap<LongObjectHashMap<Boolean>> byRow = new LongObjectHashMap<>();
+        private final LongObjectHashMap<LongObjectHashMap<Boolean>> byColumn = new LongObjectHashMap<>();
+        private int size;
+
+        private Boolean get(long row, long col) {
+            LongObjectHashMap<Boolean> changes = byRow.get(row);
+            return changes == null ? null : changes.get(col);
+        }
+
+        private void set(long row, long col, boolean present) {
+            if (put(byRow, row, col, present) == null) {
+                size++;
+            }
+            put(byColumn, col, row, present);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int rowChanges(long row) {
+            LongObjectHashMap<Boolean> changes = byRow.get(row);
+            return changes == null ? 0 : changes.size();
+        }
+
+        private void forEachAddedInRow(long row, LongConsumer action) {
+            forEachAdded(byRow.get(row), action);
+        }
+
+        private void forEachAddedInColumn(long col, LongConsumer action) {
+            forEachAdded(byColumn.get(col), action);
+        }
+
+        private static Boolean put(LongObjectHashMap<LongObjectHashMap<Boolean>> index,
+                                   long outer, long inner, boolean present) {
+            LongObjectHashMap<Boolean> changes = index.get(outer);
+            if (changes == null) {
+                changes = new LongObjectHashMap<>(4);
+                index.put(outer, changes);
+            }
+            return changes.put(inner, present);
+        }
+
+        private static void forEachAdded(LongObjectHashMap<Boolean> changes, LongConsumer action) {
+            if (changes != null) {
+                changes.forEach((key, present) -> {
+                    if (present) {
+                        action.accept(key);
+                    }
+                });
+            }
+        }
+    }
+}
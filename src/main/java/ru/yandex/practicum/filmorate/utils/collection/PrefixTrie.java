@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.utils.collection;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed trie answering "best {@code k} entries whose key starts with a prefix".
+ * <p>
+ * Entries are identified by their rank (smaller is better), so every node simply stores the
+ * {@code k} smallest distinct ranks found in its subtree, computed bottom-up while building.
+ * Chains of single-child nodes are collapsed into one edge whose label points into one of the
+ * keys, so no substrings are copied. A lookup walks the prefix once and returns the cached
+ * array of the node it ends in: {@code O(prefix length + k)}.
+ */
+public final class PrefixTrie {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Node root;
+
+    private PrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param keys  keys to index; the same rank may be stored under several keys
+     * @param ranks rank of the entry stored under each key
+     * @param k     how many ranks every node keeps
+     */
+    public static PrefixTrie build(String[] keys, int[] ranks, int k) {
+        if (keys.length == 0) {
+            return new PrefixTrie(null);
+        }
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (left, right) -> keys[left].compareTo(keys[right]));
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = boxed[i];
+        }
+        return new PrefixTrie(new Builder(keys, ranks, order, k).build(0, keys.length, 0));
+    }
+
+    /**
+     * Returns up to {@code k} ranks of entries having a key that starts with the prefix, best first.
+     */
+    public int[] top(String prefix) {
+        Node node = root;
+        int position = 0;
+        while (node != null) {
+            int length = Math.min(node.to - node.from, prefix.length() - position);
+            if (!node.key.regionMatches(node.from, prefix, position, length)) {
+                return EMPTY;
+            }
+            position += length;
+            if (position == prefix.length()) {
+                return node.top;
+            }
+            int child = Arrays.binarySearch(node.firstChars, prefix.charAt(position));
+            node = child < 0 ? null : node.children[child];
+        }
+        return EMPTY;
+    }
+
+    private static final class Node {
+        private final String key;
+        private final int from;
+        private final int to;
+        private final char[] firstChars;
+        private final Node[] children;
+        private final int[] top;
+
+        private Node(String key, int from, int to, char[] firstChars, Node[] children, int[] top) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+            this.firstChars = firstChars;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    private static final class Builder {
+        private final String[] keys;
+        private final int[] ranks;
+        private final int[] order;
+        private final int k;
+
+        private Builder(String[] keys, int[] ranks, int[] order, int k) {
+            this.keys = keys;
+            this.ranks = ranks;
+            this.order = order;
+            this.k = k;
+        }
+
+        // Ключи в [lo, hi) отсортированы и совпадают до depth, поэтому общий префикс группы
+        // равен общему префиксу первого и последнего ключа
+        private Node build(int lo, int hi, int depth) {
+            String first = keys[order[lo]];
+            String last = keys[order[hi - 1]];
+            int end = depth;
+            while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+
+            int[] collected = new int[0];
+            int size = 0;
+            int i = lo;
+            // Ключи, заканчивающиеся в этом узле, идут в группе первыми
+            for (; i < hi && keys[order[i]].length() == end; i++) {
+                collected = append(collected, size++, ranks[order[i]]);
+            }
+
+            char[] firstChars = new char[0];
+            Node[] children = new Node[0];
+            while (i < hi) {
+                char c = keys[order[i]].charAt(end);
+                int j = i + 1;
+                while (j < hi && keys[order[j]].charAt(end) == c) {
+                    j++;
+                }
+                Node child = build(i, j, end);
+                firstChars = Arrays.copyOf(firstChars, firstChars.length + 1);
+                firstChars[firstChars.length - 1] = c;
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+                for (int rank : child.top) {
+                    collected = append(collected, size++, rank);
+                }
+                i = j;
+            }
+            return new Node(first, depth, end, firstChars, children, best(collected, size));
+        }
+
+        private int[] best(int[] collected, int size) {
+            Arrays.sort(collected, 0, size);
+            int[] top = new int[Math.min(k, size)];
+            int count = 0;
+            for (int i = 0; i < size && count < top.length; i++) {
+                if (count == 0 || top[count - 1] != collected[i]) {
+                    top[count++] = collected[i];
+                }
+            }
+            return count == top.length ? top : Arrays.copyOf(top, count);
+        }
+
+        private static int[] append(int[] array, int size, int value) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, Math.max(8, size * 2));
+            }
+            array[size] = value;
+            return array;
+        }
+    }
+}
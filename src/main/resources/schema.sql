@@ -23,10 +23,16 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL CHECK (duration > 0),
     mpa_rating_id BIGINT NOT NULL,
+    likes_count INTEGER NOT NULL DEFAULT 0,
     created_at TIMESTAMP,
     FOREIGN KEY (mpa_rating_id) REFERENCES mpa_ratings(mpa_id) ON DELETE RESTRICT
 );
 
+-- Счётчик лайков для баз, созданных до его появления (значения выравнивает задача сверки)
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films(likes_count DESC, id);
+
 -- Таблица с жанрами
 CREATE TABLE IF NOT EXISTS genres (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -65,6 +71,9 @@ CREATE TABLE IF NOT EXISTS friendships (
     CONSTRAINT different_users CHECK (user_id != friend_id)
 );
 
+-- Обратный индекс: кто добавил пользователя в друзья
+CREATE INDEX IF NOT EXISTS idx_friendships_friend_id ON friendships(friend_id, user_id);
+
 -- Таблица событий для ленты пользователя
 CREATE TABLE IF NOT EXISTS events (
     event_id      BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -75,8 +84,10 @@ CREATE TABLE IF NOT EXISTS events (
     entity_id     BIGINT NOT NULL
 );
 
-CREATE INDEX IF NOT EXISTS idx_events_user_id ON events(user_id);
-CREATE INDEX IF NOT EXISTS idx_events_timestamp ON events(timestamp DESC);
+-- Лента читается по пользователю в порядке времени, поэтому нужен один составной индекс
+DROP INDEX IF EXISTS idx_events_user_id;
+DROP INDEX IF EXISTS idx_events_timestamp;
+CREATE INDEX IF NOT EXISTS idx_events_user_timestamp ON events(user_id, timestamp, event_id);
 
 
 -- Таблица отзывы
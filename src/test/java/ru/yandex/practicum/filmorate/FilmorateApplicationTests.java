@@ -8,13 +8,17 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -31,6 +35,8 @@ class FilmorateApplicationTests {
     private final GenreStorage genreStorage;
     private final MpaStorage mpaStorage;
     private final DirectorStorage directorStorage;
+    private final EventStorage eventStorage;
+    private final ReferenceDataCache referenceData;
 
     @Autowired
     public FilmorateApplicationTests(
@@ -38,12 +44,16 @@ class FilmorateApplicationTests {
             @Qualifier("filmDbStorage") FilmStorage filmStorage,
             GenreStorage genreStorage,
             MpaStorage mpaStorage,
-            DirectorStorage directorStorage) {
+            DirectorStorage directorStorage,
+            EventStorage eventStorage,
+            ReferenceDataCache referenceData) {
         this.userStorage = userStorage;
         this.filmStorage = filmStorage;
         this.genreStorage = genreStorage;
         this.mpaStorage = mpaStorage;
         this.directorStorage = directorStorage;
+        this.eventStorage = eventStorage;
+        this.referenceData = referenceData;
     }
 
     private User testUser;
@@ -134,6 +144,20 @@ class FilmorateApplicationTests {
         assertThat(users).hasSize(2);
     }
 
+    @Test
+    void testFindUsersPage() {
+        User user1 = userStorage.save(testUser);
+        User user2 = userStorage.save(testUser.toBuilder().email("test2@test.com").login("test2").build());
+        User user3 = userStorage.save(testUser.toBuilder().email("test3@test.com").login("test3").build());
+
+        assertThat(userStorage.findPage(0, 2)).extracting(User::getId).containsExactly(user1.getId(), user2.getId());
+        assertThat(userStorage.findPage(user2.getId(), 2)).extracting(User::getId).containsExactly(user3.getId());
+
+        List<Long> streamed = new ArrayList<>();
+        userStorage.streamAll(user -> streamed.add(user.getId()));
+        assertThat(streamed).containsExactly(user1.getId(), user2.getId(), user3.getId());
+    }
+
     @Test
     void testIsUserExistById() {
         User created = userStorage.save(testUser);
@@ -487,6 +511,84 @@ class FilmorateApplicationTests {
         films.forEach(film -> assertThat(film.getGenres()).isNotNull());
     }
 
+    @Test
+    void testFindFilmsPage() {
+        Film film1 = filmStorage.save(testFilm);
+        Film film2 = filmStorage.save(testFilm.toBuilder().name("Film 2").build());
+        Film film3 = filmStorage.save(testFilm.toBuilder().name("Film 3").build());
+
+        assertThat(filmStorage.findPage(film1.getId(), 5)).extracting(Film::getId)
+                .containsExactly(film2.getId(), film3.getId());
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAll(streamed::add);
+        assertThat(streamed).extracting(Film::getId).containsExactly(film1.getId(), film2.getId(), film3.getId());
+        assertThat(streamed).allSatisfy(film -> assertThat(film.getGenres()).hasSize(1));
+    }
+
+    @Test
+    void testSearchPage() {
+        User user = userStorage.save(testUser);
+        Film film1 = filmStorage.save(testFilm);
+        Film film2 = filmStorage.save(testFilm.toBuilder().name("Film 2").build());
+        Film film3 = filmStorage.save(testFilm.toBuilder().name("Film 3").build());
+        filmStorage.addLike(film2.getId(), user.getId());
+
+        List<Film> firstPage = filmStorage.search("film", "title", null, 2);
+        assertThat(firstPage).extracting(Film::getId).containsExactly(film2.getId(), film1.getId());
+        assertThat(filmStorage.search("film", "title", LikesCursor.of(firstPage.getLast()), 2))
+                .extracting(Film::getId)
+                .containsExactly(film3.getId());
+    }
+
+    @Test
+    void testFeedPage() {
+        User user = userStorage.save(testUser);
+        List<Event> events = new ArrayList<>();
+        for (long timestamp : new long[]{100L, 200L, 200L, 300L}) {
+            events.add(eventStorage.save(Event.builder()
+                    .timestamp(timestamp)
+                    .userId(user.getId())
+                    .eventType(EventType.LIKE)
+                    .operation(Operation.ADD)
+                    .entityId(1L)
+                    .build()));
+        }
+
+        List<Event> firstPage = eventStorage.findFeedPage(user.getId(), null, 2);
+        assertThat(firstPage).extracting(Event::getEventId)
+                .containsExactly(events.get(3).getEventId(), events.get(2).getEventId());
+        assertThat(eventStorage.findFeedPage(user.getId(), firstPage.getLast().getEventId(), 2))
+                .extracting(Event::getEventId)
+                .containsExactly(events.get(1).getEventId(), events.get(0).getEventId());
+
+        List<Long> streamed = new ArrayList<>();
+        eventStorage.streamFeedByUserId(user.getId(), event -> streamed.add(event.getEventId()));
+        assertThat(streamed).containsExactlyElementsOf(events.stream().map(Event::getEventId).toList());
+    }
+
+    @Test
+    void testFriendsEvents() {
+        User user = userStorage.save(testUser);
+        User friend = userStorage.save(testUser.toBuilder().email("test2@test.com").login("test2").build());
+        User stranger = userStorage.save(testUser.toBuilder().email("test3@test.com").login("test3").build());
+        userStorage.addFriendship(user.getId(), friend.getId());
+
+        List<Event> events = List.of(
+                Event.builder().timestamp(100L).userId(friend.getId())
+                        .eventType(EventType.LIKE).operation(Operation.ADD).entityId(1L).build(),
+                Event.builder().timestamp(200L).userId(stranger.getId())
+                        .eventType(EventType.LIKE).operation(Operation.ADD).entityId(1L).build(),
+                Event.builder().timestamp(300L).userId(friend.getId())
+                        .eventType(EventType.LIKE).operation(Operation.REMOVE).entityId(1L).build());
+        eventStorage.saveAll(events);
+
+        assertThat(events).allMatch(event -> event.getEventId() != null);
+        assertThat(userStorage.getFollowerIds(friend.getId())).containsExactly(user.getId());
+        assertThat(eventStorage.findFriendsEvents(user.getId(), 10)).extracting(Event::getEventId)
+                .containsExactly(events.get(2).getEventId(), events.get(0).getEventId());
+    }
+
     @Test
     void testIsFilmExistById() {
         Film created = filmStorage.save(testFilm);
@@ -528,6 +630,25 @@ class FilmorateApplicationTests {
         assertThat(filmStorage.isLikeExists(film.getId(), user.getId())).isTrue();
     }
 
+    @Test
+    void testAddLikesSkipsExisting() {
+        User user = userStorage.save(testUser);
+        Film film1 = filmStorage.save(testFilm);
+        Film film2 = filmStorage.save(testFilm.toBuilder().name("Film 2").build());
+        filmStorage.addLike(film1.getId(), user.getId());
+
+        List<FilmLike> inserted = filmStorage.addLikes(List.of(
+                FilmLike.builder().filmId(film1.getId()).userId(user.getId()).build(),
+                FilmLike.builder().filmId(film2.getId()).userId(user.getId()).build()));
+
+        assertThat(inserted).extracting(FilmLike::getFilmId).containsExactly(film2.getId());
+        assertThat(filmStorage.findFilmById(film1.getId())).hasValueSatisfying(film ->
+                assertThat(film.getLikesCount()).isEqualTo(1));
+        assertThat(filmStorage.findFilmById(film2.getId())).hasValueSatisfying(film ->
+                assertThat(film.getLikesCount()).isEqualTo(1));
+        assertThat(filmStorage.findExistingIds(List.of(film1.getId(), 999L))).containsExactly(film1.getId());
+    }
+
     @Test
     void testGetPopularFilms() {
         User user1 = userStorage.save(testUser);
@@ -682,6 +803,37 @@ class FilmorateApplicationTests {
         assertThat(popularFilms).hasSize(3);
     }
 
+    @Test
+    void testGetPopularFilmsAfterLikesRemoved() {
+        User user1 = userStorage.save(testUser);
+        User user2 = userStorage.save(User.builder()
+                .email("user2@test.com")
+                .login("user2")
+                .name("User 2")
+                .birthday(LocalDate.of(1995, 1, 1))
+                .friendsIds(Set.of())
+                .build());
+
+        Film film1 = filmStorage.save(testFilm);
+        Film film2 = filmStorage.save(testFilm.toBuilder().id(null).name("Film 2").build());
+
+        filmStorage.addLike(film1.getId(), user1.getId());
+        filmStorage.addLike(film1.getId(), user2.getId());
+        filmStorage.addLike(film2.getId(), user1.getId());
+
+        assertThat(filmStorage.getPopularFilms(2, null, null))
+                .extracting(Film::getId)
+                .containsExactly(film1.getId(), film2.getId());
+
+        filmStorage.removeLike(film1.getId(), user1.getId());
+        userStorage.delete(user2.getId());
+
+        assertThat(filmStorage.getPopularFilms(2, null, null))
+                .extracting(Film::getId)
+                .containsExactly(film2.getId(), film1.getId());
+        assertThat(filmStorage.reconcileLikesCounts()).isZero();
+    }
+
     @Test
     void testGetMpaById() {
         Optional<Mpa> mpa = mpaStorage.findById(1L);
@@ -774,7 +926,7 @@ class FilmorateApplicationTests {
         Director director = Director.builder()
                 .name("Christopher Nolan")
                 .build();
-        Director savedDirector = directorStorage.create(director);
+        Director savedDirector = createDirector(director);
 
         Film filmWithDirector = Film.builder()
                 .name("Inception")
@@ -825,7 +977,7 @@ class FilmorateApplicationTests {
         Director director = Director.builder()
                 .name("Christopher Nolan")
                 .build();
-        Director savedDirector = directorStorage.create(director);
+        Director savedDirector = createDirector(director);
 
         Film filmWithDirector = Film.builder()
                 .name("Inception")
@@ -868,12 +1020,12 @@ class FilmorateApplicationTests {
         Director director1 = Director.builder()
                 .name("Christopher Nolan")
                 .build();
-        Director savedDirector1 = directorStorage.create(director1);
+        Director savedDirector1 = createDirector(director1);
 
         Director director2 = Director.builder()
                 .name("Jonathan Nolan")
                 .build();
-        Director savedDirector2 = directorStorage.create(director2);
+        Director savedDirector2 = createDirector(director2);
 
         Film filmWithDirector = Film.builder()
                 .name("Inception")
@@ -917,7 +1069,7 @@ class FilmorateApplicationTests {
         Director director = Director.builder()
                 .name("Christopher Nolan")
                 .build();
-        Director savedDirector = directorStorage.create(director);
+        Director savedDirector = createDirector(director);
 
         Film filmWithDirector = Film.builder()
                 .name("Inception")
@@ -946,7 +1098,7 @@ class FilmorateApplicationTests {
         Director director = Director.builder()
                 .name("Christopher Nolan")
                 .build();
-        Director savedDirector = directorStorage.create(director);
+        Director savedDirector = createDirector(director);
 
         Film filmWithDirector = Film.builder()
                 .name("Inception")
@@ -987,4 +1139,11 @@ class FilmorateApplicationTests {
         assertThat(result.getGenres().stream().map(Genre::getId))
                 .containsExactlyInAnyOrder(1L, 2L);
     }
-}
\ No newline at end of file
+
+    // Режиссёры пишутся в обход DirectorService, поэтому снимок справочников обновляем сами
+    private Director createDirector(Director director) {
+        Director savedDirector = directorStorage.create(director);
+        referenceData.putDirector(savedDirector);
+        return savedDirector;
+    }
+}
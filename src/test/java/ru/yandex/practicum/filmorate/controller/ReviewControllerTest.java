@@ -9,6 +9,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -17,6 +18,7 @@ import ru.yandex.practicum.filmorate.dto.mpa.MpaRequestDto;
 import ru.yandex.practicum.filmorate.dto.review.CreateReviewDto;
 import ru.yandex.practicum.filmorate.dto.review.UpdateReviewDto;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ReviewUsefulReconciliationJob;
 
 import java.time.LocalDate;
 
@@ -36,6 +38,12 @@ class ReviewControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReviewUsefulReconciliationJob reconciliationJob;
+
     private Long userId1;
     private Long userId2;
     private Long userId3;
@@ -327,6 +335,10 @@ class ReviewControllerTest {
 
         mockMvc.perform(put("/reviews/{id}/like/{userId}", reviewId, userId2))
                 .andExpect(status().isOk());
+
+        mockMvc.perform(get("/reviews/{id}", reviewId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful").value(1));
     }
 
     @Test
@@ -365,4 +377,37 @@ class ReviewControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.useful").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteVoter_ShouldRevertUseful() throws Exception {
+        Long reviewId = createReview("Good movie!", true, userId1, filmId1);
+
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", reviewId, userId2))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/reviews/{id}/dislike/{userId}", reviewId, userId3))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/reviews/{id}/dislike/{userId}", reviewId, userId4))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/users/{id}", userId3))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/reviews/{id}", reviewId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful").value(0));
+    }
+
+    @Test
+    void reconciliation_ShouldRepairUsefulDrift() throws Exception {
+        Long reviewId = createReview("Good movie!", true, userId1, filmId1);
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", reviewId, userId2))
+                .andExpect(status().isOk());
+        jdbcTemplate.update("UPDATE reviews SET useful = 42 WHERE review_id = ?", reviewId);
+
+        reconciliationJob.reconcile();
+
+        mockMvc.perform(get("/reviews/{id}", reviewId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful").value(1));
+    }
+}
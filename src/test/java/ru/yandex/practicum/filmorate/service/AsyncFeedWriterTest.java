@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class AsyncFeedWriterTest {
+
+    private final EventStorage eventStorage = mock(EventStorage.class);
+    private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void write_ShouldGroupQueuedEventsIntoBatches() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        recordBatches(batch -> blockFirstBatch(firstBatchStarted, releaseFirstBatch));
+        AsyncFeedWriter writer = writer(100, 3);
+
+        writer.write(List.of(event(1)));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        // Пока первая пачка пишется, следующие события копятся в очереди
+        writer.write(List.of(event(2), event(3), event(4), event(5)));
+        releaseFirstBatch.countDown();
+        writer.shutdown();
+
+        assertThat(batches).containsExactly(List.of(1L), List.of(2L, 3L, 4L), List.of(5L));
+    }
+
+    @Test
+    void write_ShouldFallBackToCaller_WhenQueueIsFull() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        recordBatches(batch -> {
+            if (batch.getFirst().getEntityId() == 1L) {
+                blockFirstBatch(firstBatchStarted, releaseFirstBatch);
+            }
+        });
+        AsyncFeedWriter writer = writer(1, 10);
+
+        writer.write(List.of(event(1)));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.write(List.of(event(2), event(3)));
+        releaseFirstBatch.countDown();
+        writer.shutdown();
+
+        // Событие 2 заняло очередь, событие 3 записал сам вызывающий поток
+        assertThat(batches).containsExactly(List.of(3L), List.of(1L), List.of(2L));
+    }
+
+    @Test
+    void write_ShouldWaitForQueueOnlyOnce_WhenQueueIsFull() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        recordBatches(batch -> {
+            if (batch.getFirst().getEntityId() == 1L) {
+                blockFirstBatch(firstBatchStarted, releaseFirstBatch);
+            }
+        });
+        AsyncFeedWriter writer = writer(1, 10, Duration.ofMillis(200));
+
+        writer.write(List.of(event(1)));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        long start = System.nanoTime();
+        writer.write(List.of(event(2), event(3), event(4), event(5), event(6), event(7)));
+        long elapsed = System.nanoTime() - start;
+        releaseFirstBatch.countDown();
+        writer.shutdown();
+
+        // Ждём только на событии 3, остальные сразу уходят в синхронную запись
+        assertThat(Duration.ofNanos(elapsed)).isLessThan(Duration.ofMillis(600));
+        assertThat(batches).containsExactly(List.of(3L, 4L, 5L, 6L, 7L), List.of(1L), List.of(2L));
+    }
+
+    @Test
+    void write_ShouldWriteSynchronously_AfterShutdown() throws Exception {
+        recordBatches(batch -> {
+        });
+        AsyncFeedWriter writer = writer(100, 10);
+        writer.shutdown();
+
+        writer.write(List.of(event(1), event(2)));
+
+        assertThat(batches).containsExactly(List.of(1L, 2L));
+    }
+
+    @Test
+    void write_ShouldRetryEventsOneByOne_WhenBatchFails() throws Exception {
+        recordBatches(batch -> {
+            if (batch.size() > 1 || batch.getFirst().getEntityId() == 2L) {
+                throw new DataIntegrityViolationException("user deleted");
+            }
+        });
+        AsyncFeedWriter writer = writer(100, 10);
+        writer.shutdown();
+
+        writer.write(List.of(event(1), event(2), event(3)));
+
+        assertThat(batches).containsExactly(List.of(1L), List.of(3L));
+    }
+
+    private AsyncFeedWriter writer(int capacity, int batchSize) {
+        return writer(capacity, batchSize, Duration.ofMillis(10));
+    }
+
+    private AsyncFeedWriter writer(int capacity, int batchSize, Duration enqueueTimeout) {
+        AsyncFeedWriter writer = new AsyncFeedWriter(eventStorage, mock(FeedPublisher.class), mock(PlatformTransactionManager.class),
+                capacity, batchSize, enqueueTimeout);
+        writer.start();
+        return writer;
+    }
+
+    private void recordBatches(BatchAction action) {
+        doAnswer(invocation -> {
+            List<Event> batch = invocation.getArgument(0);
+            action.accept(batch);
+            batches.add(batch.stream().map(Event::getEntityId).toList());
+            return null;
+        }).when(eventStorage).saveAll(anyList());
+    }
+
+    private static void blockFirstBatch(CountDownLatch started, CountDownLatch release)
+            throws InterruptedException {
+        if (started.getCount() > 0) {
+            started.countDown();
+            release.await();
+        }
+    }
+
+    private static Event event(long entityId) {
+        return Event.builder()
+                .timestamp(entityId)
+                .userId(1L)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(entityId)
+                .build();
+    }
+
+    private interface BatchAction {
+        void accept(List<Event> batch) throws Exception;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Overflow path of {@link AsyncFeedWriter} against a real transaction manager: events written
+ * by the caller from its afterCommit callback must still be stored and reach the listeners.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class AsyncFeedWriterTransactionTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EventStorage eventStorage;
+
+    @Autowired
+    private FeedPublisher feedPublisher;
+
+    @Autowired
+    private FriendsTimeline timeline;
+
+    @Autowired
+    @Qualifier("userDbStorage")
+    private UserStorage userStorage;
+
+    @Test
+    void write_ShouldDeliverOverflowedEventsToTimeline() throws Exception {
+        long authorId = userStorage.save(user("author")).getId();
+        long readerId = userStorage.save(user("reader")).getId();
+        userStorage.addFriendship(readerId, authorId);
+        assertThat(timeline.getTimeline(readerId, 10)).isEmpty();
+
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        EventStorage blockingStorage = mock(EventStorage.class, delegatesTo(eventStorage));
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals("feed-writer") && firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await();
+            }
+            eventStorage.saveAll(invocation.getArgument(0));
+            return null;
+        }).when(blockingStorage).saveAll(anyList());
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        AsyncFeedWriter writer = new AsyncFeedWriter(blockingStorage, feedPublisher, transactionManager,
+                1, 10, Duration.ofMillis(10));
+        writer.start();
+        TransactionTemplate caller = new TransactionTemplate(transactionManager);
+
+        caller.executeWithoutResult(status -> writer.write(List.of(event(authorId, 1))));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        // Событие 2 занимает очередь, 3 и 4 вызывающий поток пишет сам из afterCommit
+        caller.executeWithoutResult(status -> writer.write(List.of(
+                event(authorId, 2), event(authorId, 3), event(authorId, 4))));
+        releaseFirstBatch.countDown();
+        writer.shutdown();
+
+        assertThat(eventStorage.findFeedPage(authorId, null, 10)).hasSize(4);
+        assertThat(timeline.getTimeline(readerId, 10))
+                .extracting(Event::getTimestamp)
+                .containsExactly(4L, 3L, 2L, 1L);
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Event event(long userId, long timestamp) {
+        return Event.builder()
+                .timestamp(timestamp)
+                .userId(userId)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(100L)
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeListener;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BitsetRecommendationEngineTest {
+
+    @Test
+    void findRecommendedFilmIds_ShouldMatchCsrModel() {
+        Random random = new Random(42);
+        Map<Long, List<Long>> likes = new HashMap<>();
+        for (long userId = 1; userId <= 5000; userId++) {
+            List<Long> filmIds = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                filmIds.add(1L + random.nextInt(300) + (random.nextBoolean() ? 70_000 : 0));
+            }
+            likes.put(userId, filmIds);
+        }
+        List<Long> heavyUser = new ArrayList<>();
+        for (long filmId = 1; filmId <= 6000; filmId++) {
+            heavyUser.add(filmId);
+        }
+        likes.put(5001L, heavyUser);
+
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        when(filmStorage.findAllUsersLikedFilmIds()).thenReturn(likes);
+        BitsetRecommendationEngine bitset = new BitsetRecommendationEngine(filmStorage);
+        RecommendationModel csr = new RecommendationModel(filmStorage);
+        bitset.reload();
+        csr.reload();
+
+        for (long userId = 1; userId <= 5001; userId += 97) {
+            assertThat(bitset.findRecommendedFilmIds(userId)).isEqualTo(csr.findRecommendedFilmIds(userId));
+        }
+
+        applyChanges(bitset, likes);
+        applyChanges(csr, likes);
+        for (long userId = 1; userId <= 5001; userId += 97) {
+            assertThat(bitset.findRecommendedFilmIds(userId)).isEqualTo(csr.findRecommendedFilmIds(userId));
+        }
+
+        csr.compact();
+        for (long userId = 1; userId <= 5001; userId += 97) {
+            assertThat(bitset.findRecommendedFilmIds(userId)).isEqualTo(csr.findRecommendedFilmIds(userId));
+        }
+    }
+
+    private static void applyChanges(FilmLikeListener listener, Map<Long, List<Long>> likes) {
+        listener.onLikeAdded(70_001L, 1L);
+        listener.onLikeAdded(3L, 5002L);
+        listener.onLikeRemoved(likes.get(3L).getFirst(), 3L);
+        listener.onFilmDeleted(5L);
+        listener.onUserDeleted(5001L);
+        listener.onUserDeleted(10L);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmSearchIndexTest {
+
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        DirectorStorage directorStorage = mock(DirectorStorage.class);
+        when(directorStorage.findAll()).thenReturn(List.of(director(1, "Lana Wachowski"), director(2, "Nolan")));
+        when(filmStorage.findAll()).thenReturn(List.of(
+                film(1L, "The Matrix", 5, 1),
+                film(2L, "Matrix Reloaded", 7, 1),
+                film(3L, "Inception", 9, 2),
+                film(4L, "Interstellar", 9)
+        ));
+        index = new FilmSearchIndex(filmStorage, directorStorage);
+    }
+
+    @Test
+    void search_ShouldFallBack_WhenNotLoaded() {
+        assertThat(index.search("matrix", true, false, false)).isEmpty();
+    }
+
+    @Test
+    void search_ShouldMatchSubstringsAndRankByLikes() {
+        index.reload();
+
+        assertThat(index.search("MATR", true, false, false)).contains(List.of(2L, 1L));
+        assertThat(index.search("in", true, false, false)).contains(List.of(3L, 4L));
+        assertThat(index.search("x", true, false, false)).contains(List.of(2L, 1L));
+        assertThat(index.search("trix rel", true, false, false)).contains(List.of(2L));
+        assertThat(index.search("rixmat", true, false, false)).contains(List.of());
+        assertThat(index.search("", true, false, false)).contains(List.of(3L, 4L, 2L, 1L));
+    }
+
+    @Test
+    void search_ShouldMatchDirectorsAndMergeWithTitles() {
+        index.reload();
+
+        assertThat(index.search("nol", false, true, false)).contains(List.of(3L));
+        assertThat(index.search("wachowski", false, true, false)).contains(List.of(2L, 1L));
+        assertThat(index.search("an", true, true, false)).contains(List.of(3L, 2L, 1L));
+    }
+
+    @Test
+    void updates_ShouldBeVisibleToSearch() {
+        index.reload();
+
+        index.incrementLikes(1L);
+        index.incrementLikes(1L);
+        index.incrementLikes(1L);
+        index.updateFilm(film(4L, "Interstellar Matrix", 0, 2));
+        index.addFilm(film(5L, "Tenet", 0, 2));
+        index.putDirector(director(2, "Christopher Nolan"));
+
+        assertThat(index.search("matrix", true, false, false)).contains(List.of(4L, 1L, 2L));
+        assertThat(index.search("christopher", false, true, false)).contains(List.of(3L, 4L, 5L));
+
+        index.removeDirector(2);
+        index.removeFilm(1L);
+        assertThat(index.search("nolan", false, true, false)).contains(List.of());
+        assertThat(index.search("matrix", true, true, false)).contains(List.of(4L, 2L));
+
+        index.updateFilm(film(4L, "Interstellar", 0, 1));
+        assertThat(index.search("wachowski", false, true, false)).contains(List.of(4L, 2L));
+    }
+
+    @Test
+    void search_ShouldReturnPagesAfterCursor() {
+        index.reload();
+
+        assertThat(index.search("", true, false, false, null, 2))
+                .contains(List.of(new LikesCursor(9, 3L), new LikesCursor(9, 4L)));
+        assertThat(index.search("", true, false, false, new LikesCursor(9, 4L), 2))
+                .contains(List.of(new LikesCursor(7, 2L), new LikesCursor(5, 1L)));
+        assertThat(index.search("", true, false, false, new LikesCursor(5, 1L), 2)).contains(List.of());
+        assertThat(index.search("in", true, true, false, new LikesCursor(9, 3L), 10))
+                .contains(List.of(new LikesCursor(9, 4L)));
+    }
+
+    @Test
+    void search_ShouldTolerateTyposInLongerQueries() {
+        index.reload();
+
+        assertThat(index.search("matrx", true, false, true)).contains(List.of());
+        assertThat(index.search("matrox", true, false, true)).contains(List.of(2L, 1L));
+        assertThat(index.search("matrox", true, false, false)).contains(List.of());
+        assertThat(index.search("intersteler", true, false, true)).contains(List.of(4L));
+        assertThat(index.search("incepshen", true, false, true)).contains(List.of());
+        assertThat(index.search("wachowsky", true, true, true)).contains(List.of(2L, 1L));
+        assertThat(index.search("nolan", true, true, true)).contains(List.of(3L));
+    }
+
+    @Test
+    void suggest_ShouldReturnMostLikedEntriesWithWordStartingWithPrefix() {
+        index.reload();
+
+        assertThat(suggest("MA", 10)).containsExactly("FILM:Matrix Reloaded", "FILM:The Matrix");
+        assertThat(suggest("in", 10)).containsExactly("FILM:Inception", "FILM:Interstellar");
+        assertThat(suggest("i", 1)).containsExactly("FILM:Inception");
+        assertThat(suggest("wach", 10)).containsExactly("DIRECTOR:Lana Wachowski");
+        assertThat(suggest("matrix r", 10)).containsExactly("FILM:Matrix Reloaded");
+        assertThat(suggest("atrix", 10)).isEmpty();
+        assertThat(suggest("", 3)).containsExactly("DIRECTOR:Lana Wachowski", "FILM:Inception", "FILM:Interstellar");
+    }
+
+    @Test
+    void suggest_ShouldFollowChangesAfterRebuild() {
+        index.reload();
+
+        for (int i = 0; i < 5; i++) {
+            index.incrementLikes(1L);
+        }
+        index.addFilm(film(5L, "Mad Max", 6));
+        index.putDirector(director(3, "Martin Scorsese"));
+        assertThat(suggest("ma", 10)).containsExactly("FILM:Matrix Reloaded", "FILM:The Matrix");
+
+        index.rebuildSuggestions();
+        assertThat(suggest("ma", 10)).containsExactly("FILM:The Matrix", "FILM:Matrix Reloaded", "FILM:Mad Max",
+                "DIRECTOR:Martin Scorsese");
+    }
+
+    private List<String> suggest(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream()
+                .map(suggestion -> suggestion.getType() + ":" + suggestion.getName())
+                .toList();
+    }
+
+    private static Film film(long id, String name, int likes, int... directorIds) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .likesCount(likes)
+                .directors(Arrays.stream(directorIds).mapToObj(directorId -> director(directorId, null)).toList())
+                .build();
+    }
+
+    private static Director director(int id, String name) {
+        return Director.builder()
+                .id(id)
+                .name(name)
+                .build();
+    }
+}
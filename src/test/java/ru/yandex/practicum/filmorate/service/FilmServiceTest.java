@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dto.film.CreateFilmDto;
+import ru.yandex.practicum.filmorate.dto.film.FilmDto;
+import ru.yandex.practicum.filmorate.dto.mpa.MpaRequestDto;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.utils.LikesCursor;
+import ru.yandex.practicum.filmorate.utils.Pagination;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmServiceTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private PopularityLeaderboard leaderboard;
+
+    @Autowired
+    private FilmSearchIndex searchIndex;
+
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmStorage;
+
+    @Autowired
+    @Qualifier("userDbStorage")
+    private UserStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private FeedService feedService;
+
+    private long firstFilmId;
+    private long secondFilmId;
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        firstFilmId = filmService.createFilm(film("First")).getId();
+        secondFilmId = filmService.createFilm(film("Second")).getId();
+        userId = userStorage.save(User.builder()
+                .email("user@mail.ru")
+                .login("user")
+                .name("User")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+    }
+
+    @Test
+    void addFilmLike_ShouldUpdateLeaderboardAndIndexAfterCommit() {
+        filmService.addFilmLike(secondFilmId, userId);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(secondFilmId, firstFilmId));
+        assertThat(searchIndex.search("s", true, false, false)).contains(List.of(secondFilmId, firstFilmId));
+    }
+
+    @Test
+    void addFilmLike_ShouldLeaveLeaderboardAndIndexUnchanged_WhenTransactionRollsBack() {
+        doThrow(new IllegalStateException("Feed is unavailable"))
+                .when(feedService).saveEvent(userId, EventType.LIKE, Operation.ADD, secondFilmId);
+
+        assertThatThrownBy(() -> filmService.addFilmLike(secondFilmId, userId))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(filmStorage.isLikeExists(secondFilmId, userId)).isFalse();
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(firstFilmId, secondFilmId));
+        assertThat(searchIndex.search("s", true, false, false)).contains(List.of(firstFilmId, secondFilmId));
+    }
+
+    @Test
+    void searchFilmsPage_ShouldBuildCursorFromIndexRanking() {
+        // Счётчик в базе разошёлся с индексом, например до ближайшей сверки
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE id = ?", firstFilmId);
+
+        Pagination.Page<FilmDto> firstPage = filmService.searchFilmsPage("s", "title", false, null, 1);
+        assertThat(firstPage.items()).extracting(FilmDto::getId).containsExactly(firstFilmId);
+        assertThat(firstPage.nextCursor()).isEqualTo("0:" + firstFilmId);
+
+        Pagination.Page<FilmDto> secondPage = filmService.searchFilmsPage("s", "title", false,
+                LikesCursor.parse(firstPage.nextCursor()), 1);
+        assertThat(secondPage.items()).extracting(FilmDto::getId).containsExactly(secondFilmId);
+    }
+
+    private static CreateFilmDto film(String name) {
+        return CreateFilmDto.builder()
+                .name(name)
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(MpaRequestDto.of(1))
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FriendSuggesterTest {
+
+    private final UserStorage userStorage = mock(UserStorage.class);
+
+    @Test
+    void suggest_ShouldRankNonFriendsByMutualFriends() {
+        friends(Map.of(
+                1L, Set.of(2L, 3L, 4L),
+                2L, Set.of(1L, 3L, 5L, 6L),
+                3L, Set.of(5L, 7L),
+                4L, Set.of(5L, 6L)));
+
+        // 5 знают трое друзей, 6 — двое, 7 — один; 3 уже друг
+        assertThat(new FriendSuggester(userStorage, 10, 100).suggest(1L, 10)).containsExactly(5L, 6L, 7L);
+        assertThat(new FriendSuggester(userStorage, 10, 100).suggest(1L, 2)).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void suggest_ShouldSkipFriendsWithTooManyFriends() {
+        friends(Map.of(
+                1L, Set.of(2L, 3L),
+                2L, Set.of(5L, 6L, 7L),
+                3L, Set.of(7L)));
+
+        assertThat(new FriendSuggester(userStorage, 2, 100).suggest(1L, 10)).containsExactly(7L);
+        // Список друзей хаба даже не читается
+        verify(userStorage, never()).getUserFriendIdArray(2L);
+    }
+
+    @Test
+    void suggest_ShouldStopAtVisitBudget() {
+        friends(Map.of(
+                1L, Set.of(2L),
+                2L, Set.of(5L, 6L, 7L)));
+
+        assertThat(new FriendSuggester(userStorage, 10, 2).suggest(1L, 10)).isEmpty();
+    }
+
+    private void friends(Map<Long, Set<Long>> graph) {
+        when(userStorage.getUserFriendIdArray(anyLong()))
+                .thenAnswer(invocation -> graph.getOrDefault(invocation.<Long>getArgument(0), Set.of()).stream()
+                        .mapToLong(Long::longValue)
+                        .sorted()
+                        .toArray());
+        when(userStorage.countUserFriends(anyLong()))
+                .thenAnswer(invocation -> graph.getOrDefault(invocation.<Long>getArgument(0), Set.of()).size());
+    }
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FriendsTimelineTest {
+
+    private final UserStorage userStorage = mock(UserStorage.class);
+    private final EventStorage eventStorage = mock(EventStorage.class);
+    private final FriendsTimeline timeline = new FriendsTimeline(userStorage, eventStorage, 3, 2, 10);
+
+    @Test
+    void getTimeline_ShouldServePushedEventsFromBuffer() {
+        when(userStorage.getUserFriendsIds(1L)).thenReturn(Set.of(2L));
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L));
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of(event(11, 2, 20), event(10, 2, 10)));
+
+        assertThat(timeline.getTimeline(1L, 3)).extracting(Event::getEventId).containsExactly(11L, 10L);
+
+        timeline.onEvents(List.of(event(12, 2, 30), event(13, 2, 40)));
+
+        // Буфер на три события: самое старое вытеснено
+        assertThat(timeline.getTimeline(1L, 3)).extracting(Event::getEventId).containsExactly(13L, 12L, 11L);
+        verify(eventStorage, times(1)).findFriendsEvents(1L, 3);
+    }
+
+    @Test
+    void getTimeline_ShouldHideEventsOfRemovedFriends() {
+        when(userStorage.getUserFriendsIds(1L)).thenReturn(Set.of(2L, 3L));
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of(event(11, 3, 20), event(10, 2, 10)));
+        timeline.getTimeline(1L, 3);
+
+        when(userStorage.getUserFriendsIds(1L)).thenReturn(Set.of(2L));
+
+        assertThat(timeline.getTimeline(1L, 3)).extracting(Event::getEventId).containsExactly(10L);
+    }
+
+    @Test
+    void onEvents_ShouldNotFanOutCelebrityEvents() {
+        when(userStorage.getUserFriendsIds(1L)).thenReturn(Set.of(2L));
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L, 4L, 5L));
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of());
+        timeline.getTimeline(1L, 3);
+
+        timeline.onEvents(List.of(event(12, 2, 30)));
+        timeline.onEvents(List.of(event(13, 2, 40)));
+        when(eventStorage.findFeedPage(2L, null, 3)).thenReturn(List.of(event(13, 2, 40), event(12, 2, 30)));
+
+        // Автор с тремя подписчиками превышает лимит: его события читатель забирает сам
+        assertThat(timeline.getTimeline(1L, 3)).extracting(Event::getEventId).containsExactly(13L, 12L);
+        verify(userStorage, times(1)).getFollowerIds(2L);
+    }
+
+    @Test
+    void onUnfollowed_ShouldSwitchAuthorBackToPush_WhenFollowersFitLimit() {
+        when(userStorage.getUserFriendsIds(1L)).thenReturn(Set.of(2L));
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L, 4L, 5L));
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of());
+        timeline.getTimeline(1L, 3);
+        timeline.onEvents(List.of(event(12, 2, 30)));
+        assertThat(timeline.isPulled(2L)).isTrue();
+
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L, 4L));
+        timeline.onUnfollowed(2L);
+
+        // Буфер подписчика сброшен: события, забранные при чтении, он не получал
+        assertThat(timeline.isPulled(2L)).isFalse();
+        assertThat(timeline.bufferedUsers()).isZero();
+
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of(event(12, 2, 30)));
+        timeline.getTimeline(1L, 3);
+        timeline.onEvents(List.of(event(13, 2, 40)));
+
+        assertThat(timeline.getTimeline(1L, 3)).extracting(Event::getEventId).containsExactly(13L, 12L);
+        verify(eventStorage, never()).findFeedPage(2L, null, 3);
+    }
+
+    @Test
+    void onUnfollowed_ShouldKeepPulling_WhenAuthorStillExceedsLimit() {
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L, 4L, 5L, 6L));
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of());
+        timeline.getTimeline(1L, 3);
+        timeline.onEvents(List.of(event(12, 2, 30)));
+
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L, 4L, 5L));
+        timeline.onUnfollowed(2L);
+
+        assertThat(timeline.isPulled(2L)).isTrue();
+        assertThat(timeline.bufferedUsers()).isOne();
+    }
+
+    @Test
+    void removeUser_ShouldForgetDeletedAuthor() {
+        when(userStorage.getFollowerIds(2L)).thenReturn(Set.of(1L, 4L, 5L));
+        when(eventStorage.findFriendsEvents(1L, 3)).thenReturn(List.of());
+        timeline.getTimeline(1L, 3);
+        timeline.onEvents(List.of(event(12, 2, 30)));
+
+        timeline.removeUser(2L);
+
+        assertThat(timeline.isPulled(2L)).isFalse();
+    }
+
+    @Test
+    void getTimeline_ShouldReadDatabase_WhenLimitExceedsCapacity() {
+        when(eventStorage.findFriendsEvents(1L, 5)).thenReturn(List.of(event(10, 2, 10)));
+
+        assertThat(timeline.getTimeline(1L, 5)).extracting(Event::getEventId).containsExactly(10L);
+        assertThat(timeline.bufferedUsers()).isZero();
+        verify(userStorage, never()).getUserFriendsIds(1L);
+    }
+
+    private static Event event(long id, long userId, long timestamp) {
+        return Event.builder()
+                .eventId(id)
+                .timestamp(timestamp)
+                .userId(userId)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(100L)
+                .build();
+    }
+}
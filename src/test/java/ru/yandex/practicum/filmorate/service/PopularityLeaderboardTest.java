@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityLeaderboardTest {
+
+    // Счётчики лайков «в базе», которые лидерборд читает после коммита
+    private final Map<Long, Integer> storedLikes = new HashMap<>(Map.of(1L, 0, 2L, 2, 3L, 1));
+
+    private FilmStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = mock(FilmStorage.class);
+        when(filmStorage.findLikesCounts(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> filmIds = invocation.getArgument(0);
+            Map<Long, Integer> counts = new HashMap<>();
+            filmIds.forEach(filmId -> counts.put(filmId, storedLikes.get(filmId)));
+            return counts;
+        });
+        when(filmStorage.findAll()).thenReturn(List.of(
+                film(1L, 2000, 0, 1L),
+                film(2L, 2000, 2, 1L, 2L),
+                film(3L, 2001, 1, 2L)
+        ));
+        leaderboard = new PopularityLeaderboard(filmStorage, 2);
+        leaderboard.reload();
+    }
+
+    @Test
+    void findTopFilmIds_ShouldRankByLikesWithinBucket() {
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(2L, 3L));
+        assertThat(leaderboard.findTopFilmIds(2, 1, null)).contains(List.of(2L, 1L));
+        assertThat(leaderboard.findTopFilmIds(2, 2, 2001)).contains(List.of(3L));
+        assertThat(leaderboard.findTopFilmIds(2, 3, null)).contains(List.of());
+    }
+
+    @Test
+    void findTopFilmIds_ShouldFallBack_WhenCountExceedsCapacity() {
+        assertThat(leaderboard.findTopFilmIds(3, null, null)).isEmpty();
+    }
+
+    @Test
+    void refreshLikes_ShouldPromoteFilmFromOutsideTop() {
+        storedLikes.put(1L, 2);
+        leaderboard.refreshLikes(1L);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(1L, 2L));
+    }
+
+    @Test
+    void refreshLikes_ShouldRefillTopFromRemainingFilms() {
+        storedLikes.put(3L, 0);
+        storedLikes.put(2L, 0);
+        leaderboard.refreshLikes(List.of(3L, 2L));
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(1L, 2L));
+    }
+
+    @Test
+    void refreshLikes_ShouldLetTiedOutsiderWithLowerIdIn() {
+        storedLikes.put(3L, 0);
+        leaderboard.refreshLikes(3L);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(2L, 1L));
+        assertThat(leaderboard.findTopFilmIds(2, 2, null)).contains(List.of(2L, 3L));
+    }
+
+    @Test
+    void updateFilm_ShouldMoveFilmBetweenBuckets() {
+        leaderboard.updateFilm(film(3L, 2000, 0, 1L));
+
+        assertThat(leaderboard.findTopFilmIds(2, 2, null)).contains(List.of(2L));
+        assertThat(leaderboard.findTopFilmIds(2, 1, 2000)).contains(List.of(2L, 3L));
+    }
+
+    @Test
+    void removeFilm_ShouldDropFilmFromAllBuckets() {
+        leaderboard.removeFilm(2L);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(3L, 1L));
+        assertThat(leaderboard.findTopFilmIds(2, 2, 2000)).contains(List.of());
+    }
+
+    @Test
+    void removeLikesOfUser_ShouldRefreshLikedFilms() {
+        when(filmStorage.findUserLikedFilmIds(7L)).thenReturn(List.of(2L));
+        storedLikes.put(2L, 0);
+
+        leaderboard.removeLikesOfUser(7L);
+        leaderboard.removeLikesOfUser(7L);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(3L, 1L));
+    }
+
+    @Test
+    void refreshLikes_ShouldNotCountLikeTwice_WhenReloadAlreadySawIt() {
+        // Лайк фильма 3 закоммичен до перезагрузки, а его обработчик после коммита пришёл позже
+        storedLikes.put(3L, 2);
+        when(filmStorage.findAll()).thenReturn(List.of(
+                film(1L, 2000, 0, 1L),
+                film(2L, 2000, 2, 1L, 2L),
+                film(3L, 2001, 2, 2L)
+        ));
+        leaderboard.reload();
+
+        leaderboard.refreshLikes(3L);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(2L, 3L));
+    }
+
+    @Test
+    void reload_ShouldKeepChangesMadeWhileLoading() {
+        when(filmStorage.findAll()).thenAnswer(invocation -> {
+            // Пока идёт чтение, фильм 1 набирает лайки, а фильм 2 удаляют
+            storedLikes.put(1L, 5);
+            leaderboard.refreshLikes(1L);
+            leaderboard.removeFilm(2L);
+            return List.of(
+                    film(1L, 2000, 0, 1L),
+                    film(2L, 2000, 2, 1L, 2L),
+                    film(3L, 2001, 1, 2L));
+        });
+
+        leaderboard.reload();
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(1L, 3L));
+        assertThat(leaderboard.findTopFilmIds(2, 1, null)).contains(List.of(1L));
+    }
+
+    @Test
+    void findTopFilmIds_ShouldKeepReserveOrdered_WhenFilmRejoinsAfterOutsiderLeft() {
+        // Ёмкость 2, запас корзины — 4 фильма; фильм 5 — лучший за пределами запаса
+        when(filmStorage.findAll()).thenReturn(List.of(
+                film(1L, 2000, 5, 1L),
+                film(2L, 2000, 3, 1L),
+                film(3L, 2000, 3, 1L),
+                film(4L, 2000, 3, 1L),
+                film(5L, 2000, 2, 1L)
+        ));
+        leaderboard.reload();
+        leaderboard.removeFilm(5L);
+        leaderboard.removeFilm(4L);
+        leaderboard.addFilm(film(6L, 2000, 0, 1L));
+        leaderboard.removeFilm(3L);
+        leaderboard.addFilm(film(7L, 2000, 1, 1L));
+        leaderboard.addFilm(film(8L, 2000, 0, 1L));
+
+        leaderboard.updateFilm(film(7L, 2000, 1, 1L));
+        leaderboard.removeFilm(1L);
+
+        assertThat(leaderboard.findTopFilmIds(2, null, null)).contains(List.of(2L, 7L));
+    }
+
+    private static Film film(long id, int year, int likes, Long... genreIds) {
+        return Film.builder()
+                .id(id)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .likesCount(likes)
+                .genres(Arrays.stream(genreIds)
+                        .map(genreId -> Genre.builder().id(genreId).build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationModelTest {
+
+    private RecommendationModel model;
+
+    @BeforeEach
+    void setUp() {
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        when(filmStorage.findAllUsersLikedFilmIds()).thenReturn(Map.of(
+                1L, List.of(10L, 20L),
+                2L, List.of(10L, 20L, 30L),
+                3L, List.of(10L, 40L)
+        ));
+        model = new RecommendationModel(filmStorage);
+        model.reload();
+    }
+
+    @Test
+    void findRecommendedFilmIds_ShouldUseUsersWithLargestOverlap() {
+        assertThat(model.findRecommendedFilmIds(1L)).contains(List.of(30L));
+        assertThat(model.findRecommendedFilmIds(3L)).contains(List.of(20L, 30L));
+        assertThat(model.findRecommendedFilmIds(4L)).contains(List.of());
+    }
+
+    @Test
+    void onLikeAdded_ShouldBeVisibleBeforeAndAfterCompaction() {
+        model.onLikeAdded(40L, 1L);
+        model.onLikeAdded(50L, 3L);
+        model.onLikeAdded(20L, 3L);
+
+        assertThat(model.findRecommendedFilmIds(1L)).contains(List.of(50L));
+
+        model.compact();
+
+        assertThat(model.findRecommendedFilmIds(1L)).contains(List.of(50L));
+        assertThat(model.findRecommendedFilmIds(2L)).contains(List.of(40L, 50L));
+    }
+
+    @Test
+    void onLikeRemoved_ShouldDropLikeFromBaseAndDelta() {
+        model.onLikeAdded(60L, 2L);
+        model.onLikeRemoved(60L, 2L);
+        model.onLikeRemoved(30L, 2L);
+
+        assertThat(model.findRecommendedFilmIds(1L)).contains(List.of());
+
+        model.compact();
+
+        assertThat(model.findRecommendedFilmIds(1L)).contains(List.of());
+    }
+
+    @Test
+    void onFilmAndUserDeleted_ShouldForgetTheirLikes() {
+        model.onFilmDeleted(30L);
+        assertThat(model.findRecommendedFilmIds(3L)).contains(List.of(20L));
+
+        model.onUserDeleted(2L);
+        model.compact();
+        assertThat(model.findRecommendedFilmIds(3L)).contains(List.of(20L));
+        assertThat(model.findRecommendedFilmIds(1L)).contains(List.of(40L));
+    }
+}
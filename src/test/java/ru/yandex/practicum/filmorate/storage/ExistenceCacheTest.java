@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.storage.ExistenceCache.Entity.FILM;
+import static ru.yandex.practicum.filmorate.storage.ExistenceCache.Entity.REVIEW;
+import static ru.yandex.practicum.filmorate.storage.ExistenceCache.Entity.USER;
+
+class ExistenceCacheTest {
+
+    private final ExistenceCache cache = new ExistenceCache();
+
+    @Test
+    void exists_ShouldRememberConfirmedIdsUntilRemoved() {
+        assertThat(cache.exists(USER, 1L, () -> true)).isTrue();
+        assertThat(cache.exists(USER, 1L, () -> false)).isTrue();
+        assertThat(cache.exists(FILM, 1L, () -> false)).isFalse();
+
+        cache.removed(USER, 1L);
+        assertThat(cache.exists(USER, 1L, () -> false)).isFalse();
+    }
+
+    @Test
+    void exists_ShouldNotRememberIdDeletedWhileDatabaseWasQueried() {
+        assertThat(cache.exists(REVIEW, 70_000L, () -> {
+            cache.removed(REVIEW, 70_000L);
+            return true;
+        })).isTrue();
+
+        assertThat(cache.exists(REVIEW, 70_000L, () -> false)).isFalse();
+    }
+
+    @Test
+    void added_ShouldWaitForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.added(FILM, 5L);
+            assertThat(cache.exists(FILM, 5L, () -> false)).isFalse();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(cache.exists(FILM, 5L, () -> false)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void findExisting_ShouldQueryOnlyUnknownIds() {
+        cache.added(FILM, 1L);
+        cache.removedAll(REVIEW);
+
+        Set<Long> existing = cache.findExisting(FILM, List.of(1L, 2L, 3L), unknown -> {
+            assertThat(unknown).containsExactly(2L, 3L);
+            return Set.of(3L);
+        });
+
+        assertThat(existing).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(cache.exists(FILM, 3L, () -> false)).isTrue();
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class QueryMetricsTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private GenreStorage genreStorage;
+
+    @Test
+    void queries_ShouldBeTimedUnderSqlConstantName() {
+        saveFilm("First");
+        saveFilm("Second");
+
+        filmStorage.getPopularFilms(10, null, null);
+        filmStorage.getPopularFilms(1, null, null);
+
+        Timer timer = meterRegistry.get(QueryMetrics.QUERY_TIMER)
+                .tags("storage", "FilmDbStorage", "query", "FIND_POPULAR_FILMS",
+                        "operation", "findMany", "exception", "none")
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+
+        DistributionSummary rows = meterRegistry.get(QueryMetrics.ROWS_SUMMARY)
+                .tags("storage", "FilmDbStorage", "query", "FIND_POPULAR_FILMS")
+                .summary();
+        assertThat(rows.totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.get(QueryMetrics.QUERY_TIMER)
+                .tags("storage", "FilmDbStorage", "query", "INSERT_FILM", "operation", "insert")
+                .timer().count()).isEqualTo(2);
+
+        genreStorage.findById(1L);
+        genreStorage.findById(100L);
+        DistributionSummary genreRows = meterRegistry.get(QueryMetrics.ROWS_SUMMARY)
+                .tags("storage", "GenreDbStorage", "query", "FIND_GENRE_BY_ID", "operation", "findOne")
+                .summary();
+        assertThat(genreRows.count()).isEqualTo(2);
+        assertThat(genreRows.totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void dynamicQueries_ShouldBeNamedAfterStorageMethod() {
+        saveFilm("Matrix");
+
+        filmStorage.search("matr", "title");
+        filmStorage.search("matr", "title,director");
+
+        assertThat(meterRegistry.get(QueryMetrics.QUERY_TIMER)
+                .tags("storage", "FilmDbStorage", "query", "search")
+                .timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void failedQueries_ShouldBeTaggedWithException() {
+        Film film = saveFilm("Film");
+
+        assertThrows(DataIntegrityViolationException.class, () -> filmStorage.update(Film.builder()
+                .id(film.getId())
+                .name("Film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(100L).build())
+                .genres(List.of())
+                .directors(List.of())
+                .build()));
+
+        assertThat(meterRegistry.find(QueryMetrics.QUERY_TIMER)
+                .tags("storage", "FilmDbStorage", "query", "UPDATE_FILM")
+                .timers())
+                .anyMatch(timer -> !"none".equals(timer.getId().getTag("exception")));
+    }
+
+    private Film saveFilm(String name) {
+        return filmStorage.save(Film.builder()
+                .name(name)
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(Mpa.builder().id(1L).build())
+                .genres(List.of())
+                .directors(List.of())
+                .likedUsersFilms(Set.of())
+                .build());
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataCacheTest {
+
+    private MpaStorage mpaStorage;
+    private DirectorStorage directorStorage;
+    private ReferenceDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        mpaStorage = mock(MpaStorage.class);
+        GenreStorage genreStorage = mock(GenreStorage.class);
+        directorStorage = mock(DirectorStorage.class);
+        when(mpaStorage.findAll()).thenReturn(List.of(
+                Mpa.builder().id(2L).name("PG").build(),
+                Mpa.builder().id(1L).name("G").build()));
+        when(genreStorage.findAll()).thenReturn(List.of(
+                Genre.builder().id(1L).name("Комедия").build(),
+                Genre.builder().id(3L).name("Мультфильм").build()));
+        when(directorStorage.findAll()).thenReturn(List.of(director(5, "Nolan")));
+
+        cache = new ReferenceDataCache(mpaStorage, genreStorage, directorStorage);
+        cache.load();
+    }
+
+    @Test
+    void lookups_ShouldBeServedFromSnapshot() {
+        assertThat(cache.findAllMpa()).extracting(Mpa::getId).containsExactly(1L, 2L);
+        assertThat(cache.findMpaById(2L)).map(Mpa::getName).contains("PG");
+        assertThat(cache.findMpaById(7L)).isEmpty();
+        assertThat(cache.findGenreById(2L)).isEmpty();
+        assertThat(cache.findDirectorById(5)).map(Director::getName).contains("Nolan");
+    }
+
+    @Test
+    void allGenresExist_ShouldRequireEveryId() {
+        assertThat(cache.allGenresExist(List.of(1L, 3L))).isTrue();
+        assertThat(cache.allGenresExist(List.of(1L, 2L))).isFalse();
+    }
+
+    @Test
+    void putDirector_ShouldNotChangeListAlreadyHandedOut() {
+        List<Director> before = cache.findAllDirectors();
+
+        cache.putDirector(director(5, "Christopher Nolan"));
+        cache.putDirector(director(2, "Villeneuve"));
+
+        assertThat(before).extracting(Director::getName).containsExactly("Nolan");
+        assertThat(cache.findAllDirectors()).extracting(Director::getName)
+                .containsExactly("Villeneuve", "Christopher Nolan");
+
+        cache.removeDirector(5);
+        assertThat(cache.findDirectorById(5)).isEmpty();
+    }
+
+    @Test
+    void allDirectorsExist_ShouldNotReload_WhenDirectorIsUnknown() {
+        assertThat(cache.allDirectorsExist(List.of(5))).isTrue();
+        assertThat(cache.allDirectorsExist(List.of(5, 7))).isFalse();
+        assertThat(cache.findDirectorById(7)).isEmpty();
+
+        // Только загрузка при старте
+        verify(directorStorage, times(1)).findAll();
+    }
+
+    @Test
+    void findDirectorById_ShouldHandleLargeIds() {
+        cache.putDirector(director(2_000_000_000, "Kubrick"));
+
+        assertThat(cache.findDirectorById(2_000_000_000)).map(Director::getName).contains("Kubrick");
+        assertThat(cache.findDirectorById(1_999_999_999)).isEmpty();
+    }
+
+    @Test
+    void getMpa_ShouldReloadRatings_WhenFilmRefersToUnknownOne() {
+        // Рейтинг добавили в базу в обход приложения
+        when(mpaStorage.findAll()).thenReturn(List.of(
+                Mpa.builder().id(1L).name("G").build(),
+                Mpa.builder().id(3L).name("PG-13").build()));
+
+        assertThat(cache.getMpa(3L).getName()).isEqualTo("PG-13");
+        assertThat(cache.getMpa(3L).getName()).isEqualTo("PG-13");
+        verify(mpaStorage, times(2)).findAll();
+    }
+
+    @Test
+    void getMpa_ShouldFail_WhenRatingIsUnknownAfterReload() {
+        assertThatThrownBy(() -> cache.getMpa(7L)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static Director director(int id, String name) {
+        return Director.builder().id(id).name(name).build();
+    }
+}
@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dto.director.DirectorDto;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmDbStorageQueryCountTest {
+
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private DirectorService directorService;
+
+    private Film film;
+
+    @BeforeEach
+    void setUp() {
+        // Через сервис, чтобы режиссёр сразу попал в ReferenceDataCache
+        Director director = directorService.create(DirectorDto.builder().name("Director").build());
+        film = filmStorage.save(Film.builder()
+                .name("Film")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(Mpa.builder().id(1L).build())
+                .genres(List.of(Genre.builder().id(2L).build(), Genre.builder().id(1L).build()))
+                .directors(List.of(director))
+                .likedUsersFilms(Set.of())
+                .build());
+        STATEMENTS.set(0);
+    }
+
+    @Test
+    void findFilmById_ShouldLoadRelationsInOneQuery() {
+        Film found = filmStorage.findFilmById(film.getId()).orElseThrow();
+
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+        assertThat(found.getMpa().getName()).isNotNull();
+        assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+        assertThat(found.getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(found.getDirectors()).extracting(Director::getName).containsExactly("Director");
+    }
+
+    @Test
+    void listReads_ShouldUseOneQueryEach() {
+        assertThat(filmStorage.findAll()).hasSize(1);
+        assertThat(filmStorage.getPopularFilms(10, null, null)).hasSize(1);
+        assertThat(filmStorage.findFilmsByIds(List.of(film.getId()))).hasSize(1);
+        assertThat(filmStorage.search("fil", "title,director")).hasSize(1);
+
+        assertThat(STATEMENTS.get()).isEqualTo(4);
+    }
+
+    @Test
+    void reads_ShouldShareReferenceInstances() {
+        Film first = filmStorage.findFilmById(film.getId()).orElseThrow();
+        Film second = filmStorage.findAll().get(0);
+
+        assertThat(second.getMpa()).isSameAs(first.getMpa());
+        assertThat(second.getGenres().get(0)).isSameAs(first.getGenres().get(0));
+        assertThat(second.getDirectors().get(0)).isSameAs(first.getDirectors().get(0));
+    }
+
+    @Test
+    void update_ShouldReadFilmBackOnce() {
+        Film updated = filmStorage.update(film.toBuilder().genres(List.of()).directors(List.of()).build());
+
+        // UPDATE films, DELETE genres, DELETE directors, SELECT film
+        assertThat(STATEMENTS.get()).isEqualTo(4);
+        assertThat(updated.getGenres()).isEmpty();
+        assertThat(updated.getDirectors()).isEmpty();
+    }
+
+    @Test
+    void isExistById_ShouldAnswerSavedFilmsFromCache() {
+        assertThat(filmStorage.isExistById(film.getId())).isTrue();
+        assertThat(filmStorage.findExistingIds(List.of(film.getId()))).containsExactly(film.getId());
+        assertThat(STATEMENTS.get()).isZero();
+
+        filmStorage.delete(film.getId());
+        STATEMENTS.set(0);
+
+        assertThat(filmStorage.isExistById(film.getId())).isFalse();
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return countingDataSource(dataSource);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static DataSource countingDataSource(DataSource target) {
+            return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                    new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        if (result instanceof Connection connection) {
+                            return countingConnection(connection);
+                        }
+                        return result;
+                    });
+        }
+
+        private static Connection countingConnection(Connection target) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("createStatement")
+                                || name.equals("prepareCall")) {
+                            STATEMENTS.incrementAndGet();
+                        }
+                        return invoke(target, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikePublisher;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.review.InMemoryReviewStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("in-memory")
+@DirtiesContext
+class InMemoryProfileTest {
+
+    @TempDir
+    private static Path directory;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private ReviewStorage reviewStorage;
+
+    @Autowired
+    private EventStorage eventStorage;
+
+    @Autowired
+    private DirectorStorage directorStorage;
+
+    @Autowired
+    private ReferenceDataCache referenceData;
+
+    @Autowired
+    private FilmLikePublisher likePublisher;
+
+    @Autowired
+    private JournalFactory journals;
+
+    @DynamicPropertySource
+    static void memoryDirectory(DynamicPropertyRegistry registry) {
+        registry.add("filmorate.memory.directory", () -> directory.toString());
+    }
+
+    @Test
+    void storages_ShouldAnswerQueriesCascadeDeletesAndSurviveRestart() {
+        Director director = directorStorage.create(Director.builder().name("Christopher Nolan").build());
+        referenceData.putDirector(director);
+        long first = saveUser("first");
+        long second = saveUser("second");
+        long inception = saveFilm("Inception", List.of(director));
+        long memento = saveFilm("Memento", List.of());
+        filmStorage.addLike(inception, first);
+        filmStorage.addLike(inception, second);
+        filmStorage.addLike(memento, first);
+
+        assertThat(filmStorage.getPopularFilms(10, null, null))
+                .extracting(Film::getId, Film::getLikesCount)
+                .containsExactly(tuple(inception, 2),
+                        tuple(memento, 1));
+        assertThat(filmStorage.getPopularFilms(10, 1, 2010)).extracting(Film::getId).containsExactly(inception, memento);
+        assertThat(filmStorage.search("nolan", "director")).extracting(Film::getId).containsExactly(inception);
+        assertThat(filmStorage.getCommonFilms(first, second)).extracting(Film::getId).containsExactly(inception);
+        assertThat(filmStorage.findRecommendationsByUserId(second)).extracting(Film::getId).containsExactly(memento);
+        assertThat(filmStorage.findAllByDirector(director.getId(), "likes")).extracting(Film::getName)
+                .containsExactly("Inception");
+
+        Review review = reviewStorage.save(Review.builder()
+                .content("Great").isPositive(true).userId(first).filmId(memento).build());
+        reviewStorage.addVote(review.getReviewId(), second, VoteType.DISLIKE);
+        assertThat(reviewStorage.findByFilmId(memento, 10)).extracting(Review::getUseful).containsExactly(-1);
+        ((JournaledStorage) filmStorage).snapshot();
+        ((JournaledStorage) reviewStorage).snapshot();
+
+        userStorage.addFriendship(first, second);
+        eventStorage.save(event(second, inception));
+        eventStorage.save(event(second, memento));
+        assertThat(eventStorage.findFriendsEvents(first, 10)).extracting(Event::getEntityId)
+                .containsExactly(memento, inception);
+
+        userStorage.delete(second);
+
+        assertThat(filmStorage.findFilmById(inception)).get().extracting(Film::getLikesCount).isEqualTo(1);
+        assertThat(reviewStorage.findById(review.getReviewId())).get().extracting(Review::getUseful).isEqualTo(0);
+        assertThat(eventStorage.findFeedPage(second, null, 10)).isEmpty();
+
+        InMemoryFilmStorage films = new InMemoryFilmStorage(journals, referenceData, likePublisher);
+        films.recover();
+        InMemoryReviewStorage reviews = new InMemoryReviewStorage(journals);
+        reviews.recover();
+
+        assertThat(films.getPopularFilms(10, null, null)).extracting(Film::getId, Film::getLikesCount)
+                .containsExactly(tuple(inception, 1),
+                        tuple(memento, 1));
+        assertThat(films.findFilmById(inception)).get().extracting(Film::getDirectors).asList()
+                .containsExactly(director);
+        assertThat(reviews.findAll(10)).extracting(Review::getContent, Review::getUseful)
+                .containsExactly(tuple("Great", 0));
+    }
+
+    private long saveUser(String login) {
+        return userStorage.save(User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+    }
+
+    private long saveFilm(String name, List<Director> directors) {
+        return filmStorage.save(Film.builder()
+                .name(name)
+                .description(name)
+                .releaseDate(LocalDate.of(2010, 7, 8))
+                .duration(148)
+                .mpa(Mpa.builder().id(3L).build())
+                .genres(List.of(Genre.builder().id(1L).build()))
+                .directors(directors)
+                .build()).getId();
+    }
+
+    private static Event event(long userId, long filmId) {
+        return Event.builder()
+                .timestamp(System.currentTimeMillis())
+                .userId(userId)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(filmId)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void recover_ShouldRestoreSnapshotAndReplayOnlyLaterChanges() throws Exception {
+        Journal journal = open(new ArrayList<>(), new ArrayList<>());
+        journal.append("add", 1);
+        journal.append("add", 2);
+        journal.write(journal.checkpoint(List.of(1, 2)));
+        journal.append("add", 3);
+        journal.close();
+
+        List<JsonNode> restored = new ArrayList<>();
+        List<String> replayed = new ArrayList<>();
+        open(restored, replayed).close();
+
+        assertThat(restored).hasSize(1);
+        assertThat(restored.get(0).toString()).isEqualTo("[1,2]");
+        assertThat(replayed).containsExactly("add:3");
+        assertThat(segments()).hasSize(2);
+    }
+
+    @Test
+    void recover_ShouldSkipTornLastEntry() throws Exception {
+        Journal journal = open(new ArrayList<>(), new ArrayList<>());
+        journal.append("add", 1);
+        journal.close();
+        Files.writeString(segments().get(0), "{\"op\":\"add\",\"da", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<String> replayed = new ArrayList<>();
+        Journal recovered = open(new ArrayList<>(), replayed);
+        recovered.append("add", 2);
+        recovered.close();
+
+        assertThat(replayed).containsExactly("add:1");
+        replayed.clear();
+        open(new ArrayList<>(), replayed).close();
+        assertThat(replayed).containsExactly("add:1", "add:2");
+    }
+
+    @Test
+    void checkpoint_ShouldBeSkippedWithoutChanges() {
+        Journal journal = open(new ArrayList<>(), new ArrayList<>());
+
+        assertThat(journal.checkpoint(List.of())).isNull();
+        journal.close();
+    }
+
+    private Journal open(List<JsonNode> restored, List<String> replayed) {
+        Journal journal = new Journal(directory, mapper, false);
+        journal.recover(restored::add, (op, data) -> replayed.add(op + ":" + data));
+        return journal;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
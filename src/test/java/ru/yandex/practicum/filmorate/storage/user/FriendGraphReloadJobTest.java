@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FriendGraphReloadJobTest {
+
+    @Autowired
+    private FriendGraphReloadJob reloadJob;
+
+    @Autowired
+    @Qualifier("userDbStorage")
+    private UserStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reload_ShouldPickUpFriendshipsWrittenAroundStorage() {
+        long userId = userStorage.save(user("first")).getId();
+        long friendId = userStorage.save(user("second")).getId();
+        // Строка появилась в обход хранилища, граф о ней не знает
+        jdbcTemplate.update("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", userId, friendId);
+        assertThat(userStorage.getUserFriendsIds(userId)).isEmpty();
+
+        reloadJob.reload();
+
+        assertThat(userStorage.getUserFriendsIds(userId)).containsExactly(friendId);
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTest {
+
+    private FriendGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendGraph();
+        graph.reload(() -> Map.of(
+                1L, List.of(4L, 2L, 3L),
+                2L, List.of(3L),
+                5L, List.of(3L, 4L)
+        ));
+    }
+
+    @Test
+    void reads_ShouldFollowDirectedFriendships() {
+        assertThat(graph.isFriend(1L, 2L)).isTrue();
+        assertThat(graph.isFriend(2L, 1L)).isFalse();
+        assertThat(graph.friendIds(1L)).containsExactly(2L, 3L, 4L);
+        assertThat(graph.followerIds(3L)).containsExactly(1L, 2L, 5L);
+        assertThat(graph.commonFriendIds(1L, 5L)).containsExactly(3L, 4L);
+        assertThat(graph.commonFriendIds(1L, 6L)).isEmpty();
+    }
+
+    @Test
+    void changes_ShouldBeVisibleBeforeAndAfterCompaction() {
+        graph.added(5L, 2L);
+        graph.removed(3L, 1L);
+
+        assertThat(graph.commonFriendIds(1L, 5L)).containsExactly(2L, 4L);
+        assertThat(graph.friendIds(1L)).containsExactly(2L, 4L);
+        assertThat(graph.friendCount(5L)).isEqualTo(3);
+        assertThat(graph.friendCount(3L)).isZero();
+
+        graph.compact();
+
+        assertThat(graph.friendIds(5L)).containsExactly(2L, 3L, 4L);
+        assertThat(graph.friendCount(5L)).isEqualTo(3);
+        assertThat(graph.followerIds(3L)).containsExactly(2L, 5L);
+    }
+
+    @Test
+    void userDeleted_ShouldDropFriendsAndFollowers() {
+        graph.userDeleted(3L);
+
+        assertThat(graph.friendIds(1L)).containsExactly(2L, 4L);
+        assertThat(graph.followerIds(3L)).isEmpty();
+        assertThat(graph.friendIds(2L)).isEmpty();
+    }
+
+    @Test
+    void intersect_ShouldMergeSortedArrays() {
+        assertThat(FriendGraph.intersect(new long[]{1, 3, 5, 7}, new long[]{2, 3, 7, 9})).containsExactly(3L, 7L);
+        assertThat(FriendGraph.intersect(new long[]{}, new long[]{1})).isEmpty();
+    }
+}
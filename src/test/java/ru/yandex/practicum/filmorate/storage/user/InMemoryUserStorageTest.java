@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikePublisher;
+import ru.yandex.practicum.filmorate.storage.memory.JournalFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class InMemoryUserStorageTest {
+
+    @TempDir
+    private Path directory;
+
+    private InMemoryUserStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = open();
+    }
+
+    @Test
+    void friendships_ShouldMatchDatabaseSemantics() {
+        long first = save("first");
+        long second = save("second");
+        long third = save("third");
+
+        storage.addFriendship(first, second);
+        storage.addFriendship(first, third);
+        storage.addFriendship(second, third);
+
+        assertThat(storage.isFriend(first, second)).isTrue();
+        assertThat(storage.isFriend(second, first)).isFalse();
+        assertThat(storage.getFollowerIds(third)).containsExactlyInAnyOrder(first, second);
+        assertThat(storage.getUsersCommonFriends(first, second)).extracting(User::getId).containsExactly(third);
+
+        storage.addFriendship(third, first);
+        storage.removeFriendship(first, third);
+
+        assertThat(storage.getUserFriendsIds(first)).containsExactly(second);
+        assertThat(storage.getUserFriendsIds(third)).isEmpty();
+    }
+
+    @Test
+    void delete_ShouldRemoveUserFromFriendsAndFollowers() {
+        long first = save("first");
+        long second = save("second");
+        long third = save("third");
+        storage.addFriendship(first, second);
+        storage.addFriendship(second, third);
+
+        storage.delete(second);
+
+        assertThat(storage.getUserFriendsIds(first)).isEmpty();
+        assertThat(storage.getFollowerIds(third)).isEmpty();
+        assertThatThrownBy(() -> storage.addFriendship(first, second)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> storage.delete(second)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void reads_ShouldReturnCopiesOfStoredUsers() {
+        User user = User.builder().login("first").email("first@mail.ru").build();
+        long id = storage.save(user).getId();
+
+        // Ни исходный объект, ни прочитанная копия не должны менять хранилище без update
+        user.setLogin("changed");
+        storage.getUserById(id).orElseThrow().setLogin("changed");
+        storage.findAll().getFirst().setEmail("changed@mail.ru");
+
+        User stored = storage.getUserById(id).orElseThrow();
+        assertThat(stored.getLogin()).isEqualTo("first");
+        assertThat(stored.getEmail()).isEqualTo("first@mail.ru");
+    }
+
+    @Test
+    void concurrentUpdates_ShouldNotLoseUsersOrFriendships() throws Exception {
+        long hub = save("hub");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> saved = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int index = i;
+            saved.add(executor.submit(() -> {
+                long userId = save("user" + index);
+                storage.addFriendship(userId, hub);
+                storage.addFriendship(hub, userId);
+                return userId;
+            }));
+        }
+        for (Future<Long> future : saved) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(storage.findAll()).hasSize(1001);
+        assertThat(storage.getUserFriendsIds(hub)).hasSize(1000);
+        assertThat(storage.getFollowerIds(hub)).hasSize(1000);
+    }
+
+    @Test
+    void restart_ShouldRestoreSnapshotAndReplayJournal() {
+        long first = save("first");
+        long second = save("second");
+        long third = save("third");
+        storage.addFriendship(first, second);
+        storage.addFriendship(first, third);
+        storage.snapshot();
+
+        storage.removeFriendship(first, second);
+        storage.addFriendship(third, first);
+        storage.delete(second);
+        storage.close();
+
+        InMemoryUserStorage restarted = open();
+
+        assertThat(restarted.findAll()).extracting(User::getId).containsExactlyInAnyOrder(first, third);
+        assertThat(restarted.getUserFriendsIds(first)).containsExactly(third);
+        assertThat(restarted.getFollowerIds(first)).containsExactly(third);
+        assertThat(restarted.getUserById(third)).get().extracting(User::getLogin).isEqualTo("third");
+        assertThat(restarted.save(User.builder().login("fourth").build()).getId()).isEqualTo(4L);
+    }
+
+    private InMemoryUserStorage open() {
+        JournalFactory journals = new JournalFactory(directory, new ObjectMapper().findAndRegisterModules(), false);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(journals, mock(FilmLikePublisher.class));
+        userStorage.recover();
+        return userStorage;
+    }
+
+    private long save(String login) {
+        return storage.save(User.builder().login(login).email(login + "@mail.ru").build()).getId();
+    }
+}
@@ -0,0 +1,396 @@
+package ru.yandex.practicum.filmorate.testdata;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic dataset for load and scale testing.
+ * <p>
+ * Film popularity is Zipfian (likes and reviews), the friend graph grows by preferential
+ * attachment and so has a power-law degree distribution, reviews get votes and a matching
+ * {@code useful}, and every like, friendship and review also lands in the feed. Scale 1
+ * is 10k users, 2k films and about 100k likes; sizes grow linearly with the scale, so
+ * scale 100 gives 1M users and about 10M likes. The same seed and scale always produce
+ * the same rows.
+ * <p>
+ * Rows are streamed straight into JDBC batches as they are generated, so nothing but the
+ * current batches is kept in memory.
+ */
+public class DatasetGenerator {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final int BASE_USERS = 10_000;
+    private static final int BASE_FILMS = 2_000;
+    private static final double MEAN_LIKES_PER_USER = 10;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final int FRIENDS_PER_NEW_USER = 5;
+    private static final double MUTUAL_FRIENDSHIP_SHARE = 0.3;
+    private static final double RANDOM_FRIEND_SHARE = 0.1;
+    private static final double REVIEWER_SHARE = 0.2;
+    private static final int MAX_REVIEWS_PER_USER = 3;
+    private static final double MEAN_VOTES_PER_REVIEW = 4;
+    private static final double USEFUL_VOTE_SHARE = 0.7;
+    private static final int FILMS_PER_DIRECTOR = 5;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final LocalDate MIN_DATE = LocalDate.of(1950, 1, 1);
+    private static final long START_TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private final long seed;
+    private final int users;
+    private final int films;
+    private final int directors;
+
+    public DatasetGenerator(long seed, double scale) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        this.seed = seed;
+        this.users = Math.max(FRIENDS_PER_NEW_USER + 1, (int) Math.round(BASE_USERS * scale));
+        this.films = Math.max(FILMS_PER_DIRECTOR, (int) Math.round(BASE_FILMS * scale));
+        this.directors = films / FILMS_PER_DIRECTOR;
+    }
+
+    public int users() {
+        return users;
+    }
+
+    public int films() {
+        return films;
+    }
+
+    /**
+     * Generates the dataset into an empty database with the {@code schema.sql} tables and
+     * the reference data from {@code data.sql}.
+     */
+    public Stats load(JdbcTemplate jdbc) {
+        Integer existingUsers = jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+        if (existingUsers == null || existingUsers > 0) {
+            throw new IllegalStateException("Dataset can only be loaded into an empty database");
+        }
+
+        BatchSink sink = new BatchSink(jdbc);
+        Stats stats = generate(sink);
+        sink.flushAll();
+
+        // Идентификаторы заданы явно, поэтому счётчики автоинкремента сдвигаем за них вручную
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (users + 1));
+        jdbc.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (films + 1));
+        jdbc.execute("ALTER TABLE directors ALTER COLUMN director_id RESTART WITH " + (directors + 1));
+        jdbc.execute("ALTER TABLE reviews ALTER COLUMN review_id RESTART WITH " + (stats.reviews() + 1));
+        return stats;
+    }
+
+    /**
+     * Emits every row after the rows it references.
+     */
+    Stats generate(RowSink sink) {
+        Random random = new Random(seed);
+        long[] clock = {START_TIMESTAMP};
+
+        for (int id = 1; id <= users; id++) {
+            sink.row(Table.USERS, id, "user" + id, "User " + id, "user" + id + "@mail.ru", randomDate(random, 55));
+        }
+        for (int id = 1; id <= directors; id++) {
+            sink.row(Table.DIRECTORS, id, "Director " + id);
+        }
+        for (int id = 1; id <= films; id++) {
+            sink.row(Table.FILMS, id, "Film " + id, "Description of film " + id, randomDate(random, 75),
+                    60 + random.nextInt(120), 1 + random.nextInt(MPA_RATINGS));
+            int firstGenre = 1 + random.nextInt(GENRES);
+            sink.row(Table.FILM_GENRES, id, firstGenre);
+            if (random.nextBoolean()) {
+                sink.row(Table.FILM_GENRES, id, 1 + (firstGenre + random.nextInt(GENRES - 1)) % GENRES);
+            }
+            if (random.nextInt(5) > 0) {
+                sink.row(Table.FILM_DIRECTORS, id, 1 + random.nextInt(directors));
+            }
+        }
+
+        // Популярность не должна зависеть от id, поэтому ранги Ципфа переставляем случайно
+        int[] filmByRank = shuffledIds(films, random);
+        Zipf filmPopularity = new Zipf(films, ZIPF_EXPONENT);
+
+        int[] likesCount = new int[films + 1];
+        long likes = generateLikes(sink, random, clock, filmByRank, filmPopularity, likesCount);
+        for (int id = 1; id <= films; id++) {
+            if (likesCount[id] > 0) {
+                sink.row(Table.LIKES_COUNT, likesCount[id], id);
+            }
+        }
+        long friendships = generateFriendGraph(sink, random, clock);
+        long[] reviewsAndVotes = generateReviews(sink, random, clock, filmByRank, filmPopularity);
+
+        long events = likes + friendships + reviewsAndVotes[0];
+        return new Stats(users, films, likes, friendships, reviewsAndVotes[0], reviewsAndVotes[1], events);
+    }
+
+    private long generateLikes(RowSink sink, Random random, long[] clock, int[] filmByRank, Zipf filmPopularity,
+                               int[] likesCount) {
+        long likes = 0;
+        int[] liked = new int[0];
+        for (int userId = 1; userId <= users; userId++) {
+            int count = Math.min(films / 2, geometric(MEAN_LIKES_PER_USER, random));
+            liked = liked.length < count ? new int[count] : liked;
+            for (int i = 0; i < count; i++) {
+                int filmId = filmByRank[filmPopularity.sample(random)];
+                if (contains(liked, i, filmId)) {
+                    i--;
+                    continue;
+                }
+                liked[i] = filmId;
+                likesCount[filmId]++;
+                long timestamp = tick(clock, random);
+                sink.row(Table.FILM_LIKES, filmId, userId, new Timestamp(timestamp));
+                sink.row(Table.EVENTS, timestamp, userId, "LIKE", "ADD", filmId);
+            }
+            likes += count;
+        }
+        return likes;
+    }
+
+    // Предпочтительное присоединение: новый пользователь выбирает друзей пропорционально их степени
+    private long generateFriendGraph(RowSink sink, Random random, long[] clock) {
+        int[] endpoints = new int[1024];
+        int endpointCount = 0;
+        long friendships = 0;
+        int[] chosen = new int[FRIENDS_PER_NEW_USER];
+        for (int userId = 2; userId <= users; userId++) {
+            int count = Math.min(FRIENDS_PER_NEW_USER, userId - 1);
+            for (int i = 0; i < count; i++) {
+                int friendId = endpointCount == 0 || random.nextDouble() < RANDOM_FRIEND_SHARE
+                        ? 1 + random.nextInt(userId - 1)
+                        : endpoints[random.nextInt(endpointCount)];
+                if (contains(chosen, i, friendId)) {
+                    i--;
+                    continue;
+                }
+                chosen[i] = friendId;
+            }
+            for (int i = 0; i < count; i++) {
+                addFriendship(sink, random, clock, userId, chosen[i]);
+                friendships++;
+                if (random.nextDouble() < MUTUAL_FRIENDSHIP_SHARE) {
+                    addFriendship(sink, random, clock, chosen[i], userId);
+                    friendships++;
+                }
+                if (endpointCount + 2 > endpoints.length) {
+                    endpoints = Arrays.copyOf(endpoints, endpoints.length * 2);
+                }
+                endpoints[endpointCount++] = userId;
+                endpoints[endpointCount++] = chosen[i];
+            }
+        }
+        return friendships;
+    }
+
+    private void addFriendship(RowSink sink, Random random, long[] clock, int userId, int friendId) {
+        long timestamp = tick(clock, random);
+        sink.row(Table.FRIENDSHIPS, userId, friendId, new Timestamp(timestamp));
+        sink.row(Table.EVENTS, timestamp, userId, "FRIEND", "ADD", friendId);
+    }
+
+    private long[] generateReviews(RowSink sink, Random random, long[] clock, int[] filmByRank,
+                                   Zipf filmPopularity) {
+        long reviews = 0;
+        long votes = 0;
+        int[] reviewed = new int[MAX_REVIEWS_PER_USER];
+        int[] voters = new int[0];
+        boolean[] useful = new boolean[0];
+        for (int userId = 1; userId <= users; userId++) {
+            if (random.nextDouble() >= REVIEWER_SHARE) {
+                continue;
+            }
+            int count = Math.min(films / 2, 1 + random.nextInt(MAX_REVIEWS_PER_USER));
+            for (int i = 0; i < count; i++) {
+                int filmId = filmByRank[filmPopularity.sample(random)];
+                if (contains(reviewed, i, filmId)) {
+                    i--;
+                    continue;
+                }
+                reviewed[i] = filmId;
+                long reviewId = ++reviews;
+
+                int voteCount = Math.min(users - 1, geometric(MEAN_VOTES_PER_REVIEW, random) - 1);
+                if (voters.length < voteCount) {
+                    voters = new int[voteCount];
+                    useful = new boolean[voteCount];
+                }
+                int usefulness = 0;
+                for (int v = 0; v < voteCount; v++) {
+                    int voterId = 1 + random.nextInt(users);
+                    if (voterId == userId || contains(voters, v, voterId)) {
+                        v--;
+                        continue;
+                    }
+                    voters[v] = voterId;
+                    useful[v] = random.nextDouble() < USEFUL_VOTE_SHARE;
+                    usefulness += useful[v] ? 1 : -1;
+                }
+
+                sink.row(Table.REVIEWS, reviewId, "Review " + reviewId + " of film " + filmId,
+                        random.nextBoolean(), userId, filmId, usefulness);
+                for (int v = 0; v < voteCount; v++) {
+                    sink.row(Table.REVIEW_VOTES, reviewId, voters[v], useful[v] ? "LIKE" : "DISLIKE");
+                }
+                sink.row(Table.EVENTS, tick(clock, random), userId, "REVIEW", "ADD", reviewId);
+                votes += voteCount;
+            }
+        }
+        return new long[]{reviews, votes};
+    }
+
+    private static Date randomDate(Random random, int years) {
+        return Date.valueOf(MIN_DATE.plusDays(random.nextInt(365 * years)));
+    }
+
+    private static long tick(long[] clock, Random random) {
+        clock[0] += 1 + random.nextInt(60_000);
+        return clock[0];
+    }
+
+    /**
+     * Geometric value with the given mean, at least 1.
+     */
+    private static int geometric(double mean, Random random) {
+        double p = 1 / mean;
+        return 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] shuffledIds(int count, Random random) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    public record Stats(int users, int films, long likes, long friendships, long reviews, long votes,
+                        long events) {
+    }
+
+    /**
+     * Target statements in dependency order: a statement only references tables listed before it.
+     */
+    enum Table {
+        USERS("INSERT INTO users (id, login, name, email, birthday) VALUES (?, ?, ?, ?, ?)"),
+        DIRECTORS("INSERT INTO directors (director_id, director_name) VALUES (?, ?)"),
+        FILMS("""
+                INSERT INTO films (id, name, description, release_date, duration, mpa_rating_id)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """),
+        FILM_GENRES("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)"),
+        FILM_DIRECTORS("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)"),
+        FILM_LIKES("INSERT INTO film_likes (film_id, user_id, liked_at) VALUES (?, ?, ?)"),
+        LIKES_COUNT("UPDATE films SET likes_count = ? WHERE id = ?"),
+        FRIENDSHIPS("INSERT INTO friendships (user_id, friend_id, created_at) VALUES (?, ?, ?)"),
+        REVIEWS("""
+                INSERT INTO reviews (review_id, content, is_positive, user_id, film_id, useful)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """),
+        REVIEW_VOTES("INSERT INTO review_votes (review_id, user_id, vote_type) VALUES (?, ?, ?)"),
+        EVENTS("""
+                INSERT INTO events (timestamp, user_id, event_type, operation, entity_id)
+                VALUES (?, ?, ?, ?, ?)
+                """);
+
+        private final String sql;
+
+        Table(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    @FunctionalInterface
+    interface RowSink {
+        void row(Table table, Object... values);
+    }
+
+    /**
+     * Buffers rows per statement. A full buffer is written together with the buffers of every
+     * statement before it, so referenced rows always reach the database first.
+     */
+    private static final class BatchSink implements RowSink {
+        private final JdbcTemplate jdbc;
+        private final List<List<Object[]>> buffers = new ArrayList<>();
+
+        private BatchSink(JdbcTemplate jdbc) {
+            this.jdbc = jdbc;
+            for (int i = 0; i < Table.values().length; i++) {
+                buffers.add(new ArrayList<>(BATCH_SIZE));
+            }
+        }
+
+        @Override
+        public void row(Table table, Object... values) {
+            List<Object[]> buffer = buffers.get(table.ordinal());
+            buffer.add(values);
+            if (buffer.size() == BATCH_SIZE) {
+                flush(table.ordinal());
+            }
+        }
+
+        private void flushAll() {
+            flush(buffers.size() - 1);
+        }
+
+        private void flush(int lastTable) {
+            for (int i = 0; i <= lastTable; i++) {
+                List<Object[]> buffer = buffers.get(i);
+                if (!buffer.isEmpty()) {
+                    jdbc.batchUpdate(Table.values()[i].sql, buffer);
+                    buffer.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Zipf sampler over ranks {@code 1..n} using the cumulative distribution and binary search.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        private Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+        }
+
+        /**
+         * @return zero-based rank
+         */
+        private int sample(Random random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
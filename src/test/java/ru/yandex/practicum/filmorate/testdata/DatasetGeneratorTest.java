@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.testdata;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DatasetGeneratorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("userDbStorage")
+    private UserStorage userStorage;
+
+    @Test
+    void generate_ShouldProduceSameRowsForSameSeed() {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        List<String> otherSeed = new ArrayList<>();
+        new DatasetGenerator(7, 0.1).generate((table, values) -> first.add(table + Arrays.toString(values)));
+        new DatasetGenerator(7, 0.1).generate((table, values) -> second.add(table + Arrays.toString(values)));
+        new DatasetGenerator(8, 0.1).generate((table, values) -> otherSeed.add(table + Arrays.toString(values)));
+
+        assertThat(first).isNotEmpty().isEqualTo(second).isNotEqualTo(otherSeed);
+    }
+
+    @Test
+    void load_ShouldFillSchemaWithSkewedData() {
+        DatasetGenerator.Stats stats = new DatasetGenerator(42, 0.2).load(jdbcTemplate);
+
+        assertThat(count("SELECT COUNT(*) FROM users")).isEqualTo(stats.users()).isEqualTo(2000);
+        assertThat(count("SELECT COUNT(*) FROM films")).isEqualTo(stats.films()).isEqualTo(400);
+        assertThat(count("SELECT COUNT(*) FROM film_likes")).isEqualTo(stats.likes());
+        assertThat(count("SELECT COUNT(*) FROM friendships")).isEqualTo(stats.friendships());
+        assertThat(count("SELECT COUNT(*) FROM review_votes")).isEqualTo(stats.votes());
+        assertThat(count("SELECT COUNT(*) FROM events")).isEqualTo(stats.events());
+        assertThat(count("""
+                SELECT COUNT(*) FROM films f
+                WHERE likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+                """)).isZero();
+        assertThat(count("""
+                SELECT COUNT(*) FROM reviews r
+                WHERE useful <> (SELECT COALESCE(SUM(CASE WHEN v.vote_type = 'LIKE' THEN 1 ELSE -1 END), 0)
+                    FROM review_votes v WHERE v.review_id = r.review_id)
+                """)).isZero();
+
+        // Топ 5% фильмов собирают заметно больше своей доли лайков, как и самые связанные пользователи
+        long topFilmLikes = count("SELECT SUM(likes_count) FROM (SELECT likes_count FROM films "
+                + "ORDER BY likes_count DESC LIMIT 20)");
+        assertThat(topFilmLikes * 4).isGreaterThan(stats.likes());
+        long maxFollowers = count("SELECT MAX(c) FROM (SELECT COUNT(*) c FROM friendships GROUP BY friend_id)");
+        assertThat(maxFollowers).isGreaterThan(10 * stats.friendships() / stats.users());
+
+        User user = userStorage.save(User.builder()
+                .email("new@mail.ru")
+                .login("new")
+                .name("New")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build());
+        assertThat(user.getId()).isEqualTo(stats.users() + 1);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}